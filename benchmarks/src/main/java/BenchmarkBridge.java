@@ -0,0 +1,308 @@
+import Benchmarks.Bridge;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+// Builds the synthetic workloads for the Benchmarks package; see Bridge.
+public class BenchmarkBridge implements Bridge {
+    @Override
+    public Predicate<String> finiteAutomaton(int states, int alphabet, long seed) {
+        Map<String, Map<String, String>> transitions = new HashMap<>();
+        int[][] table = randomTable(states, alphabet, seed);
+        for (int q = 0; q < states; q++) {
+            for (int a = 0; a < alphabet; a++) {
+                transitions.computeIfAbsent("q" + q, s -> new HashMap<>()).put(symbol(a), "q" + table[q][a]);
+            }
+        }
+        FiniteAutomaton automaton = new FiniteAutomaton(stateNames(states), accepting(states, seed), transitions, "q0");
+        return automaton::accepts;
+    }
+
+    @Override
+    public Predicate<String> dfa(int states, int alphabet, long seed) {
+        return randomFA(states, alphabet, seed, 1.0).toDFA()::accepts;
+    }
+
+    @Override
+    public Predicate<String> engine(String engine, int states, int alphabet, long seed) {
+        NFA nfa = randomFA(states, alphabet, seed, 1.0).toNFA();
+        Matcher matcher;
+        switch (engine) {
+            case "compiled":
+                matcher = Determinizer.determinize(nfa);
+                break;
+            case "bitParallel":
+                matcher = new BitParallelNFA(nfa);
+                break;
+            case "lazy":
+                matcher = new LazyDFA(nfa, Matcher.DEFAULT_CACHE_STATES);
+                break;
+            case "scanner":
+                matcher = new DFAScanner(Determinizer.determinize(nfa))::accepts;
+                break;
+            case "matcherOf":
+                matcher = Matcher.of(nfa);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown engine " + engine);
+        }
+        return matcher::accepts;
+    }
+
+    @Override
+    public Predicate<String> kthFromEnd(String engine, int k) {
+        NFA.Builder builder = new NFA.Builder().setStart("s")
+                .addTransition("s", "a", "s").addTransition("s", "b", "s").addTransition("s", "a", "p0");
+        for (int i = 0; i < k; i++) {
+            builder.addTransition("p" + i, "a", "p" + (i + 1)).addTransition("p" + i, "b", "p" + (i + 1));
+        }
+        NFA nfa = builder.addAccepting("p" + k).build();
+        Matcher matcher;
+        switch (engine) {
+            case "bitParallel":
+                matcher = new BitParallelNFA(nfa);
+                break;
+            case "lazy":
+                matcher = new LazyDFA(nfa, Matcher.DEFAULT_CACHE_STATES);
+                break;
+            case "matcherOf":
+                matcher = Matcher.of(nfa);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown engine " + engine);
+        }
+        return matcher::accepts;
+    }
+
+    @Override
+    public Supplier<BitSet> scanLines(String engine, String automaton, byte[] corpus, long seed) {
+        CompiledDFA dfa;
+        switch (automaton) {
+            case "containsQz":
+                dfa = Minimizer.minimize(Determinizer.determinize(containsQz()));
+                break;
+            case "random64":
+                dfa = Determinizer.determinize(randomLetterDFA(64, seed));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown automaton " + automaton);
+        }
+        int newlines = 0;
+        for (byte b : corpus) {
+            newlines += b == '\n' ? 1 : 0;
+        }
+        int lines = newlines;
+        int[] starts = new int[lines + 1];
+        for (int i = 0, line = 0; i < corpus.length; i++) {
+            if (corpus[i] == '\n') {
+                starts[++line] = i + 1;
+            }
+        }
+        switch (engine) {
+            case "compiled": {
+                String[] text = new String[lines];
+                for (int i = 0; i < lines; i++) {
+                    text[i] = new String(corpus, starts[i], starts[i + 1] - starts[i] - 1, StandardCharsets.ISO_8859_1);
+                }
+                return () -> {
+                    BitSet accepted = new BitSet(lines);
+                    for (int i = 0; i < lines; i++) {
+                        if (dfa.accepts(text[i])) {
+                            accepted.set(i);
+                        }
+                    }
+                    return accepted;
+                };
+            }
+            case "scalar":
+            case "vector": {
+                DFAScanner scanner = new DFAScanner(dfa, engine.equals("vector"));
+                return () -> {
+                    BitSet accepted = new BitSet(lines);
+                    for (int i = 0; i < lines; i++) {
+                        if (scanner.accepts(corpus, starts[i], starts[i + 1] - 1)) {
+                            accepted.set(i);
+                        }
+                    }
+                    return accepted;
+                };
+            }
+            case "lanes": {
+                DFAScanner scanner = new DFAScanner(dfa);
+                return () -> {
+                    BitSet accepted = new BitSet(lines);
+                    scanner.acceptLines(corpus, 0, corpus.length, accepted);
+                    return accepted;
+                };
+            }
+            default:
+                throw new IllegalArgumentException("Unknown engine " + engine);
+        }
+    }
+
+    @Override
+    public Supplier<Object> toDFA(int states, int alphabet, long seed) {
+        return randomFA(states, alphabet, seed, 0.75)::toDFA;
+    }
+
+    @Override
+    public BooleanSupplier isDeterministic(int states, int alphabet, long seed) {
+        return randomFA(states, alphabet, seed, 1.0)::isDeterministic;
+    }
+
+    @Override
+    public BooleanSupplier linearScanIsDeterministic(int states, int alphabet, long seed) {
+        int[][] table = randomTable(states, alphabet, seed);
+        Set<String> Q = stateNames(states);
+        Set<String> Sigma = new HashSet<>();
+        Map<Pair<String, String>, String> delta = new HashMap<>();
+        for (int a = 0; a < alphabet; a++) {
+            Sigma.add(symbol(a));
+            for (int q = 0; q < states; q++) {
+                delta.put(new Pair<>("q" + q, symbol(a)), "q" + table[q][a]);
+            }
+        }
+        return () -> {
+            for (String q : Q) {
+                for (String a : Sigma) {
+                    Set<String> nextStates = new HashSet<>();
+                    for (Pair<String, String> transition : delta.keySet()) {
+                        if (transition.getFirst().equals(q) && transition.getSecond().equals(a)) {
+                            nextStates.add(delta.get(transition));
+                        }
+                    }
+                    if (nextStates.size() != 1) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        };
+    }
+
+    @Override
+    public Supplier<Object> generateValidStrings(int nonTerminals, int count, long seed) {
+        Map<String, List<String>> productions = randomProductions(nonTerminals, seed);
+        Grammar grammar = new Grammar(new LinkedHashSet<>(productions.keySet()), terminals(), productions, "A0");
+        return () -> grammar.generateValidStrings(count);
+    }
+
+    @Override
+    public Supplier<Object> cfgToCnf(int nonTerminals, long seed) {
+        Map<String, List<String>> productions = randomProductions(nonTerminals, seed);
+        List<String> names = new ArrayList<>(productions.keySet());
+        List<String> terminals = new ArrayList<>(terminals());
+        return () -> new Chomsky("A0", names, terminals, productions).cfgToCnf();
+    }
+
+    private static List<String> letters() {
+        List<String> letters = new ArrayList<>();
+        for (char c = 'a'; c <= 'z'; c++) {
+            letters.add(String.valueOf(c));
+        }
+        letters.add(" ");
+        return letters;
+    }
+
+    private static NFA containsQz() {
+        NFA.Builder builder = new NFA.Builder().setStart("0").addAccepting("2");
+        for (String a : letters()) {
+            builder.addTransition("0", a, "0").addTransition("1", a, "0").addTransition("2", a, "2");
+        }
+        return builder.addTransition("0", "q", "1").addTransition("1", "q", "1").addTransition("1", "z", "2").build();
+    }
+
+    private static NFA randomLetterDFA(int states, long seed) {
+        Random random = new Random(seed);
+        NFA.Builder builder = new NFA.Builder().setStart("q0");
+        for (int q = 0; q < states; q++) {
+            if (random.nextBoolean()) {
+                builder.addAccepting("q" + q);
+            }
+            for (String a : letters()) {
+                builder.addTransition("q" + q, a, "q" + random.nextInt(states));
+            }
+        }
+        return builder.build();
+    }
+
+    private static FA randomFA(int states, int alphabet, long seed, double density) {
+        Random random = new Random(seed ^ 0x5DEECE66DL);
+        int[][] table = randomTable(states, alphabet, seed);
+        Map<Pair<String, String>, String> delta = new HashMap<>();
+        Set<String> Sigma = new HashSet<>();
+        for (int a = 0; a < alphabet; a++) {
+            Sigma.add(symbol(a));
+        }
+        for (int q = 0; q < states; q++) {
+            for (int a = 0; a < alphabet; a++) {
+                if (density >= 1.0 || random.nextDouble() < density) {
+                    delta.put(new Pair<>("q" + q, symbol(a)), "q" + table[q][a]);
+                }
+            }
+        }
+        return new FA(stateNames(states), Sigma, delta, "q0", accepting(states, seed));
+    }
+
+    private static int[][] randomTable(int states, int alphabet, long seed) {
+        Random random = new Random(seed);
+        int[][] table = new int[states][alphabet];
+        for (int q = 0; q < states; q++) {
+            for (int a = 0; a < alphabet; a++) {
+                table[q][a] = random.nextInt(states);
+            }
+        }
+        return table;
+    }
+
+    private static Set<String> stateNames(int states) {
+        Set<String> names = new HashSet<>();
+        for (int q = 0; q < states; q++) {
+            names.add("q" + q);
+        }
+        return names;
+    }
+
+    private static Set<String> accepting(int states, long seed) {
+        Random random = new Random(~seed);
+        Set<String> accepting = new HashSet<>();
+        for (int q = 0; q < states; q++) {
+            if (random.nextBoolean()) {
+                accepting.add("q" + q);
+            }
+        }
+        return accepting;
+    }
+
+    private static String symbol(int a) {
+        return String.valueOf((char) ('a' + a));
+    }
+
+    private static Set<String> terminals() {
+        return new LinkedHashSet<>(Arrays.asList("a", "b", "c", "d"));
+    }
+
+    // Nonterminals A0..A(n-1), each with a terminal-only rule (so all are productive), two rules
+    // mixing terminals with later or earlier nonterminals, and every fourth one nullable.
+    static Map<String, List<String>> randomProductions(int nonTerminals, long seed) {
+        Random random = new Random(seed);
+        String[] terminals = {"a", "b", "c", "d"};
+        Map<String, List<String>> productions = new LinkedHashMap<>();
+        for (int i = 0; i < nonTerminals; i++) {
+            List<String> rules = new ArrayList<>();
+            rules.add(terminals[random.nextInt(4)] + " " + terminals[random.nextInt(4)]);
+            for (int r = 0; r < 2; r++) {
+                rules.add(terminals[random.nextInt(4)] + " A" + random.nextInt(nonTerminals) + " A" + random.nextInt(nonTerminals));
+            }
+            if (i % 4 == 3) {
+                rules.add("A" + random.nextInt(nonTerminals));
+                rules.add("ε");
+            }
+            productions.put("A" + i, rules);
+        }
+        return productions;
+    }
+}
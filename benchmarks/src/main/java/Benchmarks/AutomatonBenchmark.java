@@ -0,0 +1,53 @@
+package Benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+// FiniteAutomaton.accepts against DFA.accepts on the same random complete DFA.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AutomatonBenchmark {
+    @Param({"16", "256"})
+    int states;
+
+    @Param({"2", "16"})
+    int alphabet;
+
+    @Param({"64", "4096"})
+    int inputLength;
+
+    private Predicate<String> finiteAutomaton;
+    private Predicate<String> dfa;
+    private String[] inputs;
+    private int next;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        Bridge bridge = Bridge.load();
+        finiteAutomaton = bridge.finiteAutomaton(states, alphabet, 1);
+        dfa = bridge.dfa(states, alphabet, 1);
+        inputs = Inputs.words(inputLength, alphabet, 2);
+    }
+
+    private String input() {
+        String input = inputs[next];
+        next = (next + 1) % Inputs.COUNT;
+        return input;
+    }
+
+    @Benchmark
+    public boolean finiteAutomatonAccepts() {
+        return finiteAutomaton.test(input());
+    }
+
+    @Benchmark
+    public boolean dfaAccepts() {
+        return dfa.test(input());
+    }
+}
@@ -0,0 +1,55 @@
+package Benchmarks;
+
+import java.util.BitSet;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+// The automata and grammar classes live in the default package, which code in a named package
+// cannot import, and JMH rejects benchmarks in the default package. BenchmarkBridge, in the
+// default package of this module, implements this interface and is loaded by name once per
+// trial; the benchmarks then only pay for an interface call.
+public interface Bridge {
+    // A random complete DFA over the first alphabet letters from 'a' on, the same automaton for
+    // the same arguments in every method.
+    Predicate<String> finiteAutomaton(int states, int alphabet, long seed);
+
+    Predicate<String> dfa(int states, int alphabet, long seed);
+
+    // The same DFA run by one of the matching engines: "compiled", "bitParallel", "lazy",
+    // "scanner" or "matcherOf" (whichever Matcher.of picks).
+    Predicate<String> engine(String engine, int states, int alphabet, long seed);
+
+    // (a|b)*a(a|b){k}, whose DFA has 2^(k+1) states, run by "bitParallel", "lazy" or
+    // "matcherOf".
+    Predicate<String> kthFromEnd(String engine, int k);
+
+    // Matches every '\n'-terminated line of corpus against "containsQz" (lines containing "qz",
+    // whose start state loops on all other bytes) or "random64" (a random complete 64-state DFA
+    // over the lowercase letters and ' ') with one of "compiled" (CompiledDFA.accepts per line),
+    // "scalar" or "vector" (DFAScanner.accepts per line, with or without VectorSkip) or "lanes"
+    // (DFAScanner.acceptLines), and returns the matching lines.
+    Supplier<BitSet> scanLines(String engine, String automaton, byte[] corpus, long seed);
+
+    // FA.toDFA on a random FA in which each (state, symbol) has a transition with probability 3/4.
+    Supplier<Object> toDFA(int states, int alphabet, long seed);
+
+    // FA.isDeterministic on the random complete DFA, which has to check every (state, symbol).
+    BooleanSupplier isDeterministic(int states, int alphabet, long seed);
+
+    // The check FA.isDeterministic replaced, on the same DFA: for every (state, symbol) a scan
+    // over all of delta, O(|Q|·|Σ|·|δ|).
+    BooleanSupplier linearScanIsDeterministic(int states, int alphabet, long seed);
+
+    // Grammar.generateValidStrings(count) on a random grammar with the given number of
+    // nonterminals; see BenchmarkBridge.randomProductions.
+    Supplier<Object> generateValidStrings(int nonTerminals, int count, long seed);
+
+    // Chomsky.cfgToCnf on the same kind of grammar. It converts in place, so each call also
+    // constructs the Chomsky instance.
+    Supplier<Object> cfgToCnf(int nonTerminals, long seed);
+
+    static Bridge load() throws ReflectiveOperationException {
+        return (Bridge) Class.forName("BenchmarkBridge").getDeclaredConstructor().newInstance();
+    }
+}
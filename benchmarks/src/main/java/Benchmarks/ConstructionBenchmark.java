@@ -0,0 +1,42 @@
+package Benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+// FA.toDFA on a random partial FA and FA.isDeterministic on a random complete one.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConstructionBenchmark {
+    @Param({"16", "128", "1024"})
+    int states;
+
+    @Param({"2", "16"})
+    int alphabet;
+
+    private Supplier<Object> toDFA;
+    private BooleanSupplier isDeterministic;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        Bridge bridge = Bridge.load();
+        toDFA = bridge.toDFA(states, alphabet, 1);
+        isDeterministic = bridge.isDeterministic(states, alphabet, 1);
+    }
+
+    @Benchmark
+    public Object faToDFA() {
+        return toDFA.get();
+    }
+
+    @Benchmark
+    public boolean faIsDeterministic() {
+        return isDeterministic.getAsBoolean();
+    }
+}
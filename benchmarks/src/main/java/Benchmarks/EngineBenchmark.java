@@ -0,0 +1,46 @@
+package Benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+// The Matcher engines on the same random complete DFA: CompiledDFA, BitParallelNFA, LazyDFA
+// (warm after the first invocations), DFAScanner, which uses the Vector API when the fork has its
+// module, and whichever of them Matcher.of picks.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class EngineBenchmark {
+    @Param({"compiled", "bitParallel", "lazy", "scanner", "matcherOf"})
+    String engine;
+
+    @Param({"16", "64"})
+    int states;
+
+    @Param({"2", "16"})
+    int alphabet;
+
+    @Param({"1024"})
+    int inputLength;
+
+    private Predicate<String> matcher;
+    private String[] inputs;
+    private int next;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        matcher = Bridge.load().engine(engine, states, alphabet, 1);
+        inputs = Inputs.words(inputLength, alphabet, 2);
+    }
+
+    @Benchmark
+    public boolean accepts() {
+        String input = inputs[next];
+        next = (next + 1) % Inputs.COUNT;
+        return matcher.test(input);
+    }
+}
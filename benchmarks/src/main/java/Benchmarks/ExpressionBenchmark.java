@@ -0,0 +1,46 @@
+package Benchmarks;
+
+import Lexer.Lexer;
+import Lexer.Token;
+import Parser.Ast;
+import Parser.Parser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Lexer.tokenize alone and followed by Parser.parse, on random valid expressions.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionBenchmark {
+    @Param({"64", "4096"})
+    int inputLength;
+
+    private String[] inputs;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        inputs = Inputs.expressions(inputLength, 1);
+    }
+
+    private String input() {
+        String input = inputs[next];
+        next = (next + 1) % Inputs.COUNT;
+        return input;
+    }
+
+    @Benchmark
+    public List<Token> lexerTokenize() throws Exception {
+        return new Lexer(input()).tokenize();
+    }
+
+    @Benchmark
+    public Ast lexerTokenizeParserParse() throws Exception {
+        return new Parser(new Lexer(input()).tokenize()).parse();
+    }
+}
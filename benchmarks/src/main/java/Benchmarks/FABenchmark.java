@@ -0,0 +1,43 @@
+package Benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+// FA.isDeterministic, which reads the (state, symbol) index, against the linear scan over delta
+// it replaced, on random complete DFAs over four symbols.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FABenchmark {
+    @Param({"50", "200", "800"})
+    int states;
+
+    @Param({"4"})
+    int alphabet;
+
+    private BooleanSupplier index;
+    private BooleanSupplier scan;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        Bridge bridge = Bridge.load();
+        index = bridge.isDeterministic(states, alphabet, 1);
+        scan = bridge.linearScanIsDeterministic(states, alphabet, 1);
+    }
+
+    @Benchmark
+    public void isDeterministicIndex(Blackhole blackhole) {
+        blackhole.consume(index.getAsBoolean());
+    }
+
+    @Benchmark
+    public void isDeterministicLinearScan(Blackhole blackhole) {
+        blackhole.consume(scan.getAsBoolean());
+    }
+}
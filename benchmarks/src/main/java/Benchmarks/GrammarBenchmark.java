@@ -0,0 +1,38 @@
+package Benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Grammar.generateValidStrings(100) and Chomsky.cfgToCnf on random grammars.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GrammarBenchmark {
+    @Param({"4", "16", "64"})
+    int nonTerminals;
+
+    private Supplier<Object> generate;
+    private Supplier<Object> cfgToCnf;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        Bridge bridge = Bridge.load();
+        generate = bridge.generateValidStrings(nonTerminals, 100, 1);
+        cfgToCnf = bridge.cfgToCnf(nonTerminals, 1);
+    }
+
+    @Benchmark
+    public Object generateValidStrings() {
+        return generate.get();
+    }
+
+    @Benchmark
+    public Object chomskyCfgToCnf() {
+        return cfgToCnf.get();
+    }
+}
@@ -0,0 +1,73 @@
+package Benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+// Synthetic inputs shared by the benchmarks. Every benchmark cycles through COUNT precomputed
+// inputs so that no single input is memorized by the branch predictors.
+final class Inputs {
+    static final int COUNT = 64;
+
+    private Inputs() {
+    }
+
+    // Words over the first alphabet letters from 'a' on.
+    static String[] words(int length, int alphabet, long seed) {
+        Random random = new Random(seed);
+        String[] words = new String[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            char[] chars = new char[length];
+            for (int j = 0; j < length; j++) {
+                chars[j] = (char) ('a' + random.nextInt(alphabet));
+            }
+            words[i] = new String(chars);
+        }
+        return words;
+    }
+
+    // lines '\n'-terminated lines of 40 to 119 lowercase letters, about one char in six being ' ',
+    // as ISO-8859-1 bytes.
+    static byte[] lines(int lines, long seed) {
+        Random random = new Random(seed);
+        StringBuilder corpus = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            for (int j = 40 + random.nextInt(80); j > 0; j--) {
+                corpus.append(random.nextInt(6) == 0 ? ' ' : (char) ('a' + random.nextInt(26)));
+            }
+            corpus.append('\n');
+        }
+        return corpus.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    // Valid expressions of about length chars over numbers, identifiers, the four operators and
+    // parentheses, nested at most eight deep.
+    static String[] expressions(int length, long seed) {
+        Random random = new Random(seed);
+        String[] expressions = new String[COUNT];
+        String[] operators = {" + ", " - ", " * ", " / "};
+        for (int i = 0; i < COUNT; i++) {
+            StringBuilder sb = new StringBuilder(length + 32);
+            int open = 0;
+            while (true) {
+                while (open < 8 && random.nextInt(4) == 0) {
+                    sb.append('(');
+                    open++;
+                }
+                sb.append(random.nextBoolean() ? String.valueOf(random.nextInt(1000)) : "x" + random.nextInt(10));
+                while (open > 0 && random.nextInt(3) == 0) {
+                    sb.append(')');
+                    open--;
+                }
+                if (sb.length() >= length) {
+                    break;
+                }
+                sb.append(operators[random.nextInt(4)]);
+            }
+            while (open-- > 0) {
+                sb.append(')');
+            }
+            expressions[i] = sb.toString();
+        }
+        return expressions;
+    }
+}
@@ -0,0 +1,44 @@
+package Benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+// The engines for nondeterministic automata on (a|b)*a(a|b){k}, whose DFA has 2^(k+1) states, so
+// CompiledDFA is out of reach past small k: BitParallelNFA, LazyDFA and Matcher.of. The score is
+// per input; EngineBenchmark covers the same engines on deterministic automata.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatcherBenchmark {
+    @Param({"bitParallel", "lazy", "matcherOf"})
+    String engine;
+
+    @Param({"4", "12", "40", "100"})
+    int k;
+
+    @Param({"1000"})
+    int inputLength;
+
+    private Predicate<String> matcher;
+    private String[] inputs;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        matcher = Bridge.load().kthFromEnd(engine, k);
+        inputs = Inputs.words(inputLength, 2, 2);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Inputs.COUNT)
+    public void accepts(Blackhole blackhole) {
+        for (String input : inputs) {
+            blackhole.consume(matcher.test(input));
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package Benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Line matching over a corpus of random lowercase lines: CompiledDFA.accepts per line against
+// DFAScanner per line with the scalar and the Vector API exit-byte search, and against
+// DFAScanner.acceptLines. "containsQz" skips most bytes, "random64" has no self-loops to skip.
+// The fork adds jdk.incubator.vector so that "vector" can run.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class ScannerBenchmark {
+    @Param({"compiled", "scalar", "vector", "lanes"})
+    String engine;
+
+    @Param({"containsQz", "random64"})
+    String automaton;
+
+    @Param({"4096"})
+    int lines;
+
+    private Supplier<BitSet> scan;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        scan = Bridge.load().scanLines(engine, automaton, Inputs.lines(lines, 2), 1);
+    }
+
+    @Benchmark
+    public void scanLines(Blackhole blackhole) {
+        blackhole.consume(scan.get());
+    }
+}
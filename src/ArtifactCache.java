@@ -0,0 +1,639 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+// Derived artifacts (CNF grammars, regular grammars, DFAs, minimized DFAs) cached under the
+// canonical hash of the input they were derived from. The cache holds at most maxBytes of
+// estimated size and evicts by W-TinyLFU: new entries enter a small LRU window, and an entry
+// leaving the window only displaces the least recently used entry of the main segment when a
+// count-min sketch of recent requests says it is asked for more often. The main segment is split
+// into probation and protected parts, and a hit in probation promotes the entry, so one scan over
+// many keys cannot flush the entries in steady use. Concurrent requests for the same missing key
+// share one build: the first caller runs it and the others wait for its result. With a spill
+// directory, evicted entries are written there and read back on a later miss instead of being
+// rebuilt; the directory is not bounded. A spill file starts with a header naming the format
+// version, codec and key and ends with a checksum, and a file that fails any check or does not
+// decode is deleted and the value rebuilt. Cached values are shared between callers and must not
+// be modified.
+public final class ArtifactCache {
+    public static final int SPILL_MAGIC = 'F' | 'L' << 8 | 'A' << 16 | 'C' << 24;
+    public static final int SPILL_VERSION = 1;
+    // Share of maxBytes for the window, and of the main segment for its protected part.
+    private static final double WINDOW_SHARE = 0.01;
+    private static final double PROTECTED_SHARE = 0.8;
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    // Size estimate and binary form of one kind of artifact. The id is written into spill files, so
+    // a file is only decoded by the codec that wrote it; change it when the binary form changes.
+    public interface Codec<V> {
+        String id();
+
+        long weigh(V value);
+
+        void write(V value, DataOutput out) throws IOException;
+
+        V read(DataInput in) throws IOException;
+    }
+
+    private static final class Entry {
+        final Object value;
+        final Codec<?> codec;
+        final long bytes;
+        int segment;
+
+        Entry(Object value, Codec<?> codec, long bytes) {
+            this.value = value;
+            this.codec = codec;
+            this.bytes = bytes;
+        }
+    }
+
+    // Count-min sketch of request frequencies: four rows of counters saturating at 15, all halved
+    // once the additions reach ten times the row width, so old popularity fades.
+    private static final class FrequencySketch {
+        private static final int[] SEEDS = {0x97CB3127, 0xB7E15162, 0x3C6EF372, 0xA54FF53A};
+        private final byte[] counters;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int width) {
+            this.counters = new byte[SEEDS.length * width];
+            this.mask = width - 1;
+            this.sampleSize = 10 * width;
+        }
+
+        void increment(String key) {
+            int hash = key.hashCode();
+            boolean added = false;
+            for (int row = 0; row < SEEDS.length; row++) {
+                int i = index(hash, row);
+                if (counters[i] < 15) {
+                    counters[i]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions == sampleSize) {
+                for (int i = 0; i < counters.length; i++) {
+                    counters[i] >>= 1;
+                }
+                additions /= 2;
+            }
+        }
+
+        int frequency(String key) {
+            int hash = key.hashCode();
+            int frequency = 15;
+            for (int row = 0; row < SEEDS.length; row++) {
+                frequency = Math.min(frequency, counters[index(hash, row)]);
+            }
+            return frequency;
+        }
+
+        private int index(int hash, int row) {
+            int h = (hash ^ SEEDS[row]) * 0x9E3779B9;
+            return row * (mask + 1) + ((h ^ h >>> 16) & mask);
+        }
+    }
+
+    private final long maxBytes;
+    private final long windowMaxBytes;
+    private final long protectedMaxBytes;
+    private final Path spillDirectory;
+    private final Map<String, Entry> entries = new HashMap<>();
+    // The window, probation and protected segments, each in access order, so iteration starts at
+    // its least recently used entry.
+    private final List<LinkedHashMap<String, Entry>> segments = List.of(
+            new LinkedHashMap<>(16, 0.75f, true), new LinkedHashMap<>(16, 0.75f, true), new LinkedHashMap<>(16, 0.75f, true));
+    private final long[] segmentBytes = new long[3];
+    private final FrequencySketch sketch;
+    private final Map<String, FutureTask<Object>> building = new HashMap<>();
+    private long bytes;
+
+    private long hits;
+    private long misses;
+    private long shared;
+    private long diskHits;
+    private long evictions;
+    private long spills;
+    private long spillFailures;
+    private long corruptSpills;
+
+    public ArtifactCache(long maxBytes) {
+        this(maxBytes, null);
+    }
+
+    public ArtifactCache(long maxBytes, Path spillDirectory) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive, got " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+        this.windowMaxBytes = Math.max(1, (long) (maxBytes * WINDOW_SHARE));
+        this.protectedMaxBytes = (long) ((maxBytes - windowMaxBytes) * PROTECTED_SHARE);
+        this.spillDirectory = spillDirectory;
+        // About one counter per 256 bytes of capacity.
+        this.sketch = new FrequencySketch((int) Math.min(1 << 16, Math.max(64, Long.highestOneBit(maxBytes / 256))));
+    }
+
+    // The CNF of the grammar; the argument is left unchanged, unlike with Chomsky.cfgToCnf.
+    public Grammar cnf(Chomsky grammar) {
+        return get("cnf-" + grammar.canonicalHash(), GRAMMAR_CODEC, () -> new Chomsky(grammar.getStartSymbol(),
+                new ArrayList<>(grammar.getNonTerminal()), terminals(grammar.getSymbols()), grammar.getProductions()).cfgToCnf().toGrammar());
+    }
+
+    public Grammar cnf(Grammar grammar) {
+        return get("cnf-" + grammar.canonicalHash(), GRAMMAR_CODEC, () -> new Chomsky(grammar.getStartSymbol(),
+                new ArrayList<>(grammar.getVN()), new ArrayList<>(grammar.getVT()), grammar.getProductions()).cfgToCnf().toGrammar());
+    }
+
+    public Grammar regularGrammar(FA fa) {
+        return get("regular-" + fa.canonicalHash(), GRAMMAR_CODEC, fa::toRegularGrammar);
+    }
+
+    public DFA dfa(FA fa) {
+        return get("dfa-" + fa.canonicalHash(), DFA_CODEC, fa::toDFA);
+    }
+
+    public DFA minimizedDfa(FA fa) {
+        return get("minimized-" + fa.canonicalHash(), DFA_CODEC, () -> dfa(fa).minimize());
+    }
+
+    private static List<String> terminals(SymbolTable symbols) {
+        List<String> terminals = new ArrayList<>();
+        for (int t = 0; t < symbols.terminalCount(); t++) {
+            terminals.add(symbols.name(~t));
+        }
+        return terminals;
+    }
+
+    // The value cached under key, or the result of build, which is then cached. Exceptions from
+    // build reach every caller waiting on it and nothing is cached.
+    @SuppressWarnings("unchecked")
+    public <V> V get(String key, Codec<V> codec, Supplier<V> build) {
+        FutureTask<Object> task;
+        boolean owner = false;
+        synchronized (this) {
+            sketch.increment(key);
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits++;
+                touch(key, entry);
+                return (V) entry.value;
+            }
+            task = building.get(key);
+            if (task == null) {
+                misses++;
+                task = new FutureTask<>(() -> load(key, codec, build));
+                building.put(key, task);
+                owner = true;
+            } else {
+                shared++;
+            }
+        }
+        if (!owner) {
+            return (V) await(task);
+        }
+
+        task.run();
+        V value;
+        try {
+            value = (V) await(task);
+        } catch (RuntimeException | Error e) {
+            synchronized (this) {
+                building.remove(key);
+            }
+            throw e;
+        }
+        long size = codec.weigh(value);
+        List<Map.Entry<String, Entry>> evicted = new ArrayList<>();
+        synchronized (this) {
+            building.remove(key);
+            put(key, new Entry(value, codec, size), evicted);
+        }
+        spill(evicted);
+        return value;
+    }
+
+    private <V> V load(String key, Codec<V> codec, Supplier<V> build) {
+        if (spillDirectory != null) {
+            Path file = spillDirectory.resolve(key);
+            if (Files.exists(file)) {
+                try {
+                    V value = readSpill(Files.readAllBytes(file), key, codec);
+                    synchronized (this) {
+                        diskHits++;
+                    }
+                    return value;
+                } catch (Exception e) {
+                    // Whatever is wrong with the file, a rebuilt value is written on its next eviction.
+                    synchronized (this) {
+                        corruptSpills++;
+                    }
+                    try {
+                        Files.deleteIfExists(file);
+                    } catch (IOException ignored) {
+                        // Overwritten on the next spill instead.
+                    }
+                }
+            }
+        }
+        return build.get();
+    }
+
+    // Layout: magic, version, codec id, key, payload length, CRC32 of the payload, payload.
+    static <V> byte[] writeSpill(V value, String key, Codec<V> codec) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(payload)) {
+            codec.write(value, out);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload.toByteArray());
+        ByteArrayOutputStream file = new ByteArrayOutputStream(payload.size() + 64);
+        try (DataOutputStream out = new DataOutputStream(file)) {
+            out.writeInt(SPILL_MAGIC);
+            out.writeInt(SPILL_VERSION);
+            out.writeUTF(codec.id());
+            out.writeUTF(key);
+            out.writeInt(payload.size());
+            out.writeLong(crc.getValue());
+            payload.writeTo(out);
+        }
+        return file.toByteArray();
+    }
+
+    static <V> V readSpill(byte[] file, String key, Codec<V> codec) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(file));
+        if (file.length < 8 || in.readInt() != SPILL_MAGIC) {
+            throw new IOException("Not a spill file: " + key);
+        }
+        int version = in.readInt();
+        if (version != SPILL_VERSION) {
+            throw new IOException("Unsupported spill file version " + version + " for " + key);
+        }
+        String id = in.readUTF();
+        if (!id.equals(codec.id())) {
+            throw new IOException("Spill file for " + key + " was written by codec " + id + ", not " + codec.id());
+        }
+        String stored = in.readUTF();
+        if (!stored.equals(key)) {
+            throw new IOException("Spill file for " + key + " holds " + stored);
+        }
+        int length = in.readInt();
+        long checksum = in.readLong();
+        if (length != in.available()) {
+            throw new IOException("Spill file for " + key + " has " + in.available() + " payload bytes, header says " + length);
+        }
+        int offset = file.length - length;
+        CRC32 crc = new CRC32();
+        crc.update(file, offset, length);
+        if (crc.getValue() != checksum) {
+            throw new IOException("Checksum mismatch in spill file for " + key);
+        }
+        V value = codec.read(in);
+        if (in.available() != 0) {
+            throw new IOException("Spill file for " + key + " has " + in.available() + " bytes past the value");
+        }
+        return value;
+    }
+
+    private static Object await(FutureTask<Object> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a cached build", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    // A hit moves the entry to the front of its segment, and out of probation into protected,
+    // which in turn demotes its least recently used entries to probation when over its share.
+    private void touch(String key, Entry entry) {
+        if (entry.segment != PROBATION) {
+            segments.get(entry.segment).get(key);
+            return;
+        }
+        move(key, entry, PROTECTED);
+        LinkedHashMap<String, Entry> protectedSegment = segments.get(PROTECTED);
+        while (segmentBytes[PROTECTED] > protectedMaxBytes && protectedSegment.size() > 1) {
+            Map.Entry<String, Entry> eldest = protectedSegment.entrySet().iterator().next();
+            move(eldest.getKey(), eldest.getValue(), PROBATION);
+        }
+    }
+
+    private void move(String key, Entry entry, int segment) {
+        segments.get(entry.segment).remove(key);
+        segmentBytes[entry.segment] -= entry.bytes;
+        entry.segment = segment;
+        segments.get(segment).put(key, entry);
+        segmentBytes[segment] += entry.bytes;
+    }
+
+    // Values larger than the whole cache are returned but not kept. A new entry goes to the
+    // window; entries pushed out of the window are admitted to probation while the main segment has
+    // room, and otherwise only by beating each main victim they would displace on frequency.
+    private void put(String key, Entry entry, List<Map.Entry<String, Entry>> evicted) {
+        if (entry.bytes > maxBytes) {
+            return;
+        }
+        entry.segment = WINDOW;
+        entries.put(key, entry);
+        segments.get(WINDOW).put(key, entry);
+        segmentBytes[WINDOW] += entry.bytes;
+        bytes += entry.bytes;
+        long mainMaxBytes = maxBytes - windowMaxBytes;
+        LinkedHashMap<String, Entry> window = segments.get(WINDOW);
+        while (segmentBytes[WINDOW] > windowMaxBytes) {
+            Map.Entry<String, Entry> candidate = window.entrySet().iterator().next();
+            move(candidate.getKey(), candidate.getValue(), PROBATION);
+            int frequency = sketch.frequency(candidate.getKey());
+            while (segmentBytes[PROBATION] + segmentBytes[PROTECTED] > mainMaxBytes) {
+                Map.Entry<String, Entry> victim = mainVictim(candidate.getKey());
+                if (victim == null || frequency <= sketch.frequency(victim.getKey())) {
+                    victim = candidate;
+                }
+                evict(victim, evicted);
+                if (victim == candidate) {
+                    break;
+                }
+            }
+        }
+    }
+
+    // The least recently used main entry other than the candidate: probation first, then protected.
+    private Map.Entry<String, Entry> mainVictim(String candidate) {
+        for (int segment : new int[]{PROBATION, PROTECTED}) {
+            for (Map.Entry<String, Entry> e : segments.get(segment).entrySet()) {
+                if (!e.getKey().equals(candidate)) {
+                    return e;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void evict(Map.Entry<String, Entry> victim, List<Map.Entry<String, Entry>> evicted) {
+        Entry entry = victim.getValue();
+        segments.get(entry.segment).remove(victim.getKey());
+        segmentBytes[entry.segment] -= entry.bytes;
+        entries.remove(victim.getKey());
+        bytes -= entry.bytes;
+        evictions++;
+        evicted.add(Map.entry(victim.getKey(), entry));
+    }
+
+    // Writes evicted entries outside the lock, through a temporary file so that a concurrent load
+    // never reads a partial one.
+    @SuppressWarnings("unchecked")
+    private void spill(List<Map.Entry<String, Entry>> evicted) {
+        if (spillDirectory == null) {
+            return;
+        }
+        for (Map.Entry<String, Entry> entry : evicted) {
+            Path file = spillDirectory.resolve(entry.getKey());
+            try {
+                Files.createDirectories(spillDirectory);
+                byte[] data = writeSpill(entry.getValue().value, entry.getKey(), (Codec<Object>) entry.getValue().codec);
+                Path temp = Files.createTempFile(spillDirectory, entry.getKey(), ".tmp");
+                try {
+                    Files.write(temp, data);
+                    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+                synchronized (this) {
+                    spills++;
+                }
+            } catch (IOException e) {
+                synchronized (this) {
+                    spillFailures++;
+                }
+            }
+        }
+    }
+
+    public static final Codec<Grammar> GRAMMAR_CODEC = new Codec<Grammar>() {
+        @Override
+        public String id() {
+            return "grammar-1";
+        }
+
+        // Names and rule arrays plus a fixed overhead per object.
+        @Override
+        public long weigh(Grammar grammar) {
+            SymbolTable symbols = grammar.getSymbols();
+            long size = 64;
+            for (int a = 0; a < symbols.nonTerminalCount(); a++) {
+                size += 48 + 2L * symbols.name(a).length();
+            }
+            for (int t = 0; t < symbols.terminalCount(); t++) {
+                size += 48 + 2L * symbols.name(~t).length();
+            }
+            for (int[][] alternatives : grammar.getRules()) {
+                size += 16 + 8L * alternatives.length;
+                for (int[] rhs : alternatives) {
+                    size += 16 + 4L * rhs.length;
+                    // The String view of the rule.
+                    size += 48 + 8L * rhs.length;
+                }
+            }
+            return size;
+        }
+
+        @Override
+        public void write(Grammar grammar, DataOutput out) throws IOException {
+            SymbolTable symbols = grammar.getSymbols();
+            out.writeInt(symbols.nonTerminalCount());
+            for (int a = 0; a < symbols.nonTerminalCount(); a++) {
+                out.writeUTF(symbols.name(a));
+            }
+            out.writeInt(symbols.terminalCount());
+            for (int t = 0; t < symbols.terminalCount(); t++) {
+                out.writeUTF(symbols.name(~t));
+            }
+            out.writeInt(symbols.lookup(grammar.getStartSymbol()));
+            int[][][] rules = grammar.getRules();
+            out.writeInt(rules.length);
+            for (int[][] alternatives : rules) {
+                out.writeInt(alternatives.length);
+                for (int[] rhs : alternatives) {
+                    out.writeInt(rhs.length);
+                    for (int symbol : rhs) {
+                        out.writeInt(symbol);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public Grammar read(DataInput in) throws IOException {
+            SymbolTable symbols = new SymbolTable();
+            for (int a = 0, n = in.readInt(); a < n; a++) {
+                symbols.nonTerminal(in.readUTF());
+            }
+            for (int t = 0, n = in.readInt(); t < n; t++) {
+                symbols.terminal(in.readUTF());
+            }
+            int start = in.readInt();
+            int[][][] rules = new int[in.readInt()][][];
+            for (int a = 0; a < rules.length; a++) {
+                rules[a] = new int[in.readInt()][];
+                for (int i = 0; i < rules[a].length; i++) {
+                    rules[a][i] = new int[in.readInt()];
+                    for (int j = 0; j < rules[a][i].length; j++) {
+                        rules[a][i][j] = in.readInt();
+                    }
+                }
+            }
+            return new Grammar(symbols, rules, start);
+        }
+    };
+
+    public static final Codec<DFA> DFA_CODEC = new Codec<DFA>() {
+        @Override
+        public String id() {
+            return "dfa-1";
+        }
+
+        // The compiled table and names, plus the Map-based view DFA keeps beside them.
+        @Override
+        public long weigh(DFA dfa) {
+            CompiledDFA compiled = dfa.compile();
+            long n = compiled.stateCount();
+            long k = compiled.symbols().length;
+            return 64 + 4 * n * compiled.classCount() + n * 100 + n * k * 120;
+        }
+
+        @Override
+        public void write(DFA dfa, DataOutput out) throws IOException {
+            CompiledDFA compiled = dfa.compile();
+            String[] symbols = compiled.symbols();
+            int n = compiled.stateCount();
+            out.writeInt(n);
+            for (int s = 0; s < n; s++) {
+                out.writeUTF(compiled.stateName(s));
+                out.writeBoolean(compiled.isAccepting(s));
+            }
+            out.writeInt(symbols.length);
+            for (String symbol : symbols) {
+                out.writeUTF(symbol);
+            }
+            out.writeInt(compiled.startState());
+            for (int s = 0; s < n; s++) {
+                for (int a = 0; a < symbols.length; a++) {
+                    out.writeInt(compiled.next(s, compiled.symbolClass(a)));
+                }
+            }
+        }
+
+        @Override
+        public DFA read(DataInput in) throws IOException {
+            String[] names = new String[in.readInt()];
+            boolean[] accepting = new boolean[names.length];
+            for (int s = 0; s < names.length; s++) {
+                names[s] = in.readUTF();
+                accepting[s] = in.readBoolean();
+            }
+            String[] symbols = new String[in.readInt()];
+            for (int a = 0; a < symbols.length; a++) {
+                symbols[a] = in.readUTF();
+            }
+            int start = in.readInt();
+            int[] table = new int[names.length * symbols.length];
+            for (int i = 0; i < table.length; i++) {
+                table[i] = in.readInt();
+            }
+            return new DFA(CompiledDFA.fromTable(names, symbols, start, table, accepting));
+        }
+    };
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    // Requests that found their key being built and waited for it instead of building again.
+    public synchronized long shared() {
+        return shared;
+    }
+
+    // Misses answered from the spill directory.
+    public synchronized long diskHits() {
+        return diskHits;
+    }
+
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    public synchronized long spills() {
+        return spills;
+    }
+
+    public synchronized long spillFailures() {
+        return spillFailures;
+    }
+
+    // Spill files that failed a check or did not decode, and were deleted.
+    public synchronized long corruptSpills() {
+        return corruptSpills;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        for (LinkedHashMap<String, Entry> segment : segments) {
+            segment.clear();
+        }
+        Arrays.fill(segmentBytes, 0);
+        bytes = 0;
+    }
+
+    public synchronized void resetCounters() {
+        hits = 0;
+        misses = 0;
+        shared = 0;
+        diskHits = 0;
+        evictions = 0;
+        spills = 0;
+        spillFailures = 0;
+        corruptSpills = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("ArtifactCache[%d entries, %d/%d bytes, %d hits, %d misses, %d shared, %d disk hits, %d evictions, %d spills, %d corrupt spills]",
+                entries.size(), bytes, maxBytes, hits, misses, shared, diskHits, evictions, spills, corruptSpills);
+    }
+}
@@ -0,0 +1,215 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ArtifactCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // Strings weighing one byte per char.
+    static final ArtifactCache.Codec<String> STRINGS = new ArtifactCache.Codec<String>() {
+        @Override
+        public String id() {
+            return "string";
+        }
+
+        @Override
+        public long weigh(String value) {
+            return value.length();
+        }
+
+        @Override
+        public void write(String value, DataOutput out) throws IOException {
+            out.writeUTF(value);
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException {
+            return in.readUTF();
+        }
+    };
+
+    private static String value(String key) {
+        return key + "#".repeat(Math.max(0, 10 - key.length()));
+    }
+
+    @Test
+    public void testConcurrentMissesShareOneBuild() throws Exception {
+        ArtifactCache cache = new ArtifactCache(1000);
+        AtomicInteger builds = new AtomicInteger();
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<String>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                return cache.get("key", STRINGS, () -> {
+                    builds.incrementAndGet();
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return new String("built");
+                });
+            }));
+        }
+        start.countDown();
+        String first = results.get(0).get();
+        for (Future<String> result : results) {
+            assertSame(first, result.get());
+        }
+        pool.shutdown();
+        assertEquals(1, builds.get());
+        assertEquals(1, cache.misses());
+        assertEquals(threads - 1, cache.shared() + cache.hits());
+    }
+
+    @Test
+    public void testFailedBuildIsNotCached() {
+        ArtifactCache cache = new ArtifactCache(1000);
+        try {
+            cache.get("key", STRINGS, () -> {
+                throw new IllegalStateException("boom");
+            });
+            fail();
+        } catch (IllegalStateException expected) {
+            assertEquals("boom", expected.getMessage());
+        }
+        assertEquals("value", cache.get("key", STRINGS, () -> "value"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testEvictionStaysWithinBudget() {
+        ArtifactCache cache = new ArtifactCache(200);
+        Random random = new Random(1);
+        for (int i = 0; i < 5000; i++) {
+            String key = "k" + random.nextInt(100);
+            assertEquals(value(key), cache.get(key, STRINGS, () -> value(key)));
+            assertTrue(cache.bytes() <= cache.maxBytes());
+        }
+        assertTrue(cache.evictions() > 0);
+        assertTrue(cache.size() <= 20);
+        // Larger than the whole cache: returned, not kept.
+        String huge = "x".repeat(500);
+        long bytes = cache.bytes();
+        assertEquals(huge, cache.get("huge", STRINGS, () -> huge));
+        assertEquals(bytes, cache.bytes());
+    }
+
+    @Test
+    public void testFrequentEntriesSurviveAScan() {
+        // Room for 20 values of 10 bytes.
+        ArtifactCache cache = new ArtifactCache(200);
+        List<String> hot = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            hot.add("hot" + i);
+        }
+        for (int round = 0; round < 5; round++) {
+            for (String key : hot) {
+                cache.get(key, STRINGS, () -> value(key));
+            }
+        }
+        // Plain LRU would keep only the last 20 of these.
+        for (int i = 0; i < 1000; i++) {
+            String key = "cold" + i;
+            cache.get(key, STRINGS, () -> value(key));
+        }
+        cache.resetCounters();
+        for (String key : hot) {
+            cache.get(key, STRINGS, () -> value(key));
+        }
+        assertEquals(hot.size(), cache.hits());
+        assertEquals(0, cache.misses());
+    }
+
+    @Test
+    public void testSpillRoundTrip() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        ArtifactCache cache = new ArtifactCache(50, directory);
+        for (int i = 0; i < 20; i++) {
+            String key = "k" + i;
+            cache.get(key, STRINGS, () -> value(key));
+        }
+        assertTrue(cache.spills() > 0);
+        assertEquals(0, cache.spillFailures());
+        // clear drops the entries still held without writing them.
+        List<String> spilled = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            if (Files.exists(directory.resolve("k" + i))) {
+                spilled.add("k" + i);
+            }
+        }
+        assertEquals(cache.spills(), spilled.size());
+        cache.clear();
+        cache.resetCounters();
+        for (String key : spilled) {
+            assertEquals(value(key), cache.get(key, STRINGS, () -> {
+                throw new AssertionError("rebuilt " + key);
+            }));
+        }
+        assertEquals(spilled.size(), cache.diskHits());
+
+        // The real codecs, through the same file format.
+        FA fa = DeterminizerTest.mainFa();
+        DFA dfa = fa.toDFA();
+        DFA read = ArtifactCache.readSpill(ArtifactCache.writeSpill(dfa, "dfa", ArtifactCache.DFA_CODEC), "dfa", ArtifactCache.DFA_CODEC);
+        for (String word : DeterminizerTest.words(new Random(2), 300)) {
+            assertEquals(word, dfa.accepts(word), read.accepts(word));
+        }
+        Grammar grammar = fa.toRegularGrammar();
+        Grammar readGrammar = ArtifactCache.readSpill(ArtifactCache.writeSpill(grammar, "g", ArtifactCache.GRAMMAR_CODEC),
+                "g", ArtifactCache.GRAMMAR_CODEC);
+        assertEquals(grammar.canonicalHash(), readGrammar.canonicalHash());
+    }
+
+    @Test
+    public void testCorruptSpillIsDeletedAndRebuilt() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        byte[] good = ArtifactCache.writeSpill(value("key"), "key", STRINGS);
+        List<byte[]> corrupt = new ArrayList<>();
+        // Bad magic, bad version, a flipped payload byte, a truncated file, trailing bytes.
+        for (int at : new int[]{0, 7, good.length - 1}) {
+            byte[] file = good.clone();
+            file[at] ^= 1;
+            corrupt.add(file);
+        }
+        corrupt.add(Arrays.copyOf(good, good.length - 3));
+        corrupt.add(Arrays.copyOf(good, good.length + 2));
+        corrupt.add(new byte[0]);
+        // Written for another key or by another codec.
+        corrupt.add(ArtifactCache.writeSpill(value("key"), "other", STRINGS));
+        corrupt.add(ArtifactCache.writeSpill(DeterminizerTest.mainFa().toDFA(), "key", ArtifactCache.DFA_CODEC));
+
+        for (byte[] file : corrupt) {
+            Files.write(directory.resolve("key"), file);
+            ArtifactCache cache = new ArtifactCache(1000, directory);
+            assertEquals("rebuilt", cache.get("key", STRINGS, () -> "rebuilt"));
+            assertEquals(1, cache.corruptSpills());
+            assertEquals(0, cache.diskHits());
+            assertFalse(Files.exists(directory.resolve("key")));
+        }
+
+        Files.write(directory.resolve("key"), good);
+        ArtifactCache cache = new ArtifactCache(1000, directory);
+        assertEquals(value("key"), cache.get("key", STRINGS, () -> "rebuilt"));
+        assertEquals(1, cache.diskHits());
+    }
+}
@@ -0,0 +1,232 @@
+import Lexer.AsciiCharSequence;
+import Lexer.Diagnostic;
+import Parser.Parser;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+// Validates a file of newline-separated expressions. The file is cut into chunks that end on a
+// line boundary, each chunk is memory-mapped on its own (so files over 2 GB work), and chunks
+// are lexed and parsed in parallel straight from the mapping without building a String per line.
+// Lines are parsed in recovering mode, so every error of a line is reported without exceptions.
+public class BatchValidator {
+    public static final int DEFAULT_CHUNK_SIZE = 16 << 20;
+
+    private final int chunkSize;
+
+    public BatchValidator() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    public BatchValidator(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    public static class Failure {
+        private final long line;
+        private final long column;
+        private final String message;
+
+        Failure(long line, long column, String message) {
+            this.line = line;
+            this.column = column;
+            this.message = message;
+        }
+
+        // 1-based
+        public long getLine() {
+            return line;
+        }
+
+        // 1-based
+        public long getColumn() {
+            return column;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "line " + line + ", column " + column + ": " + message;
+        }
+    }
+
+    public static class Report {
+        private final long lines;
+        private final long bytes;
+        private final long nanos;
+        private final long invalidLines;
+        private final List<Failure> failures;
+
+        Report(long lines, long bytes, long nanos, long invalidLines, List<Failure> failures) {
+            this.lines = lines;
+            this.bytes = bytes;
+            this.nanos = nanos;
+            this.invalidLines = invalidLines;
+            this.failures = failures;
+        }
+
+        public long getLines() {
+            return lines;
+        }
+
+        public long getValidLines() {
+            return lines - invalidLines;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public double getSeconds() {
+            return nanos / 1e9;
+        }
+
+        // Every error, in file order.
+        public List<Failure> getFailures() {
+            return failures;
+        }
+
+        public double linesPerSecond() {
+            return lines / Math.max(getSeconds(), 1e-9);
+        }
+
+        public double megabytesPerSecond() {
+            return bytes / 1e6 / Math.max(getSeconds(), 1e-9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d lines, %d valid, %d invalid in %.3f s (%.0f lines/s, %.1f MB/s)",
+                    lines, getValidLines(), invalidLines, getSeconds(), linesPerSecond(), megabytesPerSecond());
+        }
+    }
+
+    private static class ChunkResult {
+        long lines;
+        long invalidLines;
+        final List<Long> failedLines = new ArrayList<>();
+        final List<Diagnostic> diagnostics = new ArrayList<>();
+    }
+
+    public Report validate(Path file) throws IOException {
+        long begin = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<long[]> chunks = split(channel, size);
+            ChunkResult[] results = chunks.parallelStream()
+                    .map(chunk -> {
+                        try {
+                            return validate(channel, chunk[0], chunk[1]);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    })
+                    .toArray(ChunkResult[]::new);
+
+            long lines = 0;
+            long invalidLines = 0;
+            List<Failure> failures = new ArrayList<>();
+            for (ChunkResult result : results) {
+                for (int i = 0; i < result.failedLines.size(); i++) {
+                    Diagnostic diagnostic = result.diagnostics.get(i);
+                    failures.add(new Failure(lines + result.failedLines.get(i) + 1, diagnostic.getOffset() + 1, diagnostic.getMessage()));
+                }
+                lines += result.lines;
+                invalidLines += result.invalidLines;
+            }
+            return new Report(lines, size, System.nanoTime() - begin, invalidLines, failures);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // [start, end) ranges of about chunkSize bytes, each extended to just past the next '\n'.
+    private List<long[]> split(FileChannel channel, long size) throws IOException {
+        List<long[]> chunks = new ArrayList<>();
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(size, start + chunkSize);
+            search:
+            while (end < size) {
+                probe.clear();
+                int n = channel.read(probe, end);
+                if (n <= 0) {
+                    end = size;
+                    break;
+                }
+                for (int i = 0; i < n; i++) {
+                    if (probe.get(i) == '\n') {
+                        end += i + 1;
+                        break search;
+                    }
+                }
+                end += n;
+            }
+            chunks.add(new long[]{start, Math.min(end, size)});
+            start = Math.min(end, size);
+        }
+        return chunks;
+    }
+
+    private ChunkResult validate(FileChannel channel, long start, long end) throws IOException {
+        if (end - start > Integer.MAX_VALUE) {
+            throw new IOException("Line at byte " + start + " does not fit in one mapping");
+        }
+        ChunkResult result = new ChunkResult();
+        int length = (int) (end - start);
+        MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        List<Diagnostic> diagnostics = new ArrayList<>();
+        int lineStart = 0;
+        for (int i = 0; i <= length; i++) {
+            if (i < length && bytes.get(i) != '\n') {
+                continue;
+            }
+            if (i == length && lineStart == length) {
+                break;
+            }
+            int lineEnd = i > lineStart && bytes.get(i - 1) == '\r' ? i - 1 : i;
+            diagnostics.clear();
+            try {
+                Parser.parse(new AsciiCharSequence(bytes, lineStart, lineEnd - lineStart), diagnostics);
+            } catch (Exception e) {
+                diagnostics.add(new Diagnostic(0, 0, e.getMessage()));
+            }
+            if (!diagnostics.isEmpty()) {
+                result.invalidLines++;
+                for (Diagnostic diagnostic : diagnostics) {
+                    result.failedLines.add(result.lines);
+                    result.diagnostics.add(diagnostic);
+                }
+            }
+            result.lines++;
+            lineStart = i + 1;
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.out.println("Usage: BatchValidator <file>");
+            return;
+        }
+        Report report = new BatchValidator().validate(Paths.get(args[0]));
+        for (Failure failure : report.getFailures()) {
+            System.out.println(failure);
+        }
+        System.out.println(report);
+    }
+}
@@ -0,0 +1,93 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class BatchValidatorTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // CRLF and LF endings mixed, and no newline after the last line.
+    private static final String TEXT = "1 + 2\r\n"
+            + "x * (y - 3)\r\n"
+            + "10 / 5 # 2\r\n"
+            + "(1 + 2) * 3 - 4 / 5 + 6 * 7 - alpha * beta\r\n"
+            + "1 + + 2\r\n"
+            + "abc\n"
+            + "1 +\r\n"
+            + "(1";
+
+    private static final List<String> FAILURES = List.of(
+            "line 3, column 8: Unexpected character: #",
+            "line 5, column 5: Unexpected token: +",
+            // The '\r' is not part of the line, so the missing operand is right after the '+'.
+            "line 7, column 4: Unexpected token: ",
+            "line 8, column 3: Missing closing parenthesis.");
+
+    private Path write(String text) throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, text.getBytes(StandardCharsets.US_ASCII));
+        return file;
+    }
+
+    private static List<String> failures(BatchValidator.Report report) {
+        List<String> failures = new ArrayList<>();
+        for (BatchValidator.Failure failure : report.getFailures()) {
+            failures.add(failure.toString());
+        }
+        return failures;
+    }
+
+    // Every chunk size from one byte per chunk up to past the longest line, so that chunk
+    // boundaries fall inside every line, including the long one and the unterminated last one.
+    @Test
+    public void testChunkBoundaries() throws IOException {
+        Path file = write(TEXT);
+        for (int chunkSize = 1; chunkSize <= 60; chunkSize++) {
+            BatchValidator.Report report = new BatchValidator(chunkSize).validate(file);
+            assertEquals("chunk size " + chunkSize, FAILURES, failures(report));
+            assertEquals(8, report.getLines());
+            assertEquals(4, report.getValidLines());
+            assertEquals(TEXT.length(), report.getBytes());
+        }
+        BatchValidator.Report report = new BatchValidator().validate(file);
+        assertEquals(FAILURES, failures(report));
+        BatchValidator.Failure failure = report.getFailures().get(0);
+        assertEquals(3, failure.getLine());
+        assertEquals(8, failure.getColumn());
+        assertEquals("Unexpected character: #", failure.getMessage());
+    }
+
+    @Test
+    public void testTrailingNewline() throws IOException {
+        Path file = write("1\r\n2 +\r\n3\r\n");
+        for (int chunkSize = 1; chunkSize <= 12; chunkSize++) {
+            BatchValidator.Report report = new BatchValidator(chunkSize).validate(file);
+            assertEquals(3, report.getLines());
+            assertEquals(List.of("line 2, column 4: Unexpected token: "), failures(report));
+        }
+    }
+
+    @Test
+    public void testEmptyLinesAndFile() throws IOException {
+        BatchValidator.Report report = new BatchValidator(4).validate(write("1\n\r\n2"));
+        assertEquals(3, report.getLines());
+        assertEquals(List.of("line 2, column 1: Unexpected token: "), failures(report));
+        report = new BatchValidator(4).validate(write(""));
+        assertEquals(0, report.getLines());
+        assertEquals(List.of(), failures(report));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testChunkSize() {
+        new BatchValidator(0);
+    }
+}
@@ -0,0 +1,113 @@
+import java.util.Arrays;
+
+// NFA simulation for automata of at most 128 states, with the active set held in two longs. The
+// successors of a whole set on one symbol are the OR of one precomputed entry per non-zero byte
+// of the set, so a step costs at most 16 table loads and never iterates over single states.
+public final class BitParallelNFA implements Matcher {
+    public static final int MAX_STATES = 128;
+
+    private final int[] charSymbol;
+    private final int chunks;
+    // succ[(symbol * chunks + chunk) * 256 + byte] holds, in two consecutive longs per entry, the
+    // successors of the states whose bits are set in byte number chunk of the set.
+    private final long[] succ;
+    private final long startLow, startHigh;
+    private final long acceptLow, acceptHigh;
+
+    public BitParallelNFA(NFA nfa) {
+        int n = nfa.stateCount();
+        if (n > MAX_STATES) {
+            throw new IllegalArgumentException("Bit-parallel simulation supports at most " + MAX_STATES + " states, got " + n);
+        }
+        int words = nfa.words();
+        int k = nfa.symbolCount();
+        this.charSymbol = nfa.charSymbols();
+        this.chunks = Math.max(1, (n + 7) >>> 3);
+
+        long[] single = new long[2 * n * Math.max(1, k)];
+        long[] set = new long[words];
+        for (int q = 0; q < n; q++) {
+            for (int a = 0; a < k; a++) {
+                Arrays.fill(set, 0L);
+                nfa.orSuccessors(q, a, set);
+                single[2 * (q * k + a)] = set[0];
+                single[2 * (q * k + a) + 1] = words > 1 ? set[1] : 0L;
+            }
+        }
+        this.succ = new long[k * chunks * 256 * 2];
+        for (int a = 0; a < k; a++) {
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                int base = (a * chunks + chunk) * 256 * 2;
+                // Entry b is entry (b minus its lowest bit) plus that bit's state.
+                for (int b = 1; b < 256; b++) {
+                    int low = Integer.numberOfTrailingZeros(b);
+                    int q = chunk * 8 + low;
+                    int rest = base + 2 * (b & (b - 1));
+                    long lo = succ[rest];
+                    long hi = succ[rest + 1];
+                    if (q < n) {
+                        lo |= single[2 * (q * k + a)];
+                        hi |= single[2 * (q * k + a) + 1];
+                    }
+                    succ[base + 2 * b] = lo;
+                    succ[base + 2 * b + 1] = hi;
+                }
+            }
+        }
+
+        long[] start = new long[words];
+        nfa.startSet(start);
+        this.startLow = start[0];
+        this.startHigh = words > 1 ? start[1] : 0L;
+        long acceptLow = 0;
+        long acceptHigh = 0;
+        for (int q = 0; q < n; q++) {
+            if (nfa.isAccepting(q)) {
+                if (q < 64) {
+                    acceptLow |= 1L << q;
+                } else {
+                    acceptHigh |= 1L << q;
+                }
+            }
+        }
+        this.acceptLow = acceptLow;
+        this.acceptHigh = acceptHigh;
+    }
+
+    @Override
+    public boolean accepts(CharSequence input) {
+        int[] charSymbol = this.charSymbol;
+        long[] succ = this.succ;
+        long low = startLow;
+        long high = startHigh;
+        for (int i = 0, n = input.length(); i < n; i++) {
+            char c = input.charAt(i);
+            if (c >= charSymbol.length || charSymbol[c] == CompiledDFA.DEAD) {
+                return false;
+            }
+            int base = charSymbol[c] * chunks * 256 * 2;
+            long nextLow = 0;
+            long nextHigh = 0;
+            for (long bits = low; bits != 0; ) {
+                int chunk = Long.numberOfTrailingZeros(bits) >>> 3;
+                int entry = base + (chunk * 256 + (int) ((bits >>> (chunk << 3)) & 0xFF)) * 2;
+                nextLow |= succ[entry];
+                nextHigh |= succ[entry + 1];
+                bits &= ~(0xFFL << (chunk << 3));
+            }
+            for (long bits = high; bits != 0; ) {
+                int chunk = Long.numberOfTrailingZeros(bits) >>> 3;
+                int entry = base + ((chunk + 8) * 256 + (int) ((bits >>> (chunk << 3)) & 0xFF)) * 2;
+                nextLow |= succ[entry];
+                nextHigh |= succ[entry + 1];
+                bits &= ~(0xFFL << (chunk << 3));
+            }
+            if ((nextLow | nextHigh) == 0) {
+                return false;
+            }
+            low = nextLow;
+            high = nextHigh;
+        }
+        return (low & acceptLow) != 0 || (high & acceptHigh) != 0;
+    }
+}
@@ -0,0 +1,52 @@
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BitParallelNFATest {
+
+    @Test
+    public void testAgreesWithFiniteAutomaton() {
+        Random random = new Random(31);
+        List<String> words = DeterminizerTest.words(random, 300);
+        for (FiniteAutomaton automaton : DeterminizerTest.automata(random, 200)) {
+            BitParallelNFA nfa = new BitParallelNFA(automaton.toNFA());
+            for (String word : words) {
+                assertEquals(word, automaton.accepts(word), nfa.accepts(word));
+            }
+        }
+    }
+
+    @Test
+    public void testNondeterministicAutomata() {
+        Random random = new Random(32);
+        List<String> words = DeterminizerTest.words(random, 200);
+        for (int i = 0; i < 200; i++) {
+            // Up to 128 states, so that both words of the set are used.
+            DeterminizerTest.RandomNfa nfa = new DeterminizerTest.RandomNfa(random, 1 + random.nextInt(BitParallelNFA.MAX_STATES));
+            BitParallelNFA simulation = new BitParallelNFA(nfa.build());
+            for (String word : words) {
+                assertEquals(word, nfa.accepts(word), simulation.accepts(word));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManyStates() {
+        new BitParallelNFA(new DeterminizerTest.RandomNfa(new Random(33), BitParallelNFA.MAX_STATES + 1).build());
+    }
+
+    @Test
+    public void testMatcherChoice() {
+        assertTrue(Matcher.of(DeterminizerTest.mainAutomaton().toNFA()) instanceof CompiledDFA);
+        Random random = new Random(34);
+        DeterminizerTest.RandomNfa nfa;
+        do {
+            nfa = new DeterminizerTest.RandomNfa(random, 20);
+        } while (nfa.build().isDeterministic());
+        assertTrue(Matcher.of(nfa.build()) instanceof BitParallelNFA);
+        assertTrue(Matcher.of(new DeterminizerTest.RandomNfa(random, 200).build()) instanceof LazyDFA);
+    }
+}
@@ -0,0 +1,281 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// CYK recognizer over the grammar produced by Chomsky.cfgToCnf. Nonterminals are bit positions
+// and each cell's set of nonterminals is a W-word bitset. Instead of storing those cells, the
+// table is kept as two position bitsets per nonterminal so that the split loop of a binary rule
+// collapses into one AND over n / 64 words.
+public class CYK {
+    private static final int PARALLEL_THRESHOLD = 64;
+
+    private final int count;
+    private final int words;
+    private final int start;
+    private final boolean acceptsEmpty;
+    private final SymbolTable symbols;
+    private final long[][] terminalMasks;
+    // One entry per distinct pair (B, C): ruleMask[j * words ..] is the unit-closed set of heads
+    // A with A -> B C.
+    private final int[] ruleLeft;
+    private final int[] ruleRight;
+    private final long[] ruleMask;
+
+    public CYK(Chomsky cnf) {
+        this.symbols = new SymbolTable(cnf.getSymbols());
+        List<List<int[]>> rules = cnf.getRules();
+        int count = symbols.nonTerminalCount();
+
+        List<int[]> binary = new ArrayList<>();
+        List<int[]> units = new ArrayList<>();
+        List<List<Integer>> terminalHeads = new ArrayList<>();
+        for (int t = 0; t < symbols.terminalCount(); t++) {
+            terminalHeads.add(new ArrayList<>());
+        }
+        int[] terminalVar = new int[symbols.terminalCount()];
+        Arrays.fill(terminalVar, -1);
+        boolean emptyStart = false;
+        int startSymbol = symbols.lookup(cnf.getStartSymbol());
+
+        for (int head = 0; head < rules.size(); head++) {
+            if (rules.get(head) == null) {
+                continue;
+            }
+            for (int[] rhs : rules.get(head)) {
+                if (rhs.length == 0) {
+                    emptyStart |= head == startSymbol;
+                } else if (rhs.length == 1) {
+                    if (SymbolTable.isNonTerminal(rhs[0])) {
+                        units.add(new int[]{head, rhs[0]});
+                    } else {
+                        terminalHeads.get(~rhs[0]).add(head);
+                    }
+                } else {
+                    // Terminals inside longer right-hand sides get a private nonterminal, and rules
+                    // longer than two are chained through fresh ones, as cfgToCnf may leave either.
+                    int[] body = new int[rhs.length];
+                    for (int i = 0; i < rhs.length; i++) {
+                        if (SymbolTable.isNonTerminal(rhs[i])) {
+                            body[i] = rhs[i];
+                        } else {
+                            int t = ~rhs[i];
+                            if (terminalVar[t] < 0) {
+                                terminalVar[t] = count++;
+                                terminalHeads.get(t).add(terminalVar[t]);
+                            }
+                            body[i] = terminalVar[t];
+                        }
+                    }
+                    int left = head;
+                    for (int i = 0; i < body.length - 2; i++) {
+                        int chain = count++;
+                        binary.add(new int[]{left, body[i], chain});
+                        left = chain;
+                    }
+                    binary.add(new int[]{left, body[body.length - 2], body[body.length - 1]});
+                }
+            }
+        }
+
+        this.count = count;
+        this.words = Math.max(1, (count + 63) >>> 6);
+        this.start = startSymbol;
+        this.acceptsEmpty = emptyStart;
+
+        // closure[B] = every A with A =>* B through unit productions, including B itself.
+        long[] closure = new long[count * words];
+        List<List<Integer>> unitParents = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            unitParents.add(new ArrayList<>());
+        }
+        for (int[] unit : units) {
+            unitParents.get(unit[1]).add(unit[0]);
+        }
+        int[] stack = new int[count];
+        for (int b = 0; b < count; b++) {
+            int top = 0;
+            setBit(closure, b * words, b);
+            stack[top++] = b;
+            while (top > 0) {
+                int x = stack[--top];
+                for (int a : unitParents.get(x)) {
+                    if (!testBit(closure, b * words, a)) {
+                        setBit(closure, b * words, a);
+                        stack[top++] = a;
+                    }
+                }
+            }
+        }
+
+        this.terminalMasks = new long[symbols.terminalCount()][];
+        for (int t = 0; t < terminalMasks.length; t++) {
+            terminalMasks[t] = new long[words];
+            for (int head : terminalHeads.get(t)) {
+                orInto(terminalMasks[t], 0, closure, head * words, words);
+            }
+        }
+
+        Map<Long, long[]> merged = new TreeMap<>();
+        for (int[] rule : binary) {
+            long key = ((long) rule[1] << 32) | rule[2];
+            long[] mask = merged.computeIfAbsent(key, k -> new long[words]);
+            orInto(mask, 0, closure, rule[0] * words, words);
+        }
+        this.ruleLeft = new int[merged.size()];
+        this.ruleRight = new int[merged.size()];
+        this.ruleMask = new long[merged.size() * words];
+        int j = 0;
+        for (Map.Entry<Long, long[]> entry : merged.entrySet()) {
+            ruleLeft[j] = (int) (entry.getKey() >>> 32);
+            ruleRight[j] = (int) (long) entry.getKey();
+            System.arraycopy(entry.getValue(), 0, ruleMask, j * words, words);
+            j++;
+        }
+    }
+
+    public boolean accepts(String input) {
+        List<String> tokens = new ArrayList<>(input.length());
+        for (int i = 0; i < input.length(); i++) {
+            tokens.add(input.substring(i, i + 1));
+        }
+        return recognize(tokens);
+    }
+
+    public boolean recognize(List<String> tokens) {
+        return recognize(tokens, null);
+    }
+
+    // With a pool, each anti-diagonal (all spans of one length) is filled in parallel.
+    public boolean recognize(List<String> tokens, ForkJoinPool pool) {
+        int n = tokens.size();
+        if (n == 0) {
+            return acceptsEmpty;
+        }
+        if (start < 0) {
+            return false;
+        }
+        Table table = new Table(count, n);
+        for (int i = 0; i < n; i++) {
+            int terminal = symbols.lookup(tokens.get(i));
+            if (terminal == SymbolTable.NONE || SymbolTable.isNonTerminal(terminal)) {
+                return false;
+            }
+            table.store(i, i + 1, terminalMasks[~terminal]);
+        }
+        long[] scratch = new long[words];
+        for (int length = 2; length <= n; length++) {
+            int cells = n - length + 1;
+            if (pool != null && cells >= PARALLEL_THRESHOLD) {
+                pool.invoke(new Diagonal(table, length, 0, cells));
+            } else {
+                for (int i = 0; i < cells; i++) {
+                    fill(table, i, i + length, scratch);
+                }
+            }
+        }
+        return table.derives(start, 0, n);
+    }
+
+    // ends[A][i] has bit j set when A derives the span [i, j), and starts[A][j] has bit i set for
+    // the same span. Both are flat long[] arrays of rowWords-wide position bitsets.
+    private static final class Table {
+        final int rowWords;
+        final int rows;
+        final long[] ends;
+        final long[] starts;
+
+        Table(int count, int n) {
+            this.rowWords = (n + 64) >>> 6;
+            this.rows = n + 1;
+            this.ends = new long[Math.toIntExact((long) count * rows * rowWords)];
+            this.starts = new long[Math.toIntExact((long) count * rows * rowWords)];
+        }
+
+        int row(int nonTerminal, int position) {
+            return (nonTerminal * rows + position) * rowWords;
+        }
+
+        boolean derives(int nonTerminal, int i, int j) {
+            return testBit(ends, row(nonTerminal, i), j);
+        }
+
+        void store(int i, int j, long[] cell) {
+            for (int w = 0; w < cell.length; w++) {
+                long bits = cell[w];
+                while (bits != 0) {
+                    int a = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    setBit(ends, row(a, i), j);
+                    setBit(starts, row(a, j), i);
+                }
+            }
+        }
+
+        // Is there a split k with i < k < j such that B derives [i, k) and C derives [k, j)?
+        boolean splits(int b, int c, int i, int j) {
+            int left = row(b, i);
+            int right = row(c, j);
+            int from = (i + 1) >>> 6;
+            int to = (j - 1) >>> 6;
+            for (int w = from; w <= to; w++) {
+                if ((ends[left + w] & starts[right + w]) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private void fill(Table table, int i, int j, long[] target) {
+        Arrays.fill(target, 0L);
+        for (int r = 0; r < ruleLeft.length; r++) {
+            if (table.splits(ruleLeft[r], ruleRight[r], i, j)) {
+                orInto(target, 0, ruleMask, r * words, words);
+            }
+        }
+        table.store(i, j, target);
+    }
+
+    private final class Diagonal extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Table table;
+        private final int length;
+        private final int from;
+        private final int to;
+
+        Diagonal(Table table, int length, int from, int to) {
+            this.table = table;
+            this.length = length;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                long[] scratch = new long[words];
+                for (int i = from; i < to; i++) {
+                    fill(table, i, i + length, scratch);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Diagonal(table, length, from, mid), new Diagonal(table, length, mid, to));
+        }
+    }
+
+    private static boolean testBit(long[] set, int base, int bit) {
+        return (set[base + (bit >>> 6)] & (1L << bit)) != 0;
+    }
+
+    private static void setBit(long[] set, int base, int bit) {
+        set[base + (bit >>> 6)] |= 1L << bit;
+    }
+
+    private static void orInto(long[] dest, int destBase, long[] src, int srcBase, int words) {
+        for (int w = 0; w < words; w++) {
+            dest[destBase + w] |= src[srcBase + w];
+        }
+    }
+}
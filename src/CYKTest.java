@@ -0,0 +1,104 @@
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CYKTest {
+
+    // The Chomsky grammars in Main.
+    static Chomsky mainGrammar() {
+        return new Chomsky("S",
+                Arrays.asList("S", "A", "B", "C", "D"),
+                Arrays.asList("a", "b"),
+                new HashMap<>() {{
+                    put("S", Arrays.asList("aB", "bA", "A"));
+                    put("A", Arrays.asList("B", "Sa", "bBA", "b"));
+                    put("B", Arrays.asList("b", "bS", "aD", "ε"));
+                    put("C", Arrays.asList("Ba"));
+                    put("D", Arrays.asList("AA"));
+                }});
+    }
+
+    static Chomsky mainGrammar1() {
+        return new Chomsky("S",
+                Arrays.asList("S", "A", "B", "C", "E"),
+                Arrays.asList("a", "b"),
+                new HashMap<>() {{
+                    put("S", Arrays.asList("bA", "B"));
+                    put("A", Arrays.asList("a", "aS", "bAaAb"));
+                    put("B", Arrays.asList("AC", "bS", "aAa"));
+                    put("C", Arrays.asList("ε", "AB"));
+                    put("E", Arrays.asList("BA"));
+                }});
+    }
+
+    // The regular grammar in Main.
+    static Grammar mainRegularGrammar() {
+        Map<String, List<String>> productions = new HashMap<>();
+        productions.put("S", Arrays.asList("aB"));
+        productions.put("B", Arrays.asList("bS", "aC", "b"));
+        productions.put("C", Arrays.asList("bD"));
+        productions.put("D", Arrays.asList("a", "bC", "cS"));
+        return new Grammar(new HashSet<>(Arrays.asList("S", "B", "C", "D")), new HashSet<>(Arrays.asList("a", "b", "c")),
+                productions, "S");
+    }
+
+    // Every word over the alphabet up to maxLength.
+    static List<String> allWords(String alphabet, int maxLength) {
+        List<String> words = new ArrayList<>(List.of(""));
+        for (int i = 0; i < words.size(); i++) {
+            if (words.get(i).length() < maxLength) {
+                for (char c : alphabet.toCharArray()) {
+                    words.add(words.get(i) + c);
+                }
+            }
+        }
+        return words;
+    }
+
+    private static void assertAgrees(Chomsky grammar, Grammar original, String alphabet, int maxLength) {
+        Earley earley = new Earley(original);
+        CYK cyk = new CYK(grammar.cfgToCnf());
+        for (String word : allWords(alphabet, maxLength)) {
+            assertEquals(word, earley.accepts(word), cyk.accepts(word));
+        }
+    }
+
+    @Test
+    public void testMainGrammar() {
+        assertAgrees(mainGrammar(), mainGrammar().toGrammar(), "ab", 9);
+    }
+
+    @Test
+    public void testMainGrammar1() {
+        assertAgrees(mainGrammar1(), mainGrammar1().toGrammar(), "ab", 9);
+    }
+
+    @Test
+    public void testMainRegularGrammar() {
+        Grammar grammar = mainRegularGrammar();
+        Chomsky chomsky = new Chomsky(grammar.getStartSymbol(), new ArrayList<>(grammar.getVN()),
+                new ArrayList<>(grammar.getVT()), grammar.getProductions());
+        assertAgrees(chomsky, grammar, "abc", 7);
+    }
+
+    @Test
+    public void testLongInputsInParallel() {
+        // Long enough that the diagonals are split across the pool.
+        Earley earley = new Earley(mainGrammar1().toGrammar());
+        CYK cyk = new CYK(mainGrammar1().cfgToCnf());
+        ForkJoinPool pool = new ForkJoinPool(4);
+        // S -> bA, A -> aS | a derive (ba)^k.
+        assertTrue(cyk.recognize(Arrays.asList("ba".repeat(100).split("")), pool));
+        Random random = new Random(41);
+        for (int i = 0; i < 30; i++) {
+            StringBuilder word = new StringBuilder("ba".repeat(60 + random.nextInt(40)));
+            word.setCharAt(random.nextInt(word.length()), random.nextBoolean() ? 'a' : 'b');
+            assertEquals(earley.accepts(word.toString()), cyk.recognize(Arrays.asList(word.toString().split("")), pool));
+        }
+        pool.shutdown();
+    }
+}
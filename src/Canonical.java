@@ -0,0 +1,52 @@
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+// Builds the canonical text of a grammar or automaton and hashes it with SHA-256. Every string is
+// written with its length in front, so no choice of names can make two different inputs produce
+// the same text, and sets are written sorted, so equal inputs hash equally however they were built.
+public final class Canonical {
+    private final StringBuilder text = new StringBuilder();
+
+    public Canonical(String kind) {
+        add(kind);
+    }
+
+    public Canonical add(String s) {
+        text.append(s.length()).append(':').append(s);
+        return this;
+    }
+
+    public Canonical addSorted(Collection<String> strings) {
+        List<String> sorted = new ArrayList<>(strings);
+        Collections.sort(sorted);
+        text.append('[').append(sorted.size()).append(']');
+        for (String s : sorted) {
+            add(s);
+        }
+        return this;
+    }
+
+    // Keys in sorted order, each followed by its sorted values.
+    public Canonical addSorted(Map<String, ? extends Collection<String>> map) {
+        addSorted(map.keySet());
+        for (String key : new TreeSet<>(map.keySet())) {
+            addSorted(map.get(key));
+        }
+        return this;
+    }
+
+    public String hash() {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >>> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+}
@@ -1,236 +1,381 @@
+import java.nio.IntBuffer;
 import java.util.*;
 
 public class Chomsky {
     private String startSymbol;
     private List<String> nonTerminal;
     private List<String> terminals;
-    private Map<String, List<String>> productions;
+    private static final int MAX_NULLABLE_OCCURRENCES = 16;
+
+    private final SymbolTable symbols = new SymbolTable();
+    private List<List<int[]>> rules = new ArrayList<>();
 
     public Chomsky(String startSymbol, List<String> nonTerminal, List<String> terminals, Map<String, List<String>> productions) {
         this.startSymbol = startSymbol;
         this.nonTerminal = nonTerminal;
         this.terminals = terminals;
-        this.productions = productions;
+        symbols.nonTerminal(startSymbol);
+        for (String nt : nonTerminal) {
+            symbols.nonTerminal(nt);
+        }
+        for (String nt : productions.keySet()) {
+            symbols.nonTerminal(nt);
+        }
+        for (String t : terminals) {
+            if (symbols.lookup(t) == SymbolTable.NONE) {
+                symbols.terminal(t);
+            }
+        }
+        for (int a = 0; a < symbols.nonTerminalCount(); a++) {
+            List<String> rhs = productions.get(symbols.name(a));
+            if (rhs == null) {
+                rules.add(null);
+                continue;
+            }
+            List<int[]> encoded = new ArrayList<>(rhs.size());
+            for (String production : rhs) {
+                encoded.add(symbols.parse(production));
+            }
+            rules.add(encoded);
+        }
     }
 
     public void eliminateEpsilonProductions() {
-        Set<String> nullables = new HashSet<>();
-        for (Map.Entry<String, List<String>> entry : productions.entrySet()) {
-            if (entry.getValue().contains("ε")) {
-                nullables.add(entry.getKey());
-            }
-        }
-
-        Map<String, List<String>> newProductions = new HashMap<>();
-        for (Map.Entry<String, List<String>> entry : productions.entrySet()) {
-            String variable = entry.getKey();
-            List<String> oldProductions = entry.getValue();
-            List<String> newProductionsList = new ArrayList<>();
-
-            for (String production : oldProductions) {
-                if (!production.equals("ε")) {
-                    boolean addProduction = true;
-                    for (String nullable : nullables) {
-                        if (production.contains(nullable.toString())) {
-                            String newProduction = production.replace(nullable.toString(), "");
-                            if (!newProductionsList.contains(newProduction)) {
-                                newProductionsList.add(newProduction);
-                            }
-                        }
-                    }
-                    if (!newProductionsList.contains(production)) {
-                        newProductionsList.add(production);
-                    }
+        boolean[] nullable = nullable(rules);
+        int start = symbols.lookup(startSymbol);
+
+        List<List<int[]>> result = new ArrayList<>();
+        for (int a = 0; a < symbols.nonTerminalCount(); a++) {
+            if (rules.get(a) == null) {
+                result.add(null);
+                continue;
+            }
+            Set<IntBuffer> expanded = new LinkedHashSet<>();
+            for (int[] rhs : rules.get(a)) {
+                if (rhs.length > 0) {
+                    expand(rhs, nullable, expanded);
                 }
             }
+            if (a == start && nullable[a]) {
+                expanded.add(IntBuffer.wrap(new int[0]));
+            }
+            result.add(toRules(expanded));
+        }
+        rules = result;
+    }
 
-            Iterator<String> iterator = newProductionsList.iterator();
-            while (iterator.hasNext()) {
-                String production = iterator.next();
-                if (production.equals("")) {
-                    iterator.remove();
+    // Every way of dropping a subset of the nullable occurrences in rhs, starting with all of
+    // them dropped and ending with rhs itself; the empty result is left out. That is 2^m variants
+    // for m occurrences, which is why cfgToCnf binarizes before eliminating ε-productions.
+    private void expand(int[] rhs, boolean[] nullable, Set<IntBuffer> out) {
+        int[] occurrences = new int[rhs.length];
+        int m = 0;
+        for (int i = 0; i < rhs.length; i++) {
+            if (SymbolTable.isNonTerminal(rhs[i]) && nullable[rhs[i]]) {
+                occurrences[m++] = i;
+            }
+        }
+        if (m > MAX_NULLABLE_OCCURRENCES) {
+            throw new IllegalArgumentException("Rule " + symbols.render(rhs) + " has " + m
+                    + " nullable occurrences and would expand to 2^" + m + " rules; binarize it with toCnf first");
+        }
+        for (long mask = (1L << m) - 1; mask >= 0; mask--) {
+            int[] variant = new int[rhs.length - Long.bitCount(mask)];
+            int k = 0;
+            int next = 0;
+            for (int i = 0; i < rhs.length; i++) {
+                if (next < m && occurrences[next] == i) {
+                    boolean drop = (mask & (1L << next)) != 0;
+                    next++;
+                    if (drop) {
+                        continue;
+                    }
                 }
+                variant[k++] = rhs[i];
+            }
+            if (variant.length > 0) {
+                out.add(IntBuffer.wrap(variant));
             }
-
-            newProductions.put(variable, newProductionsList);
         }
-
-        productions = newProductions;
     }
 
-
-    public void eliminateUnitProductions() {
-        for (String symbol : this.productions.keySet()) {
-            List<String> unit_productions = new ArrayList<>();
-            for (String prod : this.productions.get(symbol)) {
-                if (prod.length() == 1 && Character.isUpperCase(prod.charAt(0))) {
-                    unit_productions.add(prod);
+    // Counter-based fixpoint: a rule's counter is the number of its symbols not yet known to be
+    // nullable, and each newly nullable symbol decrements the rules it occurs in.
+    private boolean[] nullable(List<List<int[]>> rules) {
+        boolean[] nullable = new boolean[symbols.nonTerminalCount()];
+        List<int[]> ruleList = new ArrayList<>();
+        List<Integer> ruleLhs = new ArrayList<>();
+        List<List<Integer>> occursIn = new ArrayList<>();
+        for (int a = 0; a < symbols.nonTerminalCount(); a++) {
+            occursIn.add(new ArrayList<>());
+        }
+        Deque<Integer> worklist = new ArrayDeque<>();
+        List<Integer> remaining = new ArrayList<>();
+        for (int a = 0; a < symbols.nonTerminalCount(); a++) {
+            if (rules.get(a) == null) {
+                continue;
+            }
+            for (int[] rhs : rules.get(a)) {
+                int r = ruleList.size();
+                ruleList.add(rhs);
+                ruleLhs.add(a);
+                boolean hasTerminal = false;
+                for (int symbol : rhs) {
+                    if (SymbolTable.isNonTerminal(symbol)) {
+                        occursIn.get(symbol).add(r);
+                    } else {
+                        hasTerminal = true;
+                    }
+                }
+                remaining.add(hasTerminal ? -1 : rhs.length);
+                if (rhs.length == 0 && !nullable[a]) {
+                    nullable[a] = true;
+                    worklist.add(a);
+                }
+            }
+        }
+        while (!worklist.isEmpty()) {
+            int b = worklist.poll();
+            for (int r : occursIn.get(b)) {
+                int left = remaining.get(r);
+                if (left <= 0) {
+                    continue;
+                }
+                remaining.set(r, --left);
+                int a = ruleLhs.get(r);
+                if (left == 0 && !nullable[a]) {
+                    nullable[a] = true;
+                    worklist.add(a);
                 }
             }
+        }
+        return nullable;
+    }
 
-            while (!unit_productions.isEmpty()) {
-                String unit = unit_productions.remove(0);
-                this.productions.get(symbol).remove(unit);
-                for (String prod : this.productions.get(unit)) {
-                    if (!this.productions.get(symbol).contains(prod)) {
-                        this.productions.get(symbol).add(prod);
-                    }
+    public void eliminateUnitProductions() {
+        List<List<int[]>> result = new ArrayList<>();
+        boolean[] reached = new boolean[symbols.nonTerminalCount()];
+        int[] queue = new int[symbols.nonTerminalCount()];
+        for (int a = 0; a < symbols.nonTerminalCount(); a++) {
+            if (rules.get(a) == null) {
+                result.add(null);
+                continue;
+            }
+            // Unit pairs (a, b) in breadth-first order; a contributes its own rules first.
+            Arrays.fill(reached, false);
+            int head = 0;
+            int tail = 0;
+            reached[a] = true;
+            queue[tail++] = a;
+            Set<IntBuffer> merged = new LinkedHashSet<>();
+            while (head < tail) {
+                int b = queue[head++];
+                if (rules.get(b) == null) {
+                    continue;
                 }
-                for (String prod : this.productions.get(symbol)) {
-                    if (prod.length() == 1 && Character.isUpperCase(prod.charAt(0))) {
-                        unit_productions.add(prod);
+                for (int[] rhs : rules.get(b)) {
+                    if (isUnit(rhs)) {
+                        if (!reached[rhs[0]]) {
+                            reached[rhs[0]] = true;
+                            queue[tail++] = rhs[0];
+                        }
+                    } else {
+                        merged.add(IntBuffer.wrap(rhs));
                     }
                 }
             }
+            result.add(toRules(merged));
         }
+        rules = result;
     }
 
     public void eliminateInaccessibleSymbols() {
-        Set<String> visited = new HashSet<>();
-        visit(this.startSymbol, visited);
+        boolean[] visited = new boolean[symbols.nonTerminalCount()];
+        Deque<Integer> worklist = new ArrayDeque<>();
+        int start = symbols.lookup(startSymbol);
+        visited[start] = true;
+        worklist.add(start);
+        while (!worklist.isEmpty()) {
+            int a = worklist.poll();
+            if (rules.get(a) == null) {
+                continue;
+            }
+            for (int[] rhs : rules.get(a)) {
+                for (int symbol : rhs) {
+                    if (SymbolTable.isNonTerminal(symbol) && !visited[symbol]) {
+                        visited[symbol] = true;
+                        worklist.add(symbol);
+                    }
+                }
+            }
+        }
 
         List<String> newNonTerminal = new ArrayList<>();
-        Map<String, List<String>> newProductions = new HashMap<>();
+        List<List<int[]>> result = new ArrayList<>();
+        for (int a = 0; a < symbols.nonTerminalCount(); a++) {
+            result.add(visited[a] ? rules.get(a) : null);
+        }
         for (String nt : this.nonTerminal) {
-            if (visited.contains(nt)) {
+            if (visited[symbols.lookup(nt)]) {
                 newNonTerminal.add(nt);
-                newProductions.put(nt, this.productions.get(nt));
             }
         }
 
         this.nonTerminal = newNonTerminal;
-        this.productions = newProductions;
+        this.rules = result;
     }
 
-    private void visit(String symbol, Set<String> visited) {
-        if (!visited.contains(symbol)) {
-            visited.add(symbol);
-            for (String prod : this.productions.get(symbol)) {
-                for (int i = 0; i < prod.length(); i++) {
-                    String s = prod.charAt(i) + "";
-                    if (this.nonTerminal.contains(s)) {
-                        visit(s, visited);
+    public void eliminateNonproductive() {
+        boolean[] productive = productive(rules);
+
+        List<List<int[]>> result = new ArrayList<>();
+        for (int a = 0; a < symbols.nonTerminalCount(); a++) {
+            if (rules.get(a) == null || !productive[a]) {
+                result.add(null);
+                continue;
+            }
+            List<int[]> kept = new ArrayList<>();
+            for (int[] rhs : rules.get(a)) {
+                boolean allProductive = true;
+                for (int symbol : rhs) {
+                    if (SymbolTable.isNonTerminal(symbol) && !productive[symbol]) {
+                        allProductive = false;
+                        break;
                     }
                 }
+                if (allProductive) {
+                    kept.add(rhs);
+                }
             }
+            result.add(kept);
         }
-    }
+        rules = result;
 
-    public void eliminateNonproductive() {
-        Set<String> productive = new HashSet<>();
-        productive.add(startSymbol);
-        Set<String> oldProductive = new HashSet<>();
-
-        while (!oldProductive.equals(productive)) {
-            oldProductive = new HashSet<>(productive);
-            for (Map.Entry<String, List<String>> entry : productions.entrySet()) {
-                String symbol = entry.getKey();
-                List<String> rhs = entry.getValue();
-                if (!productive.contains(symbol)) {
-                    for (String prod : rhs) {
-                        boolean allInProductive = true;
-                        for (char s : prod.toCharArray()) {
-                            if (!productive.contains(String.valueOf(s)) && !terminals.contains(String.valueOf(s))) {
-                                allInProductive = false;
-                                break;
-                            }
-                        }
-                        if (allInProductive) {
-                            productive.add(symbol);
-                            break;
-                        }
-                    }
-                }
+        List<String> productiveList = new ArrayList<>();
+        for (int a = 0; a < symbols.nonTerminalCount(); a++) {
+            if (productive[a]) {
+                productiveList.add(symbols.name(a));
             }
         }
+        Collections.sort(productiveList);
+        nonTerminal = productiveList;
+    }
 
-        Set<String> nonproductive = new HashSet<>(nonTerminal);
-        nonproductive.removeAll(productive);
-
-        for (String symbol : nonproductive) {
-            productions.remove(symbol);
+    // Same counter scheme as nullable(), except that terminals never hold a rule back.
+    private boolean[] productive(List<List<int[]>> rules) {
+        boolean[] productive = new boolean[symbols.nonTerminalCount()];
+        List<Integer> ruleLhs = new ArrayList<>();
+        List<Integer> remaining = new ArrayList<>();
+        List<List<Integer>> occursIn = new ArrayList<>();
+        for (int a = 0; a < symbols.nonTerminalCount(); a++) {
+            occursIn.add(new ArrayList<>());
         }
-
-        for (Map.Entry<String, List<String>> entry : productions.entrySet()) {
-            String symbol = entry.getKey();
-            List<String> rhs = entry.getValue();
-            List<String> newRhs = new ArrayList<>();
-            for (String prod : rhs) {
-                boolean allInProductive = true;
-                for (char s : prod.toCharArray()) {
-                    if (!productive.contains(String.valueOf(s)) && !terminals.contains(String.valueOf(s))) {
-                        allInProductive = false;
-                        break;
+        Deque<Integer> worklist = new ArrayDeque<>();
+        for (int a = 0; a < symbols.nonTerminalCount(); a++) {
+            if (rules.get(a) == null) {
+                continue;
+            }
+            for (int[] rhs : rules.get(a)) {
+                int r = ruleLhs.size();
+                ruleLhs.add(a);
+                int count = 0;
+                for (int symbol : rhs) {
+                    if (SymbolTable.isNonTerminal(symbol)) {
+                        occursIn.get(symbol).add(r);
+                        count++;
                     }
                 }
-                if (allInProductive) {
-                    newRhs.add(prod);
+                remaining.add(count);
+                if (count == 0 && !productive[a]) {
+                    productive[a] = true;
+                    worklist.add(a);
                 }
             }
-            productions.put(symbol, newRhs);
         }
-
-        List<String> productiveList = new ArrayList<>(productive);
-        Collections.sort(productiveList);
-        nonTerminal = productiveList;
+        while (!worklist.isEmpty()) {
+            int b = worklist.poll();
+            for (int r : occursIn.get(b)) {
+                int left = remaining.get(r) - 1;
+                remaining.set(r, left);
+                int a = ruleLhs.get(r);
+                if (left == 0 && !productive[a]) {
+                    productive[a] = true;
+                    worklist.add(a);
+                }
+            }
+        }
+        return productive;
     }
 
+    // Terminals inside rules of length two or more are replaced by T1, T2, ... and longer rules
+    // are split into a chain through X1, X2, ...; fresh names skip any symbol already in use.
     public void toCnf() {
-        Map<String, List<String>> newProductions = new HashMap<>();
-        int nextNewVarX = 1;
-        int nextNewVarT = 1;
-        Map<String, String> terminalVarMap = new HashMap<>();
-
-        for (String var : productions.keySet()) {
-            newProductions.put(var, new ArrayList<String>());
-
-            for (String prod : productions.get(var)) {
-                if (prod.length() >= 3) {
-                    List<String> prodVars = new ArrayList<>();
-                    for (int i = 0; i < prod.length() - 1; i++) {
-                        prodVars.add("X" + (nextNewVarX + i));
-                    }
-                    nextNewVarX += prod.length() - 1;
-                    nonTerminal.addAll(prodVars);
-
-                    newProductions.get(var).add(prod.charAt(0) + prodVars.get(0));
-                    for (int i = 0; i < prod.length() - 2; i++) {
-                        String newVar = prodVars.get(i);
-                        newProductions.putIfAbsent(newVar, new ArrayList<String>());
-                        newProductions.get(newVar).add(prod.charAt(i + 1) + prodVars.get(i + 1));
-                    }
-                    newProductions.putIfAbsent(prodVars.get(prodVars.size() - 1), new ArrayList<String>());
-                    newProductions.get(prodVars.get(prodVars.size() - 1)).add(prod.substring(prod.length() - 1));
-
-                } else if (prod.length() == 2 && prod.chars().allMatch(c -> nonTerminal.contains("" + (char) c))) {
-                    newProductions.get(var).add(prod);
-
-                } else {
-                    String newProd = prod;
-                    for (int i = 0; i < prod.length(); i++) {
-                        String sym = "" + prod.charAt(i);
-                        if (terminals.contains(sym)) {
-                            if (!terminalVarMap.containsKey(sym)) {
-                                String newVar = "T" + nextNewVarT;
-                                nextNewVarT++;
-                                nonTerminal.add(newVar);
-                                newProductions.putIfAbsent(newVar, new ArrayList<String>());
-                                newProductions.get(newVar).add(sym);
-                                terminalVarMap.put(sym, newVar);
-                            }
-                            newProd = newProd.replaceFirst(sym, terminalVarMap.get(sym));
+        List<List<int[]>> result = new ArrayList<>();
+        for (int a = 0; a < symbols.nonTerminalCount(); a++) {
+            result.add(rules.get(a) == null ? null : new ArrayList<>());
+        }
+        Map<Integer, Integer> terminalVar = new HashMap<>();
+        int[] nextX = {1};
+        int[] nextT = {1};
+        int originalCount = symbols.nonTerminalCount();
+
+        for (int a = 0; a < originalCount; a++) {
+            if (rules.get(a) == null) {
+                continue;
+            }
+            for (int[] rhs : rules.get(a)) {
+                if (rhs.length < 2) {
+                    result.get(a).add(rhs);
+                    continue;
+                }
+                int[] body = rhs.clone();
+                for (int i = 0; i < body.length; i++) {
+                    if (!SymbolTable.isNonTerminal(body[i])) {
+                        Integer var = terminalVar.get(body[i]);
+                        if (var == null) {
+                            var = symbols.fresh("T", nextT);
+                            terminalVar.put(body[i], var);
+                            result.add(new ArrayList<>(Collections.singletonList(new int[]{body[i]})));
                         }
+                        body[i] = var;
                     }
-                    newProductions.get(var).add(newProd);
                 }
+                int head = a;
+                for (int i = 0; i < body.length - 2; i++) {
+                    int chain = symbols.fresh("X", nextX);
+                    result.add(new ArrayList<>());
+                    result.get(head).add(new int[]{body[i], chain});
+                    head = chain;
+                }
+                result.get(head).add(new int[]{body[body.length - 2], body[body.length - 1]});
             }
         }
-        productions = newProductions;
-        nonTerminal = new ArrayList<>(new TreeSet<>(nonTerminal));
+
+        Set<String> names = new TreeSet<>(nonTerminal);
+        for (int a = originalCount; a < symbols.nonTerminalCount(); a++) {
+            names.add(symbols.name(a));
+        }
+        rules = result;
+        nonTerminal = new ArrayList<>(names);
+    }
+
+    private static boolean isUnit(int[] rhs) {
+        return rhs.length == 1 && SymbolTable.isNonTerminal(rhs[0]);
     }
 
+    private static List<int[]> toRules(Set<IntBuffer> set) {
+        List<int[]> rules = new ArrayList<>(set.size());
+        for (IntBuffer rhs : set) {
+            rules.add(rhs.array());
+        }
+        return rules;
+    }
 
+    // Binarizing first leaves at most two nullable occurrences per rule, so ε-elimination adds at
+    // most three variants of each instead of 2^m. The rules are binary from then on, and the final
+    // toCnf only sorts the nonterminal list.
     public Chomsky cfgToCnf() {
+        toCnf();
         eliminateEpsilonProductions();
         eliminateUnitProductions();
         eliminateInaccessibleSymbols();
@@ -240,16 +385,56 @@ public class Chomsky {
     }
 
     public void printGrammar() {
+        Map<String, List<String>> productions = getProductions();
         for (String var : productions.keySet()) {
             System.out.println(var + " -> " + String.join(" | ", productions.get(var)));
         }
     }
 
+    public String getStartSymbol() {
+        return startSymbol;
+    }
+
     public List<String> getNonTerminal() {
         return nonTerminal;
     }
 
     public Map<String, List<String>> getProductions() {
+        Map<String, List<String>> productions = new HashMap<>();
+        for (int a = 0; a < rules.size(); a++) {
+            if (rules.get(a) == null) {
+                continue;
+            }
+            List<String> rhs = new ArrayList<>(rules.get(a).size());
+            for (int[] production : rules.get(a)) {
+                rhs.add(symbols.render(production));
+            }
+            productions.put(symbols.name(a), rhs);
+        }
         return productions;
     }
+
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    // Rules indexed by nonterminal id; null where the nonterminal has no productions entry.
+    public List<List<int[]>> getRules() {
+        return rules;
+    }
+
+    // Hashes like the Grammar with the same symbols and rules.
+    public String canonicalHash() {
+        return new Canonical("Grammar").add(startSymbol).addSorted(nonTerminal).addSorted(terminals)
+                .addSorted(getProductions()).hash();
+    }
+
+    public Grammar toGrammar() {
+        int[][][] encoded = new int[symbols.nonTerminalCount()][][];
+        for (int a = 0; a < encoded.length; a++) {
+            List<int[]> rhs = a < rules.size() ? rules.get(a) : null;
+            encoded[a] = rhs == null ? new int[0][] : rhs.toArray(new int[0][]);
+        }
+        return new Grammar(new SymbolTable(symbols), encoded, symbols.lookup(startSymbol));
+    }
 }
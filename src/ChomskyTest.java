@@ -23,8 +23,8 @@ public class ChomskyTest {
 
         Map<String, List<String>> expected = new HashMap<>() {{
             put("S", Arrays.asList("C", "AC", "b", "bA", "B", "a", "aA"));
-            put("A", Arrays.asList("aS", "Bb", "ABAb"));
-            put("B", Arrays.asList("a", "bS", "AbSA"));
+            put("A", Arrays.asList("aS", "Bb", "ABb", "BAb", "ABAb"));
+            put("B", Arrays.asList("a", "bS", "AbS", "bSA", "AbSA"));
             put("C", Arrays.asList("abC"));
             put("D", Arrays.asList("B", "AB"));
         }};
@@ -32,6 +32,50 @@ public class ChomskyTest {
         assertEquals(expected, chomsky.getProductions());
     }
 
+    @Test
+    public void testEliminateEpsilonProductionsTransitive() {
+        Chomsky chomsky = new Chomsky("S",
+                Arrays.asList("S", "A", "B"),
+                Arrays.asList("a", "b"),
+                new HashMap<>() {{
+                    put("S", Arrays.asList("AB"));
+                    put("A", Arrays.asList("ε", "a"));
+                    put("B", Arrays.asList("A", "b"));
+                }});
+
+        chomsky.eliminateEpsilonProductions();
+
+        Map<String, List<String>> expected = new HashMap<>() {{
+            put("S", Arrays.asList("A", "B", "AB", "ε"));
+            put("A", Arrays.asList("a"));
+            put("B", Arrays.asList("A", "b"));
+        }};
+
+        assertEquals(expected, chomsky.getProductions());
+    }
+
+    @Test
+    public void testEliminateUnitProductions() {
+        Chomsky chomsky = new Chomsky("S",
+                Arrays.asList("S", "A", "B"),
+                Arrays.asList("a", "b", "c"),
+                new HashMap<>() {{
+                    put("S", Arrays.asList("A", "a"));
+                    put("A", Arrays.asList("B", "b"));
+                    put("B", Arrays.asList("S", "cA"));
+                }});
+
+        chomsky.eliminateUnitProductions();
+
+        Map<String, List<String>> expected = new HashMap<>() {{
+            put("S", Arrays.asList("a", "b", "cA"));
+            put("A", Arrays.asList("b", "cA", "a"));
+            put("B", Arrays.asList("cA", "a", "b"));
+        }};
+
+        assertEquals(expected, chomsky.getProductions());
+    }
+
     @Test
     public void testEliminateInaccessibleSymbols1() {
         Chomsky chomsky = new Chomsky("S",
@@ -97,7 +141,7 @@ public class ChomskyTest {
 
         Map<String, List<String>> expected = new HashMap<>() {{
             put("S", Arrays.asList("bA", "B", "aA"));
-            put("A", Arrays.asList("aS", "ABAb"));
+            put("A", Arrays.asList("ε", "aS", "ABAb"));
             put("B", Arrays.asList("a", "AbSA"));
             put("D", Arrays.asList("AB"));
         }};
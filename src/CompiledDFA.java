@@ -0,0 +1,226 @@
+import java.nio.IntBuffer;
+import java.util.*;
+
+public final class CompiledDFA implements Matcher {
+    public static final int DEAD = -1;
+
+    private final String[] stateNames;
+    private final String[] symbols;
+    private final int[] symbolClass;
+    private final int classCount;
+    private final int start;
+    private final int[] table;
+    private final boolean[] accepting;
+    private final int[] charClass;
+
+    CompiledDFA(String[] stateNames, String[] symbols, int[] symbolClass, int classCount,
+                int start, int[] table, boolean[] accepting) {
+        this.stateNames = stateNames;
+        this.symbols = symbols;
+        this.symbolClass = symbolClass;
+        this.classCount = classCount;
+        this.start = start;
+        this.table = table;
+        this.accepting = accepting;
+        this.charClass = buildCharClass(symbols, symbolClass);
+    }
+
+    // States are numbered with the start state first and the rest in sorted order, symbols are
+    // sorted, and symbols whose columns are identical share one class in the flat table.
+    public static CompiledDFA compile(Set<String> Q, Set<String> Sigma, Map<Pair<String, String>, Set<String>> delta,
+                                      String q0, Set<String> F) {
+        List<String> names = new ArrayList<>(new TreeSet<>(Q));
+        names.remove(q0);
+        names.add(0, q0);
+        Map<String, Integer> stateIndex = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            stateIndex.put(names.get(i), i);
+        }
+
+        String[] symbols = new TreeSet<>(Sigma).toArray(new String[0]);
+        Map<String, Integer> symbolIndex = new HashMap<>();
+        for (int i = 0; i < symbols.length; i++) {
+            symbolIndex.put(symbols[i], i);
+        }
+        int n = names.size();
+        int[] table = new int[n * symbols.length];
+        Arrays.fill(table, DEAD);
+        for (Map.Entry<Pair<String, String>, Set<String>> entry : delta.entrySet()) {
+            Integer from = stateIndex.get(entry.getKey().getFirst());
+            Integer symbol = symbolIndex.get(entry.getKey().getSecond());
+            Integer to = resolveTarget(entry.getValue(), stateIndex);
+            if (from != null && symbol != null && to != null) {
+                table[from * symbols.length + symbol] = to;
+            }
+        }
+
+        boolean[] accepting = new boolean[n];
+        for (int s = 0; s < n; s++) {
+            accepting[s] = F.contains(names.get(s));
+        }
+        return fromTable(names.toArray(new String[0]), symbols, 0, table, accepting);
+    }
+
+    // table is indexed by state * symbols.length + symbol; symbols must already be sorted.
+    static CompiledDFA fromTable(String[] stateNames, String[] symbols, int start, int[] table, boolean[] accepting) {
+        int n = stateNames.length;
+        int[] symbolClass = new int[symbols.length];
+        List<int[]> classColumns = new ArrayList<>();
+        Map<IntBuffer, Integer> columnClass = new HashMap<>();
+        for (int i = 0; i < symbols.length; i++) {
+            int[] column = new int[n];
+            for (int s = 0; s < n; s++) {
+                column[s] = table[s * symbols.length + i];
+            }
+            Integer c = columnClass.get(IntBuffer.wrap(column));
+            if (c == null) {
+                c = classColumns.size();
+                columnClass.put(IntBuffer.wrap(column), c);
+                classColumns.add(column);
+            }
+            symbolClass[i] = c;
+        }
+
+        int classCount = classColumns.size();
+        int[] classTable = new int[n * classCount];
+        for (int c = 0; c < classCount; c++) {
+            int[] column = classColumns.get(c);
+            for (int s = 0; s < n; s++) {
+                classTable[s * classCount + c] = column[s];
+            }
+        }
+        return new CompiledDFA(stateNames, symbols, symbolClass, classCount, start, classTable, accepting);
+    }
+
+    private static Integer resolveTarget(Set<String> target, Map<String, Integer> stateIndex) {
+        if (target.size() == 1) {
+            return stateIndex.get(target.iterator().next());
+        }
+        return null;
+    }
+
+    private static int[] buildCharClass(String[] symbols, int[] symbolClass) {
+        int max = -1;
+        for (String symbol : symbols) {
+            if (symbol.length() == 1) {
+                max = Math.max(max, symbol.charAt(0));
+            }
+        }
+        int[] charClass = new int[max + 1];
+        Arrays.fill(charClass, DEAD);
+        for (int i = 0; i < symbols.length; i++) {
+            if (symbols[i].length() == 1) {
+                charClass[symbols[i].charAt(0)] = symbolClass[i];
+            }
+        }
+        return charClass;
+    }
+
+    @Override
+    public boolean accepts(CharSequence input) {
+        int[] table = this.table;
+        int[] charClass = this.charClass;
+        int classCount = this.classCount;
+        int state = start;
+        for (int i = 0, n = input.length(); i < n; i++) {
+            char c = input.charAt(i);
+            if (c >= charClass.length) {
+                return false;
+            }
+            int k = charClass[c];
+            if (k == DEAD) {
+                return false;
+            }
+            state = table[state * classCount + k];
+            if (state == DEAD) {
+                return false;
+            }
+        }
+        return accepting[state];
+    }
+
+    public boolean accepts(char[] input, int offset, int length) {
+        int[] table = this.table;
+        int[] charClass = this.charClass;
+        int classCount = this.classCount;
+        int state = start;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            char c = input[i];
+            if (c >= charClass.length) {
+                return false;
+            }
+            int k = charClass[c];
+            if (k == DEAD) {
+                return false;
+            }
+            state = table[state * classCount + k];
+            if (state == DEAD) {
+                return false;
+            }
+        }
+        return accepting[state];
+    }
+
+    public int step(int state, char c) {
+        if (state == DEAD || c >= charClass.length || charClass[c] == DEAD) {
+            return DEAD;
+        }
+        return table[state * classCount + charClass[c]];
+    }
+
+    public int stateCount() {
+        return stateNames.length;
+    }
+
+    public int classCount() {
+        return classCount;
+    }
+
+    public int startState() {
+        return start;
+    }
+
+    public boolean isAccepting(int state) {
+        return state != DEAD && accepting[state];
+    }
+
+    public String stateName(int state) {
+        return stateNames[state];
+    }
+
+    public String[] symbols() {
+        return symbols.clone();
+    }
+
+    public int symbolClass(int symbol) {
+        return symbolClass[symbol];
+    }
+
+    public int next(int state, int symbolClass) {
+        return table[state * classCount + symbolClass];
+    }
+
+    // Structural equality: state names are labels and do not take part.
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CompiledDFA that = (CompiledDFA) o;
+        return start == that.start
+                && classCount == that.classCount
+                && Arrays.equals(symbols, that.symbols)
+                && Arrays.equals(symbolClass, that.symbolClass)
+                && Arrays.equals(table, that.table)
+                && Arrays.equals(accepting, that.accepting);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = start;
+        result = 31 * result + Arrays.hashCode(symbols);
+        result = 31 * result + Arrays.hashCode(symbolClass);
+        result = 31 * result + Arrays.hashCode(table);
+        result = 31 * result + Arrays.hashCode(accepting);
+        return result;
+    }
+}
@@ -0,0 +1,137 @@
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CompiledDFATest {
+
+    // A FiniteAutomaton and the CompiledDFA of the same transitions, so that each can check the
+    // other; missing transitions stay missing in both.
+    private static final class Automata {
+        final FiniteAutomaton automaton;
+        final CompiledDFA compiled;
+
+        Automata(Set<String> states, Set<String> alphabet, Map<String, Map<String, String>> transitions,
+                 String start, Set<String> accepting) {
+            Map<Pair<String, String>, Set<String>> delta = new HashMap<>();
+            for (Map.Entry<String, Map<String, String>> outgoing : transitions.entrySet()) {
+                for (Map.Entry<String, String> edge : outgoing.getValue().entrySet()) {
+                    delta.put(new Pair<>(outgoing.getKey(), edge.getKey()), Set.of(edge.getValue()));
+                }
+            }
+            this.automaton = new FiniteAutomaton(states, accepting, transitions, start);
+            this.compiled = CompiledDFA.compile(states, alphabet, delta, start, accepting);
+        }
+    }
+
+    private static Automata random(Random random, int n, String alphabet) {
+        Set<String> states = new HashSet<>();
+        Set<String> accepting = new HashSet<>();
+        Map<String, Map<String, String>> transitions = new HashMap<>();
+        for (int q = 0; q < n; q++) {
+            states.add("s" + q);
+            if (random.nextInt(3) == 0) {
+                accepting.add("s" + q);
+            }
+            Map<String, String> outgoing = new HashMap<>();
+            for (char a : alphabet.toCharArray()) {
+                if (random.nextInt(4) > 0) {
+                    outgoing.put(String.valueOf(a), "s" + random.nextInt(n));
+                }
+            }
+            transitions.put("s" + q, outgoing);
+        }
+        Set<String> symbols = new HashSet<>();
+        for (char a : alphabet.toCharArray()) {
+            symbols.add(String.valueOf(a));
+        }
+        return new Automata(states, symbols, transitions, "s0", accepting);
+    }
+
+    // accepts over a CharSequence, over a char[] slice, and step by step must all agree.
+    private static void assertAgrees(Automata automata, String word) {
+        boolean expected = automata.automaton.accepts(word);
+        CompiledDFA dfa = automata.compiled;
+        assertEquals(word, expected, dfa.accepts(word));
+        char[] padded = ("xx" + word + "yy").toCharArray();
+        assertEquals(word, expected, dfa.accepts(padded, 2, word.length()));
+        int state = dfa.startState();
+        for (int i = 0; i < word.length(); i++) {
+            state = dfa.step(state, word.charAt(i));
+        }
+        assertEquals(word, expected, dfa.isAccepting(state));
+    }
+
+    @Test
+    public void testAgreesWithFiniteAutomaton() {
+        Random random = new Random(1);
+        for (int round = 0; round < 300; round++) {
+            String alphabet = round % 2 == 0 ? "abc" : "abcxyz";
+            Automata automata = random(random, 1 + random.nextInt(12), alphabet);
+            assertAgrees(automata, "");
+            for (int w = 0; w < 100; w++) {
+                StringBuilder word = new StringBuilder();
+                for (int j = random.nextInt(12); j > 0; j--) {
+                    int r = random.nextInt(60);
+                    // Chars outside the alphabet, below and above its highest char.
+                    word.append(r == 0 ? 'd' : r == 1 ? '\u0100' : alphabet.charAt(random.nextInt(alphabet.length())));
+                }
+                assertAgrees(automata, word.toString());
+            }
+        }
+    }
+
+    // The automaton from Main: q2 has no a-transition, q4 none at all, and q0 none on b or c.
+    @Test
+    public void testDeadAndPartialTransitions() {
+        Map<String, Map<String, String>> transitions = new HashMap<>();
+        transitions.put("q0", Map.of("a", "q1"));
+        transitions.put("q1", Map.of("b", "q0", "a", "q2"));
+        transitions.put("q2", Map.of("b", "q3"));
+        transitions.put("q3", Map.of("a", "q0", "b", "q2", "c", "q0"));
+        transitions.put("q4", Map.of());
+        Automata automata = new Automata(Set.of("q0", "q1", "q2", "q3", "q4"), Set.of("a", "b", "c"), transitions, "q0",
+                Set.of("q0"));
+        CompiledDFA dfa = automata.compiled;
+        for (String word : List.of("", "ab", "abab", "aabc", "aabba", "aabbbc", "aabca")) {
+            assertAgrees(automata, word);
+        }
+        assertTrue(dfa.accepts("aabc"));
+        assertTrue(dfa.accepts("aabbbc"));
+        assertFalse(dfa.accepts("aabca"));
+        // Partial: q2 --a--> is missing, and so is q0 --b-->.
+        assertFalse(dfa.accepts("aaa"));
+        assertEquals(CompiledDFA.DEAD, dfa.step(dfa.step(dfa.step(dfa.startState(), 'a'), 'a'), 'a'));
+        assertFalse(dfa.accepts("b"));
+        assertFalse(dfa.accepts("ba"));
+        // DEAD absorbs every char.
+        assertEquals(CompiledDFA.DEAD, dfa.step(CompiledDFA.DEAD, 'a'));
+        assertFalse(dfa.isAccepting(CompiledDFA.DEAD));
+        assertFalse(dfa.accepts("abd"));
+        assertEquals(0, dfa.startState());
+        assertEquals("q0", dfa.stateName(0));
+    }
+
+    // Symbols with identical columns share one class; one that no state reads is DEAD everywhere.
+    @Test
+    public void testSharedClasses() {
+        Map<String, Map<String, String>> transitions = new HashMap<>();
+        transitions.put("p", Map.of("x", "q", "y", "q", "z", "p"));
+        transitions.put("q", Map.of("x", "p", "y", "p"));
+        Automata automata = new Automata(Set.of("p", "q"), Set.of("w", "x", "y", "z"), transitions, "p", Set.of("q"));
+        CompiledDFA dfa = automata.compiled;
+        assertEquals(3, dfa.classCount());
+        String[] symbols = dfa.symbols();
+        assertEquals(List.of("w", "x", "y", "z"), Arrays.asList(symbols));
+        assertEquals(dfa.symbolClass(1), dfa.symbolClass(2));
+        for (int s = 0; s < dfa.stateCount(); s++) {
+            assertEquals(CompiledDFA.DEAD, dfa.next(s, dfa.symbolClass(0)));
+        }
+        for (String word : List.of("x", "y", "zzx", "xy", "xyx", "yz", "w", "zw", "xw")) {
+            assertAgrees(automata, word);
+        }
+    }
+}
@@ -6,6 +6,7 @@ public class DFA {
     private Map<Pair<String, String>, Set<String>> delta;
     private String q0;
     private Set<String> F;
+    private final CompiledDFA compiled;
 
     public DFA(Set<String> Q, Set<String> Sigma, Map<Pair<String, String>, Set<String>> delta, String q0, Set<String> F) {
         this.Q = Q;
@@ -13,16 +14,49 @@ public class DFA {
         this.delta = delta;
         this.q0 = q0;
         this.F = F;
+        this.compiled = CompiledDFA.compile(Q, Sigma, delta, q0, F);
     }
 
-    public boolean accepts(String input) {
-        String currentState = q0;
-        for (char c : input.toCharArray()) {
-            if (!delta.containsKey(new Pair<>(currentState, Character.toString(c)))) {
-                return false;
+    public DFA(CompiledDFA compiled) {
+        this.Q = new HashSet<>();
+        this.Sigma = new HashSet<>(Arrays.asList(compiled.symbols()));
+        this.delta = new HashMap<>();
+        this.q0 = compiled.stateName(compiled.startState());
+        this.F = new HashSet<>();
+        String[] symbols = compiled.symbols();
+        for (int s = 0; s < compiled.stateCount(); s++) {
+            String name = compiled.stateName(s);
+            Q.add(name);
+            if (compiled.isAccepting(s)) {
+                F.add(name);
+            }
+            for (int a = 0; a < symbols.length; a++) {
+                int target = compiled.next(s, compiled.symbolClass(a));
+                if (target != CompiledDFA.DEAD) {
+                    delta.put(new Pair<>(name, symbols[a]), Collections.singleton(compiled.stateName(target)));
+                }
             }
-            currentState = delta.get(new Pair<>(currentState, Character.toString(c))).toString();
         }
-        return F.contains(currentState);
+        this.compiled = compiled;
+    }
+
+    public boolean accepts(String input) {
+        return compiled.accepts(input);
+    }
+
+    public boolean accepts(char[] input, int offset, int length) {
+        return compiled.accepts(input, offset, length);
+    }
+
+    public CompiledDFA compile() {
+        return compiled;
+    }
+
+    public DFAEnumerator enumerator(int maxLength) {
+        return new DFAEnumerator(compiled, maxLength);
+    }
+
+    public DFA minimize() {
+        return new DFA(Minimizer.minimize(compiled));
     }
 }
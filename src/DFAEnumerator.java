@@ -0,0 +1,49 @@
+import java.math.BigInteger;
+
+// counts[l][s] is the number of words of length l accepted from state s. Symbols that share a
+// column of the transition table are counted together, so each entry costs one pass over the
+// symbol classes.
+public class DFAEnumerator extends LanguageEnumerator {
+    private final CompiledDFA dfa;
+    private final BigInteger[][] counts;
+
+    public DFAEnumerator(CompiledDFA dfa, int maxLength) {
+        super(dfa.symbols(), maxLength);
+        this.dfa = dfa;
+        int states = dfa.stateCount();
+        BigInteger[] classSize = new BigInteger[dfa.classCount()];
+        int[] members = new int[dfa.classCount()];
+        for (int a = 0; a < dfa.symbols().length; a++) {
+            members[dfa.symbolClass(a)]++;
+        }
+        for (int c = 0; c < members.length; c++) {
+            classSize[c] = BigInteger.valueOf(members[c]);
+        }
+
+        this.counts = new BigInteger[maxLength + 1][states];
+        for (int s = 0; s < states; s++) {
+            counts[0][s] = dfa.isAccepting(s) ? BigInteger.ONE : BigInteger.ZERO;
+        }
+        for (int l = 1; l <= maxLength; l++) {
+            for (int s = 0; s < states; s++) {
+                BigInteger sum = BigInteger.ZERO;
+                for (int c = 0; c < classSize.length; c++) {
+                    int target = dfa.next(s, c);
+                    if (target != CompiledDFA.DEAD && counts[l - 1][target].signum() != 0) {
+                        sum = sum.add(classSize[c].multiply(counts[l - 1][target]));
+                    }
+                }
+                counts[l][s] = sum;
+            }
+        }
+    }
+
+    @Override
+    protected BigInteger completions(int[] prefix, int m, int n) {
+        int state = dfa.startState();
+        for (int i = 0; i < m && state != CompiledDFA.DEAD; i++) {
+            state = dfa.next(state, dfa.symbolClass(prefix[i]));
+        }
+        return state == CompiledDFA.DEAD ? BigInteger.ZERO : counts[n - m][state];
+    }
+}
@@ -0,0 +1,230 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+// Byte-level matching with a CompiledDFA flattened to one 256-column row per state, plus an
+// absorbing sink row standing in for DEAD, so a step is a single load with no class lookup and
+// no branch. States that loop on all but at most MAX_EXITS bytes skip ahead by searching for the
+// next exit byte instead of stepping; that search uses VectorSkip when jdk.incubator.vector is
+// loaded and vectorized is on, and a scalar loop otherwise. acceptLines interleaves LANES
+// independent scans of different lines in one loop, so the dependent table loads of one lane
+// overlap with the others.
+//
+// The lanes stay scalar even when vectorized is on. A vector step would first gather one byte per
+// lane from unrelated offsets, and x86 has no byte gather (its gathers load 32- or 64-bit
+// elements), so the Vector API can only emulate that load lane by lane. The '\n' handling would
+// then add a masked blend back to start and a per-lane accept test. The table loads, which are
+// what interleaving is for, already overlap in the scalar loop.
+public final class DFAScanner {
+    public static final int LANES = 4;
+    // Whether the JVM was started with --add-modules jdk.incubator.vector.
+    public static final boolean VECTOR_AVAILABLE = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    private static final int MAX_EXITS = 3;
+
+    private final CompiledDFA dfa;
+    private final int start;
+    private final int sink;
+    private final int[] table;
+    private final boolean[] accepting;
+    // For each state its exit bytes, padded with the first one when there are 2 or 3, or null
+    // when there are more.
+    private final byte[][] exits;
+    private final boolean vectorized;
+
+    public DFAScanner(CompiledDFA dfa) {
+        this(dfa, VECTOR_AVAILABLE);
+    }
+
+    public DFAScanner(CompiledDFA dfa, boolean vectorized) {
+        if (vectorized && !VECTOR_AVAILABLE) {
+            throw new IllegalStateException("The vectorized scanner needs --add-modules jdk.incubator.vector");
+        }
+        this.dfa = dfa;
+        this.vectorized = vectorized;
+        int n = dfa.stateCount();
+        this.start = dfa.startState();
+        this.sink = n;
+        this.table = new int[(n + 1) << 8];
+        this.accepting = new boolean[n + 1];
+        this.exits = new byte[n + 1][];
+        for (int s = 0; s <= n; s++) {
+            byte[] found = new byte[256];
+            int exitCount = 0;
+            for (int c = 0; c < 256; c++) {
+                int target = s == n ? CompiledDFA.DEAD : dfa.step(s, (char) c);
+                table[(s << 8) | c] = target == CompiledDFA.DEAD ? sink : target;
+                if (table[(s << 8) | c] != s) {
+                    found[exitCount++] = (byte) c;
+                }
+            }
+            accepting[s] = s < n && dfa.isAccepting(s);
+            if (exitCount == 0) {
+                exits[s] = new byte[0];
+            } else if (exitCount == 1) {
+                exits[s] = new byte[]{found[0]};
+            } else if (exitCount <= MAX_EXITS) {
+                byte[] padded = new byte[MAX_EXITS];
+                Arrays.fill(padded, found[0]);
+                System.arraycopy(found, 0, padded, 0, exitCount);
+                exits[s] = padded;
+            }
+        }
+    }
+
+    public boolean vectorized() {
+        return vectorized;
+    }
+
+    public boolean accepts(CharSequence input) {
+        int state = start;
+        for (int i = 0, n = input.length(); i < n; i++) {
+            char c = input.charAt(i);
+            if (c < 256) {
+                state = table[(state << 8) | c];
+            } else {
+                state = state == sink ? sink : dfa.step(state, c);
+                state = state == CompiledDFA.DEAD ? sink : state;
+            }
+            if (state == sink) {
+                return false;
+            }
+        }
+        return accepting[state];
+    }
+
+    // Bytes are read as ISO-8859-1 chars.
+    public boolean accepts(byte[] data, int from, int to) {
+        int[] table = this.table;
+        int state = start;
+        for (int i = from; i < to; i++) {
+            state = table[(state << 8) | (data[i] & 0xFF)];
+            byte[] exit = exits[state];
+            if (exit != null) {
+                if (state == sink) {
+                    return false;
+                }
+                i = (vectorized && exit.length > 0 && to - i > VectorSkip.MIN_LENGTH
+                        ? VectorSkip.skip(data, i + 1, to, exit) : skip(data, i + 1, to, exit)) - 1;
+            }
+        }
+        return accepting[state];
+    }
+
+    // The first index from i on holding an exit byte, or to when there is none.
+    private static int skip(byte[] data, int i, int to, byte[] exit) {
+        if (exit.length == 0) {
+            return to;
+        }
+        byte e0 = exit[0];
+        if (exit.length == 1) {
+            while (i < to && data[i] != e0) {
+                i++;
+            }
+            return i;
+        }
+        byte e1 = exit[1];
+        byte e2 = exit[2];
+        while (i < to) {
+            byte b = data[i];
+            if (b == e0 || b == e1 || b == e2) {
+                return i;
+            }
+            i++;
+        }
+        return to;
+    }
+
+    // Matches every '\n'-terminated line in data[from, to) (the last one may lack its '\n') and
+    // sets bit i of accepted when line i matches. Returns the number of lines. The range is cut at
+    // line boundaries into LANES regions that are scanned side by side.
+    public int acceptLines(byte[] data, int from, int to, BitSet accepted) {
+        int[] bounds = new int[LANES + 1];
+        bounds[0] = from;
+        bounds[LANES] = to;
+        for (int k = 1; k < LANES; k++) {
+            int b = Math.max(bounds[k - 1], from + (int) ((long) (to - from) * k / LANES));
+            while (b < to && b > from && data[b - 1] != '\n') {
+                b++;
+            }
+            bounds[k] = b;
+        }
+
+        int[] table = this.table;
+        int start = this.start;
+        int p0 = bounds[0], p1 = bounds[1], p2 = bounds[2], p3 = bounds[3];
+        int s0 = start, s1 = start, s2 = start, s3 = start;
+        int l0 = 0, l1 = 0, l2 = 0, l3 = 0;
+        BitSet a0 = new BitSet(), a1 = new BitSet(), a2 = new BitSet(), a3 = new BitSet();
+        int common = Math.min(Math.min(bounds[1] - p0, bounds[2] - p1), Math.min(bounds[3] - p2, bounds[4] - p3));
+        for (int j = 0; j < common; j++) {
+            byte b0 = data[p0 + j], b1 = data[p1 + j], b2 = data[p2 + j], b3 = data[p3 + j];
+            if (b0 == '\n') {
+                if (accepting[s0]) {
+                    a0.set(l0);
+                }
+                l0++;
+                s0 = start;
+            } else {
+                s0 = table[(s0 << 8) | (b0 & 0xFF)];
+            }
+            if (b1 == '\n') {
+                if (accepting[s1]) {
+                    a1.set(l1);
+                }
+                l1++;
+                s1 = start;
+            } else {
+                s1 = table[(s1 << 8) | (b1 & 0xFF)];
+            }
+            if (b2 == '\n') {
+                if (accepting[s2]) {
+                    a2.set(l2);
+                }
+                l2++;
+                s2 = start;
+            } else {
+                s2 = table[(s2 << 8) | (b2 & 0xFF)];
+            }
+            if (b3 == '\n') {
+                if (accepting[s3]) {
+                    a3.set(l3);
+                }
+                l3++;
+                s3 = start;
+            } else {
+                s3 = table[(s3 << 8) | (b3 & 0xFF)];
+            }
+        }
+
+        int[] states = {s0, s1, s2, s3};
+        int[] lines = {l0, l1, l2, l3};
+        BitSet[] lanes = {a0, a1, a2, a3};
+        int total = 0;
+        for (int k = 0; k < LANES; k++) {
+            int state = states[k];
+            int line = lines[k];
+            for (int i = bounds[k] + common; i < bounds[k + 1]; i++) {
+                byte b = data[i];
+                if (b == '\n') {
+                    if (accepting[state]) {
+                        lanes[k].set(line);
+                    }
+                    line++;
+                    state = start;
+                } else {
+                    state = table[(state << 8) | (b & 0xFF)];
+                }
+            }
+            if (bounds[k + 1] > bounds[k] && data[bounds[k + 1] - 1] != '\n') {
+                if (accepting[state]) {
+                    lanes[k].set(line);
+                }
+                line++;
+            }
+            for (int i = lanes[k].nextSetBit(0); i >= 0; i = lanes[k].nextSetBit(i + 1)) {
+                accepted.set(total + i);
+            }
+            total += line;
+        }
+        return total;
+    }
+}
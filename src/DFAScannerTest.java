@@ -0,0 +1,104 @@
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DFAScannerTest {
+
+    // Lines containing "qz" over the lowercase letters and ' ': the start state loops on all but
+    // 'q', so the scanner skips ahead for most of each line.
+    static CompiledDFA containsQz() {
+        NFA.Builder builder = new NFA.Builder().setStart("0").addAccepting("2");
+        for (char c = 'a'; c <= 'z'; c++) {
+            String a = String.valueOf(c);
+            builder.addTransition("0", a, "0").addTransition("1", a, "0").addTransition("2", a, "2");
+        }
+        builder.addTransition("0", " ", "0").addTransition("1", " ", "0").addTransition("2", " ", "2");
+        NFA nfa = builder.addTransition("0", "q", "1").addTransition("1", "q", "1").addTransition("1", "z", "2").build();
+        return Minimizer.minimize(Determinizer.determinize(nfa));
+    }
+
+    private static String line(Random random, int length) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            int r = random.nextInt(30);
+            line.append(r < 26 ? (char) ('a' + r) : r < 29 ? ' ' : '!');
+        }
+        return line.toString();
+    }
+
+    private static void check(CompiledDFA dfa, List<String> lines) {
+        List<DFAScanner> scanners = new ArrayList<>(List.of(new DFAScanner(dfa, false)));
+        if (DFAScanner.VECTOR_AVAILABLE) {
+            scanners.add(new DFAScanner(dfa, true));
+        }
+        byte[] corpus = (String.join("\n", lines) + "\n").getBytes(StandardCharsets.ISO_8859_1);
+        for (DFAScanner scanner : scanners) {
+            BitSet expected = new BitSet();
+            int from = 0;
+            for (int i = 0; i < lines.size(); i++) {
+                String line = lines.get(i);
+                byte[] bytes = line.getBytes(StandardCharsets.ISO_8859_1);
+                assertEquals(line, dfa.accepts(line), scanner.accepts(line));
+                assertEquals(line, dfa.accepts(line), scanner.accepts(bytes, 0, bytes.length));
+                assertEquals(line, dfa.accepts(line), scanner.accepts(corpus, from, from + bytes.length));
+                expected.set(i, dfa.accepts(line));
+                from += bytes.length + 1;
+            }
+            BitSet accepted = new BitSet();
+            assertEquals(lines.size(), scanner.acceptLines(corpus, 0, corpus.length, accepted));
+            assertEquals(expected, accepted);
+        }
+    }
+
+    @Test
+    public void testSelfLoopSkipping() {
+        Random random = new Random(1);
+        List<String> lines = new ArrayList<>(List.of("", "qz", "q", "z", "qqz", " qz ", "!qz"));
+        for (int i = 0; i < 500; i++) {
+            String line = line(random, random.nextInt(300));
+            // Plant the match at every offset, including inside and past the last vector.
+            if (random.nextBoolean() && !line.isEmpty()) {
+                int at = random.nextInt(line.length());
+                line = line.substring(0, at) + "qz" + line.substring(at);
+            }
+            lines.add(line);
+        }
+        check(containsQz(), lines);
+    }
+
+    @Test
+    public void testAgreesWithCompiledDFA() {
+        Random random = new Random(2);
+        List<String> lines = DeterminizerTest.words(random, 300);
+        for (FiniteAutomaton automaton : DeterminizerTest.automata(random, 100)) {
+            check(Determinizer.determinize(automaton.toNFA()), lines);
+        }
+    }
+
+    @Test
+    public void testVectorSkipAgreesWithScalar() {
+        if (!DFAScanner.VECTOR_AVAILABLE) {
+            return;
+        }
+        Random random = new Random(3);
+        for (int round = 0; round < 2000; round++) {
+            byte[] data = new byte[random.nextInt(400)];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = (byte) (random.nextInt(200) == 0 ? 'x' + random.nextInt(3) : 'a');
+            }
+            int from = data.length == 0 ? 0 : random.nextInt(data.length);
+            byte[] exit = random.nextBoolean() ? new byte[]{'x'} : new byte[]{'x', 'y', 'z'};
+            int expected = from;
+            while (expected < data.length && data[expected] != 'x'
+                    && (exit.length == 1 || data[expected] != 'y' && data[expected] != 'z')) {
+                expected++;
+            }
+            assertEquals(expected, VectorSkip.skip(data, from, data.length, exit));
+        }
+        assertTrue(VectorSkip.MIN_LENGTH > 1);
+    }
+}
@@ -0,0 +1,46 @@
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+public final class Determinizer {
+    private Determinizer() {
+    }
+
+    public static CompiledDFA determinize(NFA nfa) {
+        return determinize(nfa, i -> "q" + i);
+    }
+
+    // Subset construction over bitsets. DFA state 0 is the epsilon closure of the NFA start
+    // state; the empty subset is not materialized and becomes the DEAD sentinel instead.
+    public static CompiledDFA determinize(NFA nfa, IntFunction<String> stateName) {
+        int words = nfa.words();
+        int k = nfa.symbolCount();
+        SubsetTable subsets = new SubsetTable(words, Math.max(16, nfa.stateCount()));
+        long[] current = new long[words];
+        long[] next = new long[words];
+
+        nfa.startSet(current);
+        subsets.add(current);
+
+        int[] table = new int[16 * Math.max(1, k)];
+        boolean[] accepting = new boolean[16];
+        for (int id = 0; id < subsets.size(); id++) {
+            subsets.get(id, current);
+            if (id == accepting.length) {
+                accepting = Arrays.copyOf(accepting, id * 2);
+                table = Arrays.copyOf(table, id * 2 * k);
+            }
+            accepting[id] = nfa.containsAccepting(current);
+            for (int a = 0; a < k; a++) {
+                nfa.step(current, a, next);
+                table[id * k + a] = NFA.isEmpty(next) ? CompiledDFA.DEAD : subsets.add(next);
+            }
+        }
+
+        int n = subsets.size();
+        String[] names = new String[n];
+        for (int i = 0; i < n; i++) {
+            names[i] = stateName.apply(i);
+        }
+        return CompiledDFA.fromTable(names, nfa.symbols(), 0, Arrays.copyOf(table, n * k), Arrays.copyOf(accepting, n));
+    }
+}
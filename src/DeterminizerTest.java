@@ -0,0 +1,191 @@
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+public class DeterminizerTest {
+
+    // The FiniteAutomaton in Main.
+    static FiniteAutomaton mainAutomaton() {
+        Map<String, Map<String, String>> transitions = new HashMap<>();
+        transitions.put("q0", new HashMap<>(Map.of("a", "q1")));
+        transitions.put("q1", new HashMap<>(Map.of("b", "q0", "a", "q2")));
+        transitions.put("q2", new HashMap<>(Map.of("b", "q3")));
+        transitions.put("q3", new HashMap<>(Map.of("a", "q0", "b", "q2", "c", "q0")));
+        transitions.put("q4", new HashMap<>());
+        return new FiniteAutomaton(new HashSet<>(Arrays.asList("q0", "q1", "q2", "q3", "q4")),
+                new HashSet<>(List.of("q0")), transitions, "q0");
+    }
+
+    // The FA in Main; its second q0 --a--> transition replaces the first.
+    static FA mainFa() {
+        Map<Pair<String, String>, String> delta = new HashMap<>();
+        delta.put(new Pair<>("q0", "a"), "q1");
+        delta.put(new Pair<>("q2", "a"), "q2");
+        delta.put(new Pair<>("q1", "b"), "q2");
+        delta.put(new Pair<>("q2", "c"), "q3");
+        delta.put(new Pair<>("q3", "c"), "q3");
+        return new FA(new HashSet<>(Arrays.asList("q0", "q1", "q2", "q3")), new HashSet<>(Arrays.asList("a", "b", "c")),
+                delta, "q0", new HashSet<>(List.of("q3")));
+    }
+
+    // The same automaton as mainFa, as a FiniteAutomaton.
+    static FiniteAutomaton mainFaAutomaton() {
+        Map<String, Map<String, String>> transitions = new HashMap<>();
+        transitions.put("q0", new HashMap<>(Map.of("a", "q1")));
+        transitions.put("q1", new HashMap<>(Map.of("b", "q2")));
+        transitions.put("q2", new HashMap<>(Map.of("a", "q2", "c", "q3")));
+        transitions.put("q3", new HashMap<>(Map.of("c", "q3")));
+        return new FiniteAutomaton(new HashSet<>(Arrays.asList("q0", "q1", "q2", "q3")),
+                new HashSet<>(List.of("q3")), transitions, "q0");
+    }
+
+    // A partial deterministic automaton over {a, b, c}.
+    static FiniteAutomaton randomAutomaton(Random random, int n) {
+        Set<String> states = new HashSet<>();
+        Set<String> accepting = new HashSet<>();
+        Map<String, Map<String, String>> transitions = new HashMap<>();
+        for (int q = 0; q < n; q++) {
+            states.add("s" + q);
+            if (random.nextInt(3) == 0) {
+                accepting.add("s" + q);
+            }
+            Map<String, String> outgoing = new HashMap<>();
+            for (String a : new String[]{"a", "b", "c"}) {
+                if (random.nextInt(4) > 0) {
+                    outgoing.put(a, "s" + random.nextInt(n));
+                }
+            }
+            transitions.put("s" + q, outgoing);
+        }
+        return new FiniteAutomaton(states, accepting, transitions, "s0");
+    }
+
+    // The automata in Main followed by random ones.
+    static List<FiniteAutomaton> automata(Random random, int count) {
+        List<FiniteAutomaton> automata = new ArrayList<>(List.of(mainAutomaton(), mainFaAutomaton()));
+        for (int i = 0; i < count; i++) {
+            automata.add(randomAutomaton(random, 1 + random.nextInt(12)));
+        }
+        return automata;
+    }
+
+    // Words over {a, b, c} with an occasional 'd', which no automaton here reads.
+    static List<String> words(Random random, int count) {
+        List<String> words = new ArrayList<>(List.of("", "a", "ab", "aba", "abc", "abacc"));
+        for (int i = 0; i < count; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int j = random.nextInt(10); j > 0; j--) {
+                word.append(random.nextInt(40) == 0 ? 'd' : (char) ('a' + random.nextInt(3)));
+            }
+            words.add(word.toString());
+        }
+        return words;
+    }
+
+    // A nondeterministic automaton with epsilon moves, kept as maps so that it can be simulated
+    // directly.
+    static final class RandomNfa {
+        final int n;
+        final Map<Integer, Map<String, Set<Integer>>> moves = new HashMap<>();
+        final Set<Integer> accepting = new HashSet<>();
+
+        RandomNfa(Random random, int n) {
+            this.n = n;
+            for (int q = 0; q < n; q++) {
+                if (random.nextInt(4) == 0) {
+                    accepting.add(q);
+                }
+                for (int t = random.nextInt(5); t > 0; t--) {
+                    String symbol = random.nextInt(6) == 0 ? NFA.EPSILON : String.valueOf((char) ('a' + random.nextInt(3)));
+                    moves.computeIfAbsent(q, k -> new HashMap<>()).computeIfAbsent(symbol, k -> new HashSet<>())
+                            .add(random.nextInt(n));
+                }
+            }
+        }
+
+        NFA build() {
+            NFA.Builder builder = new NFA.Builder().setStart("p0");
+            for (int q = 0; q < n; q++) {
+                builder.addState("p" + q);
+            }
+            for (String a : new String[]{"a", "b", "c"}) {
+                builder.addSymbol(a);
+            }
+            moves.forEach((q, out) -> out.forEach((a, targets) -> {
+                for (int r : targets) {
+                    builder.addTransition("p" + q, a, "p" + r);
+                }
+            }));
+            for (int q : accepting) {
+                builder.addAccepting("p" + q);
+            }
+            return builder.build();
+        }
+
+        boolean accepts(String word) {
+            Set<Integer> current = closure(Set.of(0));
+            for (char c : word.toCharArray()) {
+                Set<Integer> next = new HashSet<>();
+                for (int q : current) {
+                    next.addAll(moves.getOrDefault(q, Map.of()).getOrDefault(String.valueOf(c), Set.of()));
+                }
+                current = closure(next);
+            }
+            for (int q : current) {
+                if (accepting.contains(q)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private Set<Integer> closure(Set<Integer> states) {
+            Set<Integer> closure = new HashSet<>(states);
+            Deque<Integer> work = new ArrayDeque<>(states);
+            while (!work.isEmpty()) {
+                for (int r : moves.getOrDefault(work.pop(), Map.of()).getOrDefault(NFA.EPSILON, Set.of())) {
+                    if (closure.add(r)) {
+                        work.push(r);
+                    }
+                }
+            }
+            return closure;
+        }
+    }
+
+    @Test
+    public void testAgreesWithFiniteAutomaton() {
+        Random random = new Random(1);
+        List<String> words = words(random, 300);
+        for (FiniteAutomaton automaton : automata(random, 200)) {
+            CompiledDFA dfa = Determinizer.determinize(automaton.toNFA());
+            for (String word : words) {
+                assertEquals(word, automaton.accepts(word), dfa.accepts(word));
+            }
+        }
+    }
+
+    @Test
+    public void testFaToDfa() {
+        FiniteAutomaton reference = mainFaAutomaton();
+        DFA dfa = mainFa().toDFA();
+        for (String word : words(new Random(2), 500)) {
+            assertEquals(word, reference.accepts(word), dfa.accepts(word));
+        }
+    }
+
+    @Test
+    public void testNondeterministicAutomata() {
+        Random random = new Random(3);
+        List<String> words = words(random, 200);
+        for (int i = 0; i < 200; i++) {
+            RandomNfa nfa = new RandomNfa(random, 1 + random.nextInt(10));
+            CompiledDFA dfa = Determinizer.determinize(nfa.build());
+            for (String word : words) {
+                assertEquals(word, nfa.accepts(word), dfa.accepts(word));
+            }
+        }
+    }
+}
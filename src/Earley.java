@@ -0,0 +1,362 @@
+import java.util.*;
+
+// Earley recognizer over the encoded rules of a Grammar with Aycock-Horspool handling of nullable
+// symbols and Leo's memoization of deterministic right-recursive completions, which keeps
+// right-recursive and unambiguous grammars linear. Items are (dotted position, origin) int pairs
+// stored in growing arrays; the rules themselves are one flat int[] with an END slot after each
+// right-hand side.
+public class Earley {
+    private static final int END = -1;
+    private static final int NONE = -3;
+
+    private final int nonTerminalCount;
+    private final SymbolTable symbols;
+    private final int[] symbolAt;
+    private final int[] ruleAt;
+    private final int[] ruleLhs;
+    private final int[] ruleFirst;
+    private final int[] rulesStart;
+    private final int[] rulesOf;
+    private final boolean[] nullable;
+    private final int acceptPosition;
+
+    // Grammar nonterminals keep their ids, the augmented start S' is the next one, and terminal
+    // ~t is shifted to nonTerminalCount + t so that every chart symbol is non-negative.
+    public Earley(Grammar grammar) {
+        this.symbols = new SymbolTable(grammar.getSymbols());
+        int[][][] grammarRules = grammar.getRules();
+        int augmented = symbols.nonTerminalCount();
+        this.nonTerminalCount = augmented + 1;
+
+        List<int[]> rules = new ArrayList<>();
+        List<Integer> lhs = new ArrayList<>();
+        rules.add(new int[]{symbols.lookup(grammar.getStartSymbol())});
+        lhs.add(augmented);
+        for (int a = 0; a < grammarRules.length; a++) {
+            for (int[] rhs : grammarRules[a]) {
+                int[] shifted = new int[rhs.length];
+                for (int i = 0; i < rhs.length; i++) {
+                    shifted[i] = SymbolTable.isNonTerminal(rhs[i]) ? rhs[i] : nonTerminalCount + ~rhs[i];
+                }
+                rules.add(shifted);
+                lhs.add(a);
+            }
+        }
+
+        int slots = 0;
+        for (int[] rhs : rules) {
+            slots += rhs.length + 1;
+        }
+        this.symbolAt = new int[slots];
+        this.ruleAt = new int[slots];
+        this.ruleLhs = new int[rules.size()];
+        this.ruleFirst = new int[rules.size()];
+        int p = 0;
+        for (int r = 0; r < rules.size(); r++) {
+            ruleLhs[r] = lhs.get(r);
+            ruleFirst[r] = p;
+            for (int symbol : rules.get(r)) {
+                symbolAt[p] = symbol;
+                ruleAt[p++] = r;
+            }
+            symbolAt[p] = END;
+            ruleAt[p++] = r;
+        }
+        this.acceptPosition = ruleFirst[0] + 1;
+
+        this.rulesStart = new int[nonTerminalCount + 1];
+        for (int r = 0; r < rules.size(); r++) {
+            rulesStart[ruleLhs[r] + 1]++;
+        }
+        for (int a = 0; a < nonTerminalCount; a++) {
+            rulesStart[a + 1] += rulesStart[a];
+        }
+        this.rulesOf = new int[rules.size()];
+        int[] fill = Arrays.copyOf(rulesStart, nonTerminalCount);
+        for (int r = 0; r < rules.size(); r++) {
+            rulesOf[fill[ruleLhs[r]]++] = r;
+        }
+
+        this.nullable = new boolean[nonTerminalCount];
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int r = 0; r < rules.size(); r++) {
+                if (nullable[ruleLhs[r]]) {
+                    continue;
+                }
+                boolean all = true;
+                for (int symbol : rules.get(r)) {
+                    if (symbol >= nonTerminalCount || !nullable[symbol]) {
+                        all = false;
+                        break;
+                    }
+                }
+                if (all) {
+                    nullable[ruleLhs[r]] = true;
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    public Recognizer recognizer() {
+        return new Recognizer();
+    }
+
+    public boolean accepts(String input) {
+        Recognizer recognizer = recognizer();
+        for (int i = 0; i < input.length() && recognizer.feed(input.substring(i, i + 1)); i++) {
+        }
+        return recognizer.isAccepted();
+    }
+
+    public boolean recognize(Iterable<String> tokens) {
+        Recognizer recognizer = recognizer();
+        for (String token : tokens) {
+            if (!recognizer.feed(token)) {
+                return false;
+            }
+        }
+        return recognizer.isAccepted();
+    }
+
+    // Consumes one token per feed() call; the chart only grows by the sets it actually needs.
+    public final class Recognizer {
+        private int[] itemPosition = new int[64];
+        private int[] itemOrigin = new int[64];
+        private int[] waitNext = new int[64];
+        private int items;
+        private int[] setStart = new int[16];
+        private int current;
+        private boolean dead;
+
+        // Heads of the wait lists of the set being built, indexed by symbol, and the symbols whose
+        // head is set. closeSet moves them into the wait* arrays below and resets only those
+        // entries, so no per-set work is proportional to the number of nonterminals.
+        private final int[] heads = new int[nonTerminalCount];
+        private int[] touched = new int[16];
+        private int touchedCount;
+        // The finished sets' wait lists, sorted by symbol within each set: set s owns entries
+        // waitStart[s] .. waitStart[s + 1]. waitLeo holds each entry's Leo item, or NONE.
+        private int[] waitStart = new int[16];
+        private int[] waitSymbol = new int[64];
+        private int[] waitHead = new int[64];
+        private int[] waitLeo = new int[64];
+        private int waitCount;
+
+        private long[] seen = new long[64];
+        private int[] seenSlots = new int[32];
+        private int seenSize;
+        private final boolean[] predicted = new boolean[nonTerminalCount];
+        private int[] predictedSymbols = new int[16];
+        private int predictedCount;
+
+        Recognizer() {
+            Arrays.fill(heads, -1);
+            openSet();
+            add(ruleFirst[0], 0);
+            closeSet();
+        }
+
+        public boolean feed(String token) {
+            if (dead) {
+                return false;
+            }
+            int id = symbols.lookup(token);
+            int terminal = id == SymbolTable.NONE || SymbolTable.isNonTerminal(id) ? -1 : nonTerminalCount + ~id;
+            int from = setStart[current];
+            int to = items;
+            current++;
+            openSet();
+            if (terminal >= 0) {
+                for (int i = from; i < to; i++) {
+                    if (symbolAt[itemPosition[i]] == terminal) {
+                        add(itemPosition[i] + 1, itemOrigin[i]);
+                    }
+                }
+            }
+            closeSet();
+            dead = items == setStart[current];
+            return !dead;
+        }
+
+        public boolean isAccepted() {
+            if (dead) {
+                return false;
+            }
+            for (int i = setStart[current]; i < items; i++) {
+                if (itemPosition[i] == acceptPosition && itemOrigin[i] == 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public int position() {
+            return current;
+        }
+
+        private void openSet() {
+            if (current + 1 >= setStart.length) {
+                setStart = Arrays.copyOf(setStart, setStart.length * 2);
+                waitStart = Arrays.copyOf(waitStart, waitStart.length * 2);
+            }
+            setStart[current] = items;
+            for (int i = 0; i < seenSize; i++) {
+                seen[seenSlots[i]] = 0L;
+            }
+            seenSize = 0;
+            for (int i = 0; i < predictedCount; i++) {
+                predicted[predictedSymbols[i]] = false;
+            }
+            predictedCount = 0;
+        }
+
+        private void closeSet() {
+            for (int i = setStart[current]; i < items; i++) {
+                int position = itemPosition[i];
+                int origin = itemOrigin[i];
+                int symbol = symbolAt[position];
+                if (symbol == END) {
+                    if (origin < current) {
+                        complete(ruleLhs[ruleAt[position]], origin);
+                    }
+                } else if (symbol < nonTerminalCount) {
+                    if (!predicted[symbol]) {
+                        predicted[symbol] = true;
+                        if (predictedCount == predictedSymbols.length) {
+                            predictedSymbols = Arrays.copyOf(predictedSymbols, predictedCount * 2);
+                        }
+                        predictedSymbols[predictedCount++] = symbol;
+                        for (int r = rulesStart[symbol]; r < rulesStart[symbol + 1]; r++) {
+                            add(ruleFirst[rulesOf[r]], current);
+                        }
+                    }
+                    if (nullable[symbol]) {
+                        add(position + 1, origin);
+                    }
+                }
+            }
+
+            Arrays.sort(touched, 0, touchedCount);
+            if (waitCount + touchedCount > waitSymbol.length) {
+                int length = Math.max(waitSymbol.length * 2, waitCount + touchedCount);
+                waitSymbol = Arrays.copyOf(waitSymbol, length);
+                waitHead = Arrays.copyOf(waitHead, length);
+                waitLeo = Arrays.copyOf(waitLeo, length);
+            }
+            waitStart[current] = waitCount;
+            for (int i = 0; i < touchedCount; i++) {
+                int symbol = touched[i];
+                waitSymbol[waitCount] = symbol;
+                waitHead[waitCount] = heads[symbol];
+                heads[symbol] = -1;
+                waitLeo[waitCount] = leoItem(current, waitCount);
+                waitCount++;
+            }
+            waitStart[current + 1] = waitCount;
+            touchedCount = 0;
+        }
+
+        // The entry of the wait list for symbol in a finished set, or -1 when nothing waits there.
+        private int waitEntry(int set, int symbol) {
+            int entry = Arrays.binarySearch(waitSymbol, waitStart[set], waitStart[set + 1], symbol);
+            return entry < 0 ? -1 : entry;
+        }
+
+        private void complete(int lhs, int origin) {
+            int entry = waitEntry(origin, lhs);
+            if (entry < 0) {
+                return;
+            }
+            int leoItem = waitLeo[entry];
+            if (leoItem != NONE) {
+                add(itemPosition[leoItem] + 1, itemOrigin[leoItem]);
+                return;
+            }
+            for (int w = waitHead[entry]; w >= 0; w = waitNext[w]) {
+                add(itemPosition[w] + 1, itemOrigin[w]);
+            }
+        }
+
+        // Topmost item of the deterministic reduction path above the wait list entry of set: the
+        // item whose completion would follow from completing the entry's symbol there, or NONE.
+        // Computed when set is closed; the path continues in an earlier set, whose entries already
+        // hold their Leo items, so this takes one step however long the path is.
+        private int leoItem(int set, int entry) {
+            int only = waitHead[entry];
+            if (waitNext[only] >= 0 || symbolAt[itemPosition[only] + 1] != END) {
+                return NONE;
+            }
+            int origin = itemOrigin[only];
+            if (origin < set) {
+                int parent = waitEntry(origin, ruleLhs[ruleAt[itemPosition[only]]]);
+                if (parent >= 0 && waitLeo[parent] != NONE) {
+                    return waitLeo[parent];
+                }
+            }
+            return only;
+        }
+
+        private void add(int position, int origin) {
+            long key = ((long) position << 32) | origin;
+            if (!markSeen(key)) {
+                return;
+            }
+            if (items == itemPosition.length) {
+                itemPosition = Arrays.copyOf(itemPosition, items * 2);
+                itemOrigin = Arrays.copyOf(itemOrigin, items * 2);
+                waitNext = Arrays.copyOf(waitNext, items * 2);
+            }
+            itemPosition[items] = position;
+            itemOrigin[items] = origin;
+            waitNext[items] = -1;
+            int symbol = symbolAt[position];
+            if (symbol >= 0 && symbol < nonTerminalCount) {
+                if (heads[symbol] < 0) {
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, touchedCount * 2);
+                    }
+                    touched[touchedCount++] = symbol;
+                }
+                waitNext[items] = heads[symbol];
+                heads[symbol] = items;
+            }
+            items++;
+        }
+
+        // Open-addressing set of the items already in the current Earley set; key + 1 is stored
+        // so that 0 marks an empty slot. seenSlots lists the used slots, so that clearing the set
+        // costs as much as filling it did.
+        private boolean markSeen(long key) {
+            if (seenSize * 2 >= seen.length) {
+                long[] old = seen;
+                seen = new long[old.length * 2];
+                seenSlots = new int[seen.length / 2];
+                seenSize = 0;
+                for (long k : old) {
+                    if (k != 0) {
+                        insert(k);
+                    }
+                }
+            }
+            return insert(key + 1);
+        }
+
+        private boolean insert(long stored) {
+            int mask = seen.length - 1;
+            long h = stored * 0x9E3779B97F4A7C15L;
+            for (int i = (int) (h ^ (h >>> 32)) & mask; ; i = (i + 1) & mask) {
+                if (seen[i] == 0) {
+                    seen[i] = stored;
+                    seenSlots[seenSize++] = i;
+                    return true;
+                }
+                if (seen[i] == stored) {
+                    return false;
+                }
+            }
+        }
+    }
+}
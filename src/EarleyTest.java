@@ -0,0 +1,49 @@
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EarleyTest {
+
+    private static Grammar grammar(String start, Map<String, List<String>> productions, String... terminals) {
+        return new Grammar(new HashSet<>(productions.keySet()), new HashSet<>(Arrays.asList(terminals)), productions, start);
+    }
+
+    @Test
+    public void testLongRightRecursion() {
+        // Every S waits on the next one, and all of them complete only at the final 'b'.
+        Earley earley = new Earley(grammar("S", Map.of("S", List.of("aS", "b")), "a", "b"));
+        for (int n : new int[]{1000, 10_000, 100_000, 1_000_000}) {
+            String as = "a".repeat(n);
+            assertTrue(earley.accepts(as + "b"));
+            assertFalse(earley.accepts(as));
+            assertFalse(earley.accepts(as + "bb"));
+        }
+    }
+
+    @Test
+    public void testLongMutualRightRecursion() {
+        // S -> aT | c, T -> bS: the reduction path alternates between two nonterminals.
+        Earley earley = new Earley(grammar("S", Map.of("S", List.of("aT", "c"), "T", List.of("bS")), "a", "b", "c"));
+        String ab = "ab".repeat(200_000);
+        assertTrue(earley.accepts(ab + "c"));
+        assertFalse(earley.accepts(ab + "a"));
+        assertFalse(earley.accepts(ab.substring(1) + "c"));
+    }
+
+    @Test
+    public void testAgreesWithCYK() {
+        // Ambiguous and left-recursive grammars take the ordinary completion path.
+        Map<String, List<String>> productions = Map.of("S", List.of("SS", "aSb", "ab", "Sc"));
+        Grammar grammar = grammar("S", productions, "a", "b", "c");
+        Earley earley = new Earley(grammar);
+        CYK cyk = new CYK(new Chomsky("S", new ArrayList<>(List.of("S")), new ArrayList<>(List.of("a", "b", "c")),
+                new HashMap<>(productions)).cfgToCnf());
+        for (String word : CYKTest.allWords("abc", 8)) {
+            assertEquals(word, cyk.accepts(word), earley.accepts(word));
+        }
+    }
+}
@@ -5,6 +5,7 @@ public class FA {
     private Map<Pair<String, String>, String> delta;
     private String q0;
     private Set<String> F;
+    private final Map<String, Map<String, Set<String>>> transitions = new HashMap<>();
 
     public FA(Set<String> Q, Set<String> Sigma, Map<Pair<String, String>, String> delta, String q0, Set<String> F) {
         this.Q = Q;
@@ -12,44 +13,64 @@ public class FA {
         this.delta = delta;
         this.q0 = q0;
         this.F = F;
+        for (Map.Entry<Pair<String, String>, String> transition : delta.entrySet()) {
+            addToIndex(transition.getKey().getFirst(), transition.getKey().getSecond(), transition.getValue());
+        }
+    }
+
+    private void addToIndex(String fromState, String inputSymbol, String toState) {
+        transitions.computeIfAbsent(fromState, q -> new HashMap<>())
+                .computeIfAbsent(inputSymbol, a -> new HashSet<>())
+                .add(toState);
     }
 
     public Grammar toRegularGrammar() {
-        Map<String, List<String>> productions = new HashMap<>();
-        Set<String> VN = new HashSet<>();
-        Set<String> VT = new HashSet<>();
+        SymbolTable symbols = new SymbolTable();
         String startSymbol = "S";
-
+        for (int i = 0; Q.contains(startSymbol); i++) {
+            startSymbol = "S" + i;
+        }
         for (String q : Q) {
-            VN.add(q);
+            symbols.nonTerminal(q);
         }
-
-        for (Pair<String, String> transition : delta.keySet()) {
-            String fromState = transition.getFirst();
-            String inputSymbol = transition.getSecond();
-            String toState = delta.get(transition);
-
-            String production = inputSymbol + " " + toState;
-
-            if (!productions.containsKey(fromState)) {
-                productions.put(fromState, new ArrayList<String>());
+        symbols.nonTerminal(q0);
+        for (Map.Entry<String, Map<String, Set<String>>> outgoing : transitions.entrySet()) {
+            symbols.nonTerminal(outgoing.getKey());
+            for (Set<String> targets : outgoing.getValue().values()) {
+                for (String toState : targets) {
+                    symbols.nonTerminal(toState);
+                }
             }
-            productions.get(fromState).add(production);
-
-            VT.add(inputSymbol);
         }
-
         for (String q : F) {
-            if (!productions.containsKey(q)) {
-                productions.put(q, new ArrayList<String>());
+            symbols.nonTerminal(q);
+        }
+        int start = symbols.nonTerminal(startSymbol);
+
+        List<List<int[]>> productions = new ArrayList<>();
+        for (int i = 0; i < symbols.nonTerminalCount(); i++) {
+            productions.add(new ArrayList<>());
+        }
+        for (Map.Entry<String, Map<String, Set<String>>> outgoing : transitions.entrySet()) {
+            List<int[]> fromProductions = productions.get(symbols.nonTerminal(outgoing.getKey()));
+            for (Map.Entry<String, Set<String>> edge : outgoing.getValue().entrySet()) {
+                int inputSymbol = symbols.terminal(edge.getKey());
+                for (String toState : edge.getValue()) {
+                    fromProductions.add(new int[]{inputSymbol, symbols.nonTerminal(toState)});
+                }
             }
-            productions.get(q).add("");
         }
 
-        productions.put(startSymbol, new ArrayList<String>());
-        productions.get(startSymbol).add(q0);
+        for (String q : F) {
+            productions.get(symbols.nonTerminal(q)).add(new int[0]);
+        }
+        productions.get(start).add(new int[]{symbols.nonTerminal(q0)});
 
-        return new Grammar(VN, VT, productions, startSymbol);
+        int[][][] rules = new int[symbols.nonTerminalCount()][][];
+        for (int i = 0; i < rules.length; i++) {
+            rules[i] = productions.get(i).toArray(new int[0][]);
+        }
+        return new Grammar(symbols, rules, start);
     }
 
     public boolean isDeterministic() {
@@ -64,70 +85,68 @@ public class FA {
         return true;
     }
 
-    private Set<String> getNextStates(String currentState, String inputSymbol) {
-        Set<String> nextStates = new HashSet<>();
-        for (Pair<String, String> transition : delta.keySet()) {
-            if (transition.getFirst().equals(currentState) && transition.getSecond().equals(inputSymbol)) {
-                nextStates.add(delta.get(transition));
+    public boolean isComplete() {
+        for (String q : Q) {
+            for (String a : Sigma) {
+                if (getNextStates(q, a).isEmpty()) {
+                    return false;
+                }
             }
         }
-        return nextStates;
+        return true;
     }
 
+    private Set<String> getNextStates(String currentState, String inputSymbol) {
+        Map<String, Set<String>> outgoing = transitions.get(currentState);
+        if (outgoing == null) {
+            return Collections.emptySet();
+        }
+        return outgoing.getOrDefault(inputSymbol, Collections.emptySet());
+    }
 
-    public DFA toDFA() {
-        Map<Set<String>, String> dfaStates = new HashMap<>();
-        Map<Pair<String, String>, Set<String>> dfaDelta = new HashMap<>();
-        Set<Set<String>> visited = new HashSet<>();
-        String dfaQ0 = q0;
-        Set<String> dfaF = new HashSet<>();
-
-        Set<String> initialState = new HashSet<>();
-        initialState.add(q0);
-        dfaStates.put(initialState, q0);
-
-        Queue<Set<String>> queue = new LinkedList<>();
-        queue.add(initialState);
-
-        while (!queue.isEmpty()) {
-            Set<String> currentState = queue.poll();
-
-            visited.add(currentState);
-
-            String dfaStateName = dfaStates.get(currentState);
-            for (String q : currentState) {
-                if (F.contains(q)) {
-                    dfaF.add(dfaStateName);
-                    break;
+    public NFA toNFA() {
+        NFA.Builder builder = new NFA.Builder().setStart(q0);
+        for (String q : Q) {
+            builder.addState(q);
+        }
+        for (String a : Sigma) {
+            builder.addSymbol(a);
+        }
+        for (Map.Entry<String, Map<String, Set<String>>> outgoing : transitions.entrySet()) {
+            for (Map.Entry<String, Set<String>> edge : outgoing.getValue().entrySet()) {
+                for (String toState : edge.getValue()) {
+                    builder.addTransition(outgoing.getKey(), edge.getKey(), toState);
                 }
             }
+        }
+        for (String q : F) {
+            builder.addAccepting(q);
+        }
+        return builder.build();
+    }
 
-            for (String inputSymbol : Sigma) {
-                Set<String> nextStates = new HashSet<>();
-                for (String q : currentState) {
-                    Pair<String, String> transition = new Pair<>(q, inputSymbol);
-                    if (delta.containsKey(transition)) {
-                        nextStates.add(delta.get(transition));
-                    }
-                }
+    // The fastest engine for this automaton; see Matcher.of.
+    public Matcher matcher() {
+        return Matcher.of(toNFA());
+    }
 
-                if (!nextStates.isEmpty()) {
-                    if (!dfaStates.containsKey(nextStates)) {
-                        String nextStateName = getNextStateName(dfaStates.size());
-                        dfaStates.put(nextStates, nextStateName);
-                        if (!visited.contains(nextStates)) {
-                            queue.add(nextStates);
-                        }
-                    }
-
-                    Pair<String, String> dfaTransition = new Pair<>(dfaStateName, inputSymbol);
-                    dfaDelta.put(dfaTransition, nextStates);
-                }
-            }
+    // Matches without building the whole subset automaton up front; see LazyDFA.
+    public LazyDFA toLazyDFA(int maxStates) {
+        return new LazyDFA(toNFA(), maxStates);
+    }
+
+    // SHA-256 of the automaton with its sets and transitions in sorted order; see Canonical.
+    public String canonicalHash() {
+        Canonical canonical = new Canonical("FA").addSorted(Q).addSorted(Sigma).add(q0).addSorted(F)
+                .addSorted(transitions.keySet());
+        for (String from : new TreeSet<>(transitions.keySet())) {
+            canonical.addSorted(transitions.get(from));
         }
+        return canonical.hash();
+    }
 
-        Set<String> dfaQ = new HashSet<>(dfaStates.values());
-        return new DFA(dfaQ, Sigma, dfaDelta, dfaQ0, dfaF);
+    public DFA toDFA() {
+        return new DFA(Determinizer.determinize(toNFA(), i -> i == 0 ? q0 : getNextStateName(i)));
     }
 
     private String getNextStateName(int count) {
@@ -13,6 +13,22 @@ public class FiniteAutomaton {
         this.initialState = initialState;
     }
 
+    public NFA toNFA() {
+        NFA.Builder builder = new NFA.Builder().setStart(initialState);
+        for (String q : states) {
+            builder.addState(q);
+        }
+        for (Map.Entry<String, Map<String, String>> outgoing : transitions.entrySet()) {
+            for (Map.Entry<String, String> edge : outgoing.getValue().entrySet()) {
+                builder.addTransition(outgoing.getKey(), edge.getKey(), edge.getValue());
+            }
+        }
+        for (String q : acceptingStates) {
+            builder.addAccepting(q);
+        }
+        return builder.build();
+    }
+
     public boolean accepts(String input) {
         String currentState = initialState;
         for (char c : input.toCharArray()) {
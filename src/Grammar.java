@@ -5,83 +5,136 @@ public class Grammar {
     private Set<String> VT;
     private Map<String, List<String>> productions;
     private String startSymbol;
+    private final SymbolTable symbols;
+    private final int[][][] rules;
+    // Immutable once built, so racing threads at worst build it twice; samplers are per call.
+    private volatile StringGenerator generator;
 
     public Grammar(Set<String> VN, Set<String> VT, Map<String, List<String>> productions, String startSymbol) {
         this.VN = VN;
         this.VT = VT;
         this.productions = productions;
         this.startSymbol = startSymbol;
-    }
 
-    public String generateString() {
-        return generateString(startSymbol);
+        this.symbols = new SymbolTable();
+        symbols.nonTerminal(startSymbol);
+        for (String nt : VN) {
+            symbols.nonTerminal(nt);
+        }
+        for (String nt : productions.keySet()) {
+            symbols.nonTerminal(nt);
+        }
+        for (String t : VT) {
+            if (symbols.lookup(t) == SymbolTable.NONE) {
+                symbols.terminal(t);
+            }
+        }
+        this.rules = new int[symbols.nonTerminalCount()][][];
+        for (int a = 0; a < rules.length; a++) {
+            List<String> rhs = productions.get(symbols.name(a));
+            rules[a] = new int[rhs == null ? 0 : rhs.size()][];
+            for (int i = 0; i < rules[a].length; i++) {
+                rules[a][i] = symbols.parse(rhs.get(i));
+            }
+        }
     }
 
-    private String generateString(String symbol) {
-        if (VT.contains(symbol)) {
-            return symbol;
+    // Builds a grammar from its encoded form; the String views are rendered from the rules.
+    public Grammar(SymbolTable symbols, int[][][] rules, int start) {
+        this.symbols = symbols;
+        this.rules = rules;
+        this.startSymbol = symbols.name(start);
+        this.VN = new LinkedHashSet<>();
+        this.VT = new LinkedHashSet<>();
+        this.productions = new LinkedHashMap<>();
+        for (int a = 0; a < symbols.nonTerminalCount(); a++) {
+            VN.add(symbols.name(a));
         }
-
-        List<String> possibleProductions = productions.get(symbol);
-        String chosenProduction = possibleProductions.get(new Random().nextInt(possibleProductions.size()));
-        String[] productionSymbols = chosenProduction.split("");
-        StringBuilder sb = new StringBuilder();
-        for (String s : productionSymbols) {
-            sb.append(generateString(s));
+        for (int t = 0; t < symbols.terminalCount(); t++) {
+            VT.add(symbols.name(~t));
         }
-        return sb.toString();
+        for (int a = 0; a < rules.length; a++) {
+            if (rules[a].length == 0) {
+                continue;
+            }
+            List<String> rhs = new ArrayList<>(rules[a].length);
+            for (int[] production : rules[a]) {
+                rhs.add(symbols.render(production));
+            }
+            productions.put(symbols.name(a), rhs);
+        }
+    }
+
+    public String generateString() {
+        return generator().sampler().next();
     }
 
     public List<String> generateValidStrings(int count) {
-        List<String> validStrings = new ArrayList<>();
-        while (validStrings.size() < count) {
-            String s = generateString();
-            if (isValid(s)) {
-                validStrings.add(s);
-            }
+        StringGenerator.Sampler sampler = generator().sampler();
+        List<String> validStrings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            validStrings.add(sampler.next());
         }
         return validStrings;
     }
 
-    private boolean isValid(String s) {
-        for (char c : s.toCharArray()) {
-            if (!VT.contains(Character.toString(c))) {
-                return false;
-            }
-        }
-        return true;
+    public GrammarEnumerator enumerator(int maxLength) {
+        return new GrammarEnumerator(this, maxLength);
     }
 
-    public String classifyGrammar() {
-        for (String leftSymbol : productions.keySet()) {
-            if (productions.get(leftSymbol).contains("")) {
-                return "Type-0";
-            }
+    private StringGenerator generator() {
+        StringGenerator generator = this.generator;
+        if (generator == null) {
+            generator = new StringGenerator(this);
+            this.generator = generator;
         }
+        return generator;
+    }
 
-        for (String leftSymbol : productions.keySet()) {
-            for (String production : productions.get(leftSymbol)) {
-                String[] sides = production.split(" ");
-                if (sides.length == 1) {
-                    continue; // Skip productions of the form A -> ε
-                }
-                String lhs = sides[0];
-                String rhs = production.substring(lhs.length() + 1);
-                if (lhs.length() <= rhs.length()) {
-                    return "Type-1";
+    // Every rule has a single nonterminal on the left, so the grammar is at least context-free;
+    // it is regular when all rules are right-linear or all are left-linear.
+    public String classifyGrammar() {
+        boolean rightLinear = true;
+        boolean leftLinear = true;
+        for (int[][] alternatives : rules) {
+            for (int[] rhs : alternatives) {
+                for (int i = 0; i < rhs.length; i++) {
+                    if (SymbolTable.isNonTerminal(rhs[i])) {
+                        rightLinear &= i == rhs.length - 1;
+                        leftLinear &= i == 0;
+                    }
                 }
             }
         }
+        return rightLinear || leftLinear ? "Type-3" : "Type-2";
+    }
 
-        for (String leftSymbol : productions.keySet()) {
-            for (String production : productions.get(leftSymbol)) {
-                String[] sides = production.split(" ");
-                if (sides.length == 1 && VN.contains(leftSymbol)) {
-                    return "Type-2";
-                }
-            }
-        }
+    public Set<String> getVN() {
+        return VN;
+    }
+
+    public Set<String> getVT() {
+        return VT;
+    }
+
+    public Map<String, List<String>> getProductions() {
+        return productions;
+    }
+
+    public String getStartSymbol() {
+        return startSymbol;
+    }
+
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    public int[][][] getRules() {
+        return rules;
+    }
 
-        return "Type-3";
+    // SHA-256 of the grammar with its symbols and rules in sorted order; see Canonical.
+    public String canonicalHash() {
+        return new Canonical("Grammar").add(startSymbol).addSorted(VN).addSorted(VT).addSorted(productions).hash();
     }
 }
@@ -0,0 +1,324 @@
+import java.math.BigInteger;
+import java.nio.IntBuffer;
+import java.util.*;
+
+// Counts derivations per (nonterminal, length), which is the number of words only when the grammar
+// is unambiguous. Ambiguity is undecidable, so the constructor looks for a word with two
+// derivations among the first AMBIGUITY_CHECK_WORDS words of at most AMBIGUITY_CHECK_LENGTH
+// symbols and rejects the grammar when it finds one; ambiguity that only shows in longer words
+// goes unnoticed. ε-productions are eliminated up front, after which every symbol derives at least
+// one terminal. Unit cycles give a word infinitely many derivations and are rejected as well;
+// Chomsky.cfgToCnf removes them.
+public class GrammarEnumerator extends LanguageEnumerator {
+    public static final int AMBIGUITY_CHECK_LENGTH = 8;
+    public static final int AMBIGUITY_CHECK_WORDS = 1000;
+
+    private final int start;
+    private final int[] letterOf;
+    private final int[] order;
+    private final int[][] rhs;
+    private final int[] rulesStart;
+    private final BigInteger emptyCount;
+    // counts[a][l] for l >= 1; prefixCounts[r][j][l] counts rhs[r][0 .. j] deriving length l.
+    private final BigInteger[][] counts;
+    private final BigInteger[][][] prefixCounts;
+
+    public GrammarEnumerator(Grammar grammar, int maxLength) {
+        super(sortedTerminals(grammar.getSymbols()), maxLength);
+        SymbolTable symbols = grammar.getSymbols();
+        int[][][] rules = binarize(grammar.getRules());
+        this.start = symbols.lookup(grammar.getStartSymbol());
+
+        String[] alphabet = sortedTerminals(symbols);
+        this.letterOf = new int[symbols.terminalCount()];
+        for (int t = 0; t < letterOf.length; t++) {
+            letterOf[t] = Arrays.binarySearch(alphabet, symbols.name(~t));
+        }
+
+        int n = rules.length;
+        boolean[] nullable = nullable(rules);
+        List<int[]> bodies = new ArrayList<>();
+        this.rulesStart = new int[n + 1];
+        for (int a = 0; a < n; a++) {
+            rulesStart[a] = bodies.size();
+            Set<IntBuffer> variants = new LinkedHashSet<>();
+            for (int[] body : rules[a]) {
+                expand(a, body, nullable, variants);
+            }
+            for (IntBuffer variant : variants) {
+                bodies.add(variant.array());
+            }
+        }
+        rulesStart[n] = bodies.size();
+        this.emptyCount = start >= 0 && start < n && nullable[start] ? BigInteger.ONE : BigInteger.ZERO;
+        this.rhs = bodies.toArray(new int[0][]);
+        this.order = unitOrder(symbols);
+
+        this.counts = new BigInteger[n][maxLength + 1];
+        this.prefixCounts = new BigInteger[rhs.length][][];
+        for (int r = 0; r < rhs.length; r++) {
+            prefixCounts[r] = new BigInteger[Math.max(0, rhs[r].length - 1)][maxLength + 1];
+            for (BigInteger[] row : prefixCounts[r]) {
+                Arrays.fill(row, BigInteger.ZERO);
+            }
+        }
+        for (BigInteger[] row : counts) {
+            Arrays.fill(row, BigInteger.ZERO);
+        }
+        for (int l = 1; l <= maxLength; l++) {
+            for (int a : order) {
+                BigInteger sum = BigInteger.ZERO;
+                for (int r = rulesStart[a]; r < rulesStart[a + 1]; r++) {
+                    sum = sum.add(extend(r, rhs[r].length - 1, prefixCounts[r], 0, l, null, 0, null));
+                }
+                counts[a][l] = sum;
+            }
+            for (int r = 0; r < rhs.length; r++) {
+                for (int j = 0; j < rhs[r].length - 1; j++) {
+                    prefixCounts[r][j][l] = extend(r, j, prefixCounts[r], 0, l, null, 0, null);
+                }
+            }
+        }
+        rejectAmbiguity(alphabet, Math.min(maxLength, AMBIGUITY_CHECK_LENGTH));
+    }
+
+    // Walks the words of each length in shortlex order, pruning prefixes without a completion; the
+    // count of a complete word is its number of derivations.
+    private void rejectAmbiguity(String[] alphabet, int maxCheckedLength) {
+        int[] budget = {AMBIGUITY_CHECK_WORDS};
+        for (int l = 1; l <= maxCheckedLength && budget[0] > 0; l++) {
+            rejectAmbiguity(alphabet, new int[l], 0, budget);
+        }
+    }
+
+    private void rejectAmbiguity(String[] alphabet, int[] word, int pos, int[] budget) {
+        for (int a = 0; a < alphabet.length && budget[0] > 0; a++) {
+            word[pos] = a;
+            BigInteger ways = completions(word, pos + 1, word.length);
+            if (ways.signum() == 0) {
+                continue;
+            }
+            if (pos + 1 < word.length) {
+                rejectAmbiguity(alphabet, word, pos + 1, budget);
+                continue;
+            }
+            budget[0]--;
+            if (ways.compareTo(BigInteger.ONE) > 0) {
+                StringBuilder sb = new StringBuilder();
+                for (int symbol : word) {
+                    sb.append(alphabet[symbol]);
+                }
+                throw new IllegalArgumentException("Ambiguous grammar: \"" + sb + "\" has " + ways
+                        + " derivations, so counts and ranks would not be word counts");
+            }
+        }
+    }
+
+    // Rules longer than two become chains through extra nonterminals numbered from rules.length, so
+    // that expand drops at most two nullable symbols per rule. Each chain symbol has a single rule,
+    // so every derivation maps to exactly one derivation of the original grammar.
+    private static int[][][] binarize(int[][][] rules) {
+        List<List<int[]>> result = new ArrayList<>();
+        for (int a = 0; a < rules.length; a++) {
+            result.add(new ArrayList<>());
+        }
+        for (int a = 0; a < rules.length; a++) {
+            for (int[] body : rules[a]) {
+                int head = a;
+                for (int i = 0; i + 2 < body.length; i++) {
+                    int chain = result.size();
+                    result.add(new ArrayList<>());
+                    result.get(head).add(new int[]{body[i], chain});
+                    head = chain;
+                }
+                result.get(head).add(body.length <= 2 ? body : new int[]{body[body.length - 2], body[body.length - 1]});
+            }
+        }
+        int[][][] binary = new int[result.size()][][];
+        for (int a = 0; a < binary.length; a++) {
+            binary[a] = result.get(a).toArray(new int[0][]);
+        }
+        return binary;
+    }
+
+    private static boolean[] nullable(int[][][] rules) {
+        boolean[] nullable = new boolean[rules.length];
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int a = 0; a < rules.length; a++) {
+                for (int[] body : rules[a]) {
+                    boolean all = !nullable[a];
+                    for (int i = 0; i < body.length && all; i++) {
+                        all = SymbolTable.isNonTerminal(body[i]) && nullable[body[i]];
+                    }
+                    if (all) {
+                        nullable[a] = true;
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return nullable;
+    }
+
+    // Every way of dropping nullable symbols from body, except the empty one and a -> a, as
+    // ε-elimination in Chomsky does. Bodies are binary, so there are at most four.
+    private static void expand(int a, int[] body, boolean[] nullable, Set<IntBuffer> variants) {
+        int[] positions = new int[body.length];
+        int k = 0;
+        for (int i = 0; i < body.length; i++) {
+            if (SymbolTable.isNonTerminal(body[i]) && nullable[body[i]]) {
+                positions[k++] = i;
+            }
+        }
+        for (long mask = 0; mask < 1L << k; mask++) {
+            int[] variant = new int[body.length - Long.bitCount(mask)];
+            int v = 0;
+            int p = 0;
+            for (int i = 0; i < body.length; i++) {
+                if (p < k && positions[p] == i) {
+                    if ((mask & (1L << p++)) != 0) {
+                        continue;
+                    }
+                }
+                variant[v++] = body[i];
+            }
+            if (variant.length > 0 && !(variant.length == 1 && variant[0] == a)) {
+                variants.add(IntBuffer.wrap(variant));
+            }
+        }
+    }
+
+    private static String[] sortedTerminals(SymbolTable symbols) {
+        String[] alphabet = new String[symbols.terminalCount()];
+        for (int t = 0; t < alphabet.length; t++) {
+            alphabet[t] = symbols.name(~t);
+        }
+        Arrays.sort(alphabet);
+        return alphabet;
+    }
+
+    // Nonterminals ordered so that B comes before A whenever A -> B; counts of one length then
+    // only depend on entries that are already filled.
+    private int[] unitOrder(SymbolTable symbols) {
+        int n = rulesStart.length - 1;
+        int[] order = new int[n];
+        int[] state = new int[n];
+        int size = 0;
+        int[] stack = new int[n];
+        int[] next = new int[n];
+        for (int root = 0; root < n; root++) {
+            if (state[root] != 0) {
+                continue;
+            }
+            int top = 0;
+            stack[top++] = root;
+            state[root] = 1;
+            next[root] = rulesStart[root];
+            while (top > 0) {
+                int a = stack[top - 1];
+                if (next[a] == rulesStart[a + 1]) {
+                    state[a] = 2;
+                    order[size++] = a;
+                    top--;
+                    continue;
+                }
+                int[] body = rhs[next[a]++];
+                if (body.length != 1 || !SymbolTable.isNonTerminal(body[0])) {
+                    continue;
+                }
+                int b = body[0];
+                if (state[b] == 1) {
+                    String name = b < symbols.nonTerminalCount() ? symbols.name(b) : "the tail of a long rule";
+                    throw new IllegalArgumentException("Unit cycle through " + name
+                            + " makes the grammar ambiguous; Chomsky.cfgToCnf removes unit cycles");
+                }
+                if (state[b] == 0) {
+                    state[b] = 1;
+                    next[b] = rulesStart[b];
+                    stack[top++] = b;
+                }
+            }
+        }
+        return order;
+    }
+
+    // Ways for rhs[r][0 .. j], placed at position i, to derive length l. When prefix is null
+    // nothing is constrained; otherwise positions below m must spell prefix and inner[x][p][len]
+    // holds the constrained counts of nonterminal x at position p < m.
+    private BigInteger extend(int r, int j, BigInteger[][] partial, int i, int l,
+                              int[] prefix, int m, BigInteger[][][] inner) {
+        int[] body = rhs[r];
+        if (j == 0) {
+            return symbolCount(body[0], i, l, prefix, m, inner);
+        }
+        BigInteger sum = BigInteger.ZERO;
+        for (int left = j; left < l; left++) {
+            BigInteger ways = partial[j - 1][left];
+            if (ways.signum() != 0) {
+                BigInteger last = symbolCount(body[j], i + left, l - left, prefix, m, inner);
+                if (last.signum() != 0) {
+                    sum = sum.add(ways.multiply(last));
+                }
+            }
+        }
+        return sum;
+    }
+
+    private BigInteger symbolCount(int symbol, int i, int l, int[] prefix, int m, BigInteger[][][] inner) {
+        if (!SymbolTable.isNonTerminal(symbol)) {
+            return l == 1 && (prefix == null || i >= m || prefix[i] == letterOf[~symbol]) ? BigInteger.ONE : BigInteger.ZERO;
+        }
+        if (prefix == null || i >= m) {
+            return counts[symbol][l];
+        }
+        return inner[symbol][i][l];
+    }
+
+    // Positions are filled from m - 1 down to 0, since a symbol at position i only depends on
+    // symbols at positions >= i; past m the unconstrained counts apply.
+    @Override
+    protected BigInteger completions(int[] prefix, int m, int n) {
+        if (start < 0 || start >= counts.length) {
+            return BigInteger.ZERO;
+        }
+        if (n == 0) {
+            return emptyCount;
+        }
+        if (m == 0) {
+            return counts[start][n];
+        }
+        BigInteger[][][] inner = new BigInteger[counts.length][m][];
+        BigInteger[][][] partial = new BigInteger[rhs.length][][];
+        for (int r = 0; r < rhs.length; r++) {
+            partial[r] = new BigInteger[Math.max(0, rhs[r].length - 1)][n + 1];
+        }
+        for (int i = m - 1; i >= 0; i--) {
+            int room = n - i;
+            for (int a = 0; a < inner.length; a++) {
+                inner[a][i] = new BigInteger[room + 1];
+            }
+            for (BigInteger[][] rows : partial) {
+                for (BigInteger[] row : rows) {
+                    Arrays.fill(row, BigInteger.ZERO);
+                }
+            }
+            for (int l = 1; l <= room; l++) {
+                for (int a : order) {
+                    BigInteger sum = BigInteger.ZERO;
+                    for (int r = rulesStart[a]; r < rulesStart[a + 1]; r++) {
+                        sum = sum.add(extend(r, rhs[r].length - 1, partial[r], i, l, prefix, m, inner));
+                    }
+                    inner[a][i][l] = sum;
+                }
+                for (int r = 0; r < rhs.length; r++) {
+                    for (int j = 0; j < rhs[r].length - 1; j++) {
+                        partial[r][j][l] = extend(r, j, partial[r], i, l, prefix, m, inner);
+                    }
+                }
+            }
+        }
+        return inner[start][0][n];
+    }
+}
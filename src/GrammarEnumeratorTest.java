@@ -0,0 +1,110 @@
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class GrammarEnumeratorTest {
+
+    // S -> aSbS | ε, the balanced words over {a, b}.
+    static Grammar dyckGrammar() {
+        Map<String, List<String>> productions = new HashMap<>();
+        productions.put("S", Arrays.asList("aSbS", "ε"));
+        return new Grammar(new HashSet<>(List.of("S")), new HashSet<>(Arrays.asList("a", "b")), productions, "S");
+    }
+
+    // Accepted words in shortlex order, found by running Earley on every word.
+    private static List<String> acceptedWords(Grammar grammar, String alphabet, int maxLength) {
+        Earley earley = new Earley(grammar);
+        List<String> accepted = new ArrayList<>();
+        for (String word : CYKTest.allWords(alphabet, maxLength)) {
+            if (earley.accepts(word)) {
+                accepted.add(word);
+            }
+        }
+        return accepted;
+    }
+
+    private static void assertEnumerates(Grammar grammar, String alphabet, int maxLength) {
+        GrammarEnumerator enumerator = grammar.enumerator(maxLength);
+        List<String> expected = acceptedWords(grammar, alphabet, maxLength);
+        assertEquals(expected, enumerator.list());
+        assertEquals(BigInteger.valueOf(expected.size()), enumerator.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), enumerator.unrank(BigInteger.valueOf(i)));
+            assertEquals(BigInteger.valueOf(i), enumerator.rank(expected.get(i)));
+        }
+    }
+
+    private static void assertRejected(Grammar grammar, String message) {
+        try {
+            grammar.enumerator(10);
+            fail("Expected " + message);
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(message));
+        }
+    }
+
+    @Test
+    public void testRegularGrammar() {
+        assertEnumerates(CYKTest.mainRegularGrammar(), "abc", 8);
+    }
+
+    @Test
+    public void testDyckGrammar() {
+        assertEnumerates(dyckGrammar(), "ab", 12);
+        GrammarEnumerator enumerator = dyckGrammar().enumerator(40);
+        assertEquals(new BigInteger("6564120420"), enumerator.count(40));
+    }
+
+    // S -> A0 .. A19 with Ai -> letter i | ε derives every subsequence of the 20 letters once.
+    @Test
+    public void testLongNullableRule() {
+        Set<String> nonTerminals = new HashSet<>(List.of("S"));
+        Set<String> terminals = new HashSet<>();
+        Map<String, List<String>> productions = new HashMap<>();
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            String letter = String.valueOf((char) ('a' + i));
+            nonTerminals.add("A" + i);
+            terminals.add(letter);
+            productions.put("A" + i, Arrays.asList(letter, "ε"));
+            body.append("A").append(i).append(' ');
+        }
+        productions.put("S", List.of(body.toString().trim()));
+        GrammarEnumerator enumerator = new Grammar(nonTerminals, terminals, productions, "S").enumerator(20);
+        BigInteger binomial = BigInteger.ONE;
+        for (int l = 0; l <= 20; l++) {
+            assertEquals(binomial, enumerator.count(l));
+            binomial = binomial.multiply(BigInteger.valueOf(20 - l)).divide(BigInteger.valueOf(l + 1));
+        }
+        assertEquals(BigInteger.ONE.shiftLeft(20), enumerator.size());
+    }
+
+    @Test
+    public void testAmbiguousGrammars() {
+        assertRejected(CYKTest.mainGrammar().toGrammar(), "Ambiguous grammar");
+        assertRejected(CYKTest.mainGrammar1().toGrammar(), "Ambiguous grammar");
+        assertRejected(CYKTest.mainGrammar().cfgToCnf().toGrammar(), "Ambiguous grammar");
+
+        Map<String, List<String>> productions = new HashMap<>();
+        productions.put("S", Arrays.asList("SS", "a"));
+        assertRejected(new Grammar(new HashSet<>(List.of("S")), new HashSet<>(List.of("a")), productions, "S"),
+                "\"aaa\" has 2 derivations");
+    }
+
+    @Test
+    public void testUnitCycle() {
+        Map<String, List<String>> productions = new HashMap<>();
+        productions.put("S", Arrays.asList("A", "a"));
+        productions.put("A", Arrays.asList("S", "b"));
+        Grammar grammar = new Grammar(new HashSet<>(Arrays.asList("S", "A")), new HashSet<>(Arrays.asList("a", "b")),
+                productions, "S");
+        assertRejected(grammar, "Unit cycle");
+        assertEquals(List.of("a", "b"), new Chomsky("S", Arrays.asList("S", "A"), Arrays.asList("a", "b"), productions)
+                .cfgToCnf().toGrammar().enumerator(3).list());
+    }
+}
@@ -0,0 +1,193 @@
+import java.math.BigInteger;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Shortlex view of a language cut off at maxLength symbols. Everything is answered from one query,
+// the number of accepted words of length n that start with a given prefix, so counting, ranking,
+// unranking and uniform sampling never list the words in between.
+public abstract class LanguageEnumerator {
+    private final String[] alphabet;
+    private final int maxLength;
+    private final BigInteger[] counts;
+
+    // alphabet must be sorted; symbols are passed to completions() as indexes into it.
+    protected LanguageEnumerator(String[] alphabet, int maxLength) {
+        if (maxLength < 0) {
+            throw new IllegalArgumentException("Negative maximum length " + maxLength);
+        }
+        this.alphabet = alphabet.clone();
+        this.maxLength = maxLength;
+        this.counts = new BigInteger[maxLength + 1];
+    }
+
+    // Number of accepted words of length n whose first m symbols are prefix[0 .. m).
+    protected abstract BigInteger completions(int[] prefix, int m, int n);
+
+    public int maxLength() {
+        return maxLength;
+    }
+
+    public BigInteger count(int length) {
+        if (length < 0 || length > maxLength) {
+            return BigInteger.ZERO;
+        }
+        if (counts[length] == null) {
+            counts[length] = completions(new int[length], 0, length);
+        }
+        return counts[length];
+    }
+
+    public BigInteger size() {
+        BigInteger size = BigInteger.ZERO;
+        for (int length = 0; length <= maxLength; length++) {
+            size = size.add(count(length));
+        }
+        return size;
+    }
+
+    public String unrank(BigInteger index) {
+        if (index.signum() < 0) {
+            throw new IndexOutOfBoundsException("Negative index " + index);
+        }
+        BigInteger remaining = index;
+        for (int length = 0; length <= maxLength; length++) {
+            BigInteger count = count(length);
+            if (remaining.compareTo(count) < 0) {
+                int[] word = new int[length];
+                for (int pos = 0; pos < length; pos++) {
+                    for (word[pos] = 0; word[pos] < alphabet.length - 1; word[pos]++) {
+                        BigInteger below = completions(word, pos + 1, length);
+                        if (remaining.compareTo(below) < 0) {
+                            break;
+                        }
+                        remaining = remaining.subtract(below);
+                    }
+                }
+                return render(word);
+            }
+            remaining = remaining.subtract(count);
+        }
+        throw new IndexOutOfBoundsException("Index " + index + " is not below " + size());
+    }
+
+    // Shortlex index of word, or -1 when it is not in the language or longer than maxLength.
+    public BigInteger rank(String word) {
+        int[] symbols = tokenize(word);
+        int n = symbols == null ? -1 : symbols.length;
+        if (n < 0 || n > maxLength || completions(symbols, n, n).signum() == 0) {
+            return BigInteger.ONE.negate();
+        }
+        BigInteger rank = BigInteger.ZERO;
+        for (int length = 0; length < n; length++) {
+            rank = rank.add(count(length));
+        }
+        int[] prefix = new int[n];
+        for (int pos = 0; pos < n; pos++) {
+            for (prefix[pos] = 0; prefix[pos] < symbols[pos]; prefix[pos]++) {
+                rank = rank.add(completions(prefix, pos + 1, n));
+            }
+        }
+        return rank;
+    }
+
+    public String sample(Random random) {
+        BigInteger size = size();
+        if (size.signum() == 0) {
+            throw new NoSuchElementException("No word of length at most " + maxLength);
+        }
+        BigInteger index;
+        do {
+            index = new BigInteger(size.bitLength(), random);
+        } while (index.compareTo(size) >= 0);
+        return unrank(index);
+    }
+
+    // Every distinct word up to maxLength in shortlex order. Branches without an accepted
+    // completion are pruned, so the cost is proportional to the output.
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            private int[] word = first(0);
+
+            @Override
+            public boolean hasNext() {
+                return word != null;
+            }
+
+            @Override
+            public String next() {
+                if (word == null) {
+                    throw new NoSuchElementException();
+                }
+                String result = render(word);
+                word = successor(word);
+                return result;
+            }
+        };
+    }
+
+    public Stream<String> stream() {
+        Spliterator<String> spliterator = Spliterators.spliteratorUnknownSize(iterator(),
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    public List<String> list() {
+        return stream().collect(Collectors.toList());
+    }
+
+    private int[] first(int fromLength) {
+        for (int length = fromLength; length <= maxLength; length++) {
+            if (count(length).signum() > 0) {
+                int[] word = new int[length];
+                fillSmallest(word, 0);
+                return word;
+            }
+        }
+        return null;
+    }
+
+    private int[] successor(int[] word) {
+        for (int pos = word.length - 1; pos >= 0; pos--) {
+            for (int a = word[pos] + 1; a < alphabet.length; a++) {
+                word[pos] = a;
+                if (completions(word, pos + 1, word.length).signum() > 0) {
+                    fillSmallest(word, pos + 1);
+                    return word;
+                }
+            }
+        }
+        return first(word.length + 1);
+    }
+
+    // Completes word[0 .. from), which has at least one accepted completion, with the smallest
+    // symbols that keep one reachable.
+    private void fillSmallest(int[] word, int from) {
+        for (int pos = from; pos < word.length; pos++) {
+            word[pos] = 0;
+            while (completions(word, pos + 1, word.length).signum() == 0) {
+                word[pos]++;
+            }
+        }
+    }
+
+    private int[] tokenize(String word) {
+        int[] symbols = new int[word.length()];
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = Arrays.binarySearch(alphabet, String.valueOf(word.charAt(i)));
+            if (symbols[i] < 0) {
+                return null;
+            }
+        }
+        return symbols;
+    }
+
+    private String render(int[] word) {
+        StringBuilder sb = new StringBuilder();
+        for (int symbol : word) {
+            sb.append(alphabet[symbol]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,131 @@
+// Subset construction done on demand while matching, through a SubsetCache of at most maxStates
+// states labelled with whether they accept. When the cache thrashes, the rest of that input is
+// matched by stepping the NFA bitset directly. Not thread-safe: the cache and the counters are
+// shared by all calls.
+public final class LazyDFA implements Matcher {
+    public static final int DEAD = CompiledDFA.DEAD;
+
+    private final NFA nfa;
+    private final int words;
+    private final int symbolCount;
+    private final int[] charSymbol;
+    private final SubsetCache cache;
+
+    private long hits;
+    private long misses;
+    private long fallbacks;
+
+    public LazyDFA(NFA nfa, int maxStates) {
+        this.nfa = nfa;
+        this.words = nfa.words();
+        this.symbolCount = nfa.symbolCount();
+        this.charSymbol = nfa.charSymbols();
+        long[] start = new long[words];
+        nfa.startSet(start);
+        this.cache = new SubsetCache(new SubsetCache.Automaton() {
+            @Override
+            public void step(long[] set, int symbol, long[] dest) {
+                nfa.step(set, symbol, dest);
+            }
+
+            @Override
+            public void label(long[] set, long[] dest, int at) {
+                dest[at] = nfa.containsAccepting(set) ? 1 : 0;
+            }
+        }, start, symbolCount, 1, maxStates);
+    }
+
+    @Override
+    public boolean accepts(CharSequence input) {
+        int[] table = cache.next;
+        int[] charSymbol = this.charSymbol;
+        int k = symbolCount;
+        int state = 0;
+        cache.begin();
+        for (int i = 0, n = input.length(); i < n; i++) {
+            char c = input.charAt(i);
+            if (c >= charSymbol.length || charSymbol[c] == DEAD) {
+                return false;
+            }
+            int symbol = charSymbol[c];
+            int target = table[state * k + symbol];
+            if (target == SubsetCache.UNKNOWN) {
+                misses++;
+                target = cache.build(state, symbol, i);
+                if (target == SubsetCache.THRASHING) {
+                    fallbacks++;
+                    return simulate(input, i + 1, cache.target());
+                }
+            } else {
+                hits++;
+            }
+            if (target == DEAD) {
+                return false;
+            }
+            state = target;
+        }
+        return cache.labelled[state];
+    }
+
+    // Bitset simulation from position from on, starting from the subset set.
+    private boolean simulate(CharSequence input, int from, long[] set) {
+        long[] step = new long[words];
+        for (int i = from, n = input.length(); i < n; i++) {
+            char c = input.charAt(i);
+            if (c >= charSymbol.length || charSymbol[c] == DEAD) {
+                return false;
+            }
+            nfa.step(set, charSymbol[c], step);
+            if (NFA.isEmpty(step)) {
+                return false;
+            }
+            long[] swap = set;
+            set = step;
+            step = swap;
+        }
+        return nfa.containsAccepting(set);
+    }
+
+    public int cachedStates() {
+        return cache.size();
+    }
+
+    public int maxStates() {
+        return cache.maxStates();
+    }
+
+    public long hits() {
+        return hits;
+    }
+
+    public long misses() {
+        return misses;
+    }
+
+    // States dropped by flushes.
+    public long evictions() {
+        return cache.evictions();
+    }
+
+    public long flushes() {
+        return cache.flushes();
+    }
+
+    // Inputs finished by bitset simulation because the cache was thrashing.
+    public long fallbacks() {
+        return fallbacks;
+    }
+
+    public void resetCounters() {
+        hits = 0;
+        misses = 0;
+        fallbacks = 0;
+        cache.resetCounters();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LazyDFA[%d/%d states, %d hits, %d misses, %d evictions, %d flushes, %d fallbacks]",
+                cache.size(), cache.maxStates(), hits, misses, cache.evictions(), cache.flushes(), fallbacks);
+    }
+}
@@ -0,0 +1,65 @@
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LazyDFATest {
+
+    @Test
+    public void testAgreesWithFiniteAutomaton() {
+        Random random = new Random(21);
+        List<String> words = DeterminizerTest.words(random, 300);
+        for (FiniteAutomaton automaton : DeterminizerTest.automata(random, 200)) {
+            NFA nfa = automaton.toNFA();
+            LazyDFA small = new LazyDFA(nfa, 3);
+            LazyDFA large = new LazyDFA(nfa, Matcher.DEFAULT_CACHE_STATES);
+            for (String word : words) {
+                assertEquals(word, automaton.accepts(word), small.accepts(word));
+                assertEquals(word, automaton.accepts(word), large.accepts(word));
+            }
+        }
+    }
+
+    @Test
+    public void testNondeterministicAutomata() {
+        Random random = new Random(22);
+        List<String> words = DeterminizerTest.words(random, 200);
+        for (int i = 0; i < 200; i++) {
+            DeterminizerTest.RandomNfa nfa = new DeterminizerTest.RandomNfa(random, 1 + random.nextInt(10));
+            LazyDFA small = new LazyDFA(nfa.build(), 3);
+            for (String word : words) {
+                assertEquals(word, nfa.accepts(word), small.accepts(word));
+            }
+        }
+    }
+
+    @Test
+    public void testCacheFlushesAndFallsBack() {
+        // (a|b)*a(a|b){12} needs 2^13 DFA states, far more than the cache holds.
+        NFA.Builder builder = new NFA.Builder().setStart("s").addAccepting("t12");
+        builder.addTransition("s", "a", "s").addTransition("s", "b", "s").addTransition("s", "a", "t0");
+        for (int i = 0; i < 12; i++) {
+            builder.addTransition("t" + i, "a", "t" + (i + 1)).addTransition("t" + i, "b", "t" + (i + 1));
+        }
+        LazyDFA lazy = new LazyDFA(builder.build(), 16);
+        Random random = new Random(23);
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            input.append(random.nextBoolean() ? 'a' : 'b');
+        }
+        input.setCharAt(input.length() - 13, 'a');
+        assertTrue(lazy.accepts(input));
+        input.setCharAt(input.length() - 13, 'b');
+        assertEquals(false, lazy.accepts(input));
+        assertTrue(lazy.flushes() > 0);
+        assertTrue(lazy.fallbacks() > 0);
+        assertTrue(lazy.cachedStates() <= lazy.maxStates());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCacheTooSmall() {
+        new LazyDFA(DeterminizerTest.mainAutomaton().toNFA(), 2);
+    }
+}
@@ -0,0 +1,32 @@
+package Lexer;
+
+// A lexical or syntax error found while recovering: where it starts, how many chars it covers,
+// and the message the non-recovering lexer or parser would have thrown.
+public final class Diagnostic {
+    private final long offset;
+    private final int length;
+    private final String message;
+
+    public Diagnostic(long offset, int length, String message) {
+        this.offset = offset;
+        this.length = length;
+        this.message = message;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return offset + ": " + message;
+    }
+}
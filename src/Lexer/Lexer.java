@@ -1,79 +1,98 @@
 package Lexer;
 
-import java.util.ArrayList;
 import java.util.List;
 
-public class Lexer {
-    private final String input;
+public class Lexer implements TokenSource {
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final CharSequence input;
+    private final LexerTable table;
+    private final List<Diagnostic> diagnostics;
+    private final int[] ends = new int[2];
     private int position;
+    private int matchEnd;
+
+    public Lexer(CharSequence input) {
+        this(input, LexerTable.DEFAULT);
+    }
+
+    public Lexer(CharSequence input, LexerTable table) {
+        this(input, table, null);
+    }
 
-    public Lexer(String input) {
+    // Recovering lexer: a run of chars that start no token becomes one ERROR token and a
+    // diagnostic instead of an exception.
+    public Lexer(CharSequence input, List<Diagnostic> diagnostics) {
+        this(input, LexerTable.DEFAULT, diagnostics);
+    }
+
+    public Lexer(CharSequence input, LexerTable table, List<Diagnostic> diagnostics) {
         this.input = input;
+        this.table = table;
+        this.diagnostics = diagnostics;
         this.position = 0;
     }
 
     public List<Token> tokenize() throws Exception {
-        List<Token> tokens = new ArrayList<>();
+        return scan().toTokens();
+    }
 
-        while (position < input.length()) {
-            char currentChar = input.charAt(position);
+    public TokenBuffer scan() throws Exception {
+        int length = input.length();
+        TokenBuffer tokens = new TokenBuffer(input, length / 4 + 16);
 
-            if (Character.isDigit(currentChar)) {
-                String number = parseNumber();
-                tokens.add(new Token(TokenType.NUMBER, number));
-            } else if (Character.isLetter(currentChar)) {
-                String identifier = parseIdentifier();
-                TokenType type = TokenType.KEYWORD;
-                if (!Keyword.isKeyword(identifier)) {
-                    type = TokenType.IDENTIFIER;
-                }
-                tokens.add(new Token(type, identifier));
-            } else if (currentChar == '(') {
-                tokens.add(new Token(TokenType.LEFT_PAREN, "("));
-                position++;
-            } else if (currentChar == ')') {
-                tokens.add(new Token(TokenType.RIGHT_PAREN, ")"));
-                position++;
-            } else if (currentChar == '+') {
-                tokens.add(new Token(TokenType.PLUS, "+"));
-                position++;
-            } else if (currentChar == '-') {
-                tokens.add(new Token(TokenType.MINUS, "-"));
-                position++;
-            } else if (currentChar == '*') {
-                tokens.add(new Token(TokenType.MULTIPLY, "*"));
-                position++;
-            } else if (currentChar == '/') {
-                tokens.add(new Token(TokenType.DIVIDE, "/"));
-                position++;
-            } else if (currentChar == '=') {
-                tokens.add(new Token(TokenType.EQUAL, "="));
-                position++;
-            } else if (currentChar == ' ') {
-                position++;
-            } else {
-                throw new Exception("Unexpected character: " + currentChar);
+        while (position < length) {
+            int type = match();
+            if (type != LexerTable.SKIP) {
+                tokens.add(type, position, matchEnd - position);
             }
+            position = matchEnd;
         }
 
         return tokens;
     }
 
-    private String parseNumber() {
-        int start = position;
-        while (position < input.length() && Character.isDigit(input.charAt(position))) {
-            position++;
+    @Override
+    public Token nextToken() throws Exception {
+        while (position < input.length()) {
+            int type = match();
+            int start = position;
+            position = matchEnd;
+            if (type != LexerTable.SKIP) {
+                return new Token(TYPES[type], input.subSequence(start, matchEnd).toString(), start);
+            }
         }
-        return input.substring(start, position);
+        return new Token(TokenType.EOF, "", input.length());
     }
 
-    private String parseIdentifier() {
-        int start = position;
-        while (position < input.length() && (Character.isLetterOrDigit(input.charAt(position)) || input.charAt(position) == '_')) {
-            position++;
+    // Longest match at position: leaves its end in matchEnd and returns its type.
+    private int match() throws Exception {
+        int type = longestMatch(position);
+        if (type != LexerTable.NONE) {
+            return type;
+        }
+        if (diagnostics == null) {
+            throw new Exception("Unexpected character: " + input.charAt(position));
+        }
+        int end = position + 1;
+        while (end < input.length() && longestMatch(end) == LexerTable.NONE) {
+            end++;
         }
-        return input.substring(start, position);
+        diagnostics.add(unexpected(input, position, end));
+        matchEnd = end;
+        return TokenType.ERROR.ordinal();
     }
-}
 
+    private int longestMatch(int start) {
+        int type = table.match(input, start, ends);
+        matchEnd = ends[0];
+        return type;
+    }
 
+    // The diagnostic for an ERROR token covering input[start, end).
+    public static Diagnostic unexpected(CharSequence input, int start, int end) {
+        String text = input.subSequence(start, end).toString();
+        return new Diagnostic(start, end - start,
+                (end - start == 1 ? "Unexpected character: " : "Unexpected characters: ") + text);
+    }
+}
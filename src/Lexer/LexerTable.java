@@ -0,0 +1,280 @@
+package Lexer;
+
+import java.util.*;
+import java.util.function.IntPredicate;
+
+// Token definitions compiled into one DFA over character classes. Every char is mapped to the
+// class of chars accepted by exactly the same definition steps, so scanning costs two array
+// lookups per character. The longest match wins, and on equal length the definition added first.
+public final class LexerTable {
+    public static final int NONE = -1;
+    public static final int SKIP = -2;
+    public static final int DEAD = -1;
+
+    public static final LexerTable DEFAULT = defaults().build();
+
+    private final byte[] charClass;
+    private final int classCount;
+    private final int[] next;
+    private final int[] accept;
+    private final boolean[] onlySkips;
+
+    private LexerTable(byte[] charClass, int classCount, int[] next, int[] accept) {
+        this.charClass = charClass;
+        this.classCount = classCount;
+        this.next = next;
+        this.accept = accept;
+
+        // A state reaches a token when it accepts one or has a successor that does.
+        boolean[] reachesToken = new boolean[accept.length];
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int s = 0; s < accept.length; s++) {
+                if (reachesToken[s]) {
+                    continue;
+                }
+                boolean reaches = accept[s] >= 0;
+                for (int k = 0; k < classCount && !reaches; k++) {
+                    int t = next[s * classCount + k];
+                    reaches = t != DEAD && reachesToken[t];
+                }
+                if (reaches) {
+                    reachesToken[s] = true;
+                    changed = true;
+                }
+            }
+        }
+        this.onlySkips = new boolean[accept.length];
+        for (int s = 0; s < accept.length; s++) {
+            onlySkips[s] = !reachesToken[s];
+        }
+    }
+
+    // Keywords come before identifiers so that they win the tie on equal length.
+    public static Builder defaults() {
+        Builder builder = new Builder();
+        for (Keyword keyword : Keyword.values()) {
+            builder.keyword(TokenType.KEYWORD, keyword.name());
+        }
+        return builder
+                .run(TokenType.IDENTIFIER, Character::isLetter, c -> Character.isLetterOrDigit(c) || c == '_')
+                .run(TokenType.NUMBER, Character::isDigit, Character::isDigit)
+                .literal(TokenType.LEFT_PAREN, "(")
+                .literal(TokenType.RIGHT_PAREN, ")")
+                .literal(TokenType.PLUS, "+")
+                .literal(TokenType.MINUS, "-")
+                .literal(TokenType.MULTIPLY, "*")
+                .literal(TokenType.DIVIDE, "/")
+                .literal(TokenType.EQUAL, "=")
+                .skip(Character::isWhitespace);
+    }
+
+    public int start() {
+        return 0;
+    }
+
+    // Longest match in input from start. Returns the accepted type or NONE, leaves the end of the
+    // match in ends[0] and one past the last char the DFA looked at in ends[1]; running into the end
+    // of input counts as looking at one more char, since appending text could extend the match.
+    public int match(CharSequence input, int start, int[] ends) {
+        int length = input.length();
+        int state = start();
+        int type = NONE;
+        ends[0] = start;
+        int i = start;
+        for (; i < length; i++) {
+            state = next(state, input.charAt(i));
+            if (state == DEAD) {
+                break;
+            }
+            if (accept[state] != NONE) {
+                type = accept[state];
+                ends[0] = i + 1;
+            }
+        }
+        ends[1] = i + 1;
+        return type;
+    }
+
+    public int next(int state, char c) {
+        return next[state * classCount + (charClass[c] & 0xFF)];
+    }
+
+    // TokenType ordinal accepted in state, SKIP, or NONE.
+    public int accept(int state) {
+        return accept[state];
+    }
+
+    // True when no match continuing through state produces a token, so a streaming lexer can drop
+    // the chars it has read so far once state accepts SKIP.
+    public boolean onlySkips(int state) {
+        return onlySkips[state];
+    }
+
+    public int stateCount() {
+        return accept.length;
+    }
+
+    public int classCount() {
+        return classCount;
+    }
+
+    public static final class Builder {
+        private final List<IntPredicate[]> steps = new ArrayList<>();
+        private final List<IntPredicate> loops = new ArrayList<>();
+        private final List<Integer> types = new ArrayList<>();
+        private final Map<Character, IntPredicate> exact = new HashMap<>();
+        private final Map<Character, IntPredicate> folded = new HashMap<>();
+
+        public Builder literal(TokenType type, String text) {
+            IntPredicate[] sequence = new IntPredicate[text.length()];
+            for (int i = 0; i < sequence.length; i++) {
+                char c = text.charAt(i);
+                sequence[i] = exact.computeIfAbsent(c, k -> x -> x == k);
+            }
+            return add(sequence, null, type.ordinal());
+        }
+
+        // Matches text the way String.equalsIgnoreCase does, char by char.
+        public Builder keyword(TokenType type, String text) {
+            IntPredicate[] sequence = new IntPredicate[text.length()];
+            for (int i = 0; i < sequence.length; i++) {
+                char c = text.charAt(i);
+                sequence[i] = folded.computeIfAbsent(c, k -> x -> equalsIgnoreCase((char) x, k));
+            }
+            return add(sequence, null, type.ordinal());
+        }
+
+        // One char accepted by first, then any number accepted by rest.
+        public Builder run(TokenType type, IntPredicate first, IntPredicate rest) {
+            return add(new IntPredicate[]{first}, rest, type.ordinal());
+        }
+
+        // Runs of chars accepted by blank are consumed without producing a token.
+        public Builder skip(IntPredicate blank) {
+            return add(new IntPredicate[]{blank}, blank, SKIP);
+        }
+
+        private Builder add(IntPredicate[] sequence, IntPredicate loop, int type) {
+            if (sequence.length == 0) {
+                throw new IllegalArgumentException("Empty token definition");
+            }
+            steps.add(sequence);
+            loops.add(loop);
+            types.add(type);
+            return this;
+        }
+
+        public LexerTable build() {
+            List<IntPredicate> atoms = new ArrayList<>();
+            Map<IntPredicate, Integer> atomIds = new IdentityHashMap<>();
+            for (int d = 0; d < steps.size(); d++) {
+                for (IntPredicate step : steps.get(d)) {
+                    atomIds.computeIfAbsent(step, k -> { atoms.add(k); return atoms.size() - 1; });
+                }
+                if (loops.get(d) != null) {
+                    atomIds.computeIfAbsent(loops.get(d), k -> { atoms.add(k); return atoms.size() - 1; });
+                }
+            }
+            if (atoms.size() > 64) {
+                throw new IllegalStateException("At most 64 distinct character predicates are supported");
+            }
+
+            // Chars with the same signature (set of atoms accepting them) are interchangeable.
+            byte[] charClass = new byte[Character.MAX_VALUE + 1];
+            Map<Long, Integer> classes = new HashMap<>();
+            List<Character> representatives = new ArrayList<>();
+            for (int c = 0; c <= Character.MAX_VALUE; c++) {
+                long signature = 0;
+                for (int a = 0; a < atoms.size(); a++) {
+                    if (atoms.get(a).test(c)) {
+                        signature |= 1L << a;
+                    }
+                }
+                Integer id = classes.get(signature);
+                if (id == null) {
+                    id = classes.size();
+                    if (id > 0xFF) {
+                        throw new IllegalStateException("More than 256 character classes");
+                    }
+                    classes.put(signature, id);
+                    representatives.add((char) c);
+                }
+                charClass[c] = (byte) (int) id;
+            }
+            int classCount = classes.size();
+
+            // NFA state offset[d] + j - 1 means definition d has matched its first j steps.
+            int[] offset = new int[steps.size() + 1];
+            for (int d = 0; d < steps.size(); d++) {
+                offset[d + 1] = offset[d] + steps.get(d).length;
+            }
+            Map<BitSet, Integer> ids = new HashMap<>();
+            List<BitSet> states = new ArrayList<>();
+            List<int[]> rows = new ArrayList<>();
+            BitSet initial = new BitSet();
+            ids.put(initial, 0);
+            states.add(initial);
+            for (int s = 0; s < states.size(); s++) {
+                BitSet current = states.get(s);
+                int[] row = new int[classCount];
+                for (int k = 0; k < classCount; k++) {
+                    char c = representatives.get(k);
+                    BitSet target = new BitSet();
+                    for (int d = 0; d < steps.size(); d++) {
+                        IntPredicate[] sequence = steps.get(d);
+                        if (s == 0 && sequence[0].test(c)) {
+                            target.set(offset[d]);
+                        }
+                        for (int j = 1; j <= sequence.length; j++) {
+                            if (!current.get(offset[d] + j - 1)) {
+                                continue;
+                            }
+                            if (j < sequence.length && sequence[j].test(c)) {
+                                target.set(offset[d] + j);
+                            } else if (j == sequence.length && loops.get(d) != null && loops.get(d).test(c)) {
+                                target.set(offset[d] + j - 1);
+                            }
+                        }
+                    }
+                    if (target.isEmpty()) {
+                        row[k] = DEAD;
+                        continue;
+                    }
+                    Integer id = ids.get(target);
+                    if (id == null) {
+                        id = states.size();
+                        ids.put(target, id);
+                        states.add(target);
+                    }
+                    row[k] = id;
+                }
+                rows.add(row);
+            }
+
+            int[] next = new int[states.size() * classCount];
+            int[] accept = new int[states.size()];
+            for (int s = 0; s < states.size(); s++) {
+                System.arraycopy(rows.get(s), 0, next, s * classCount, classCount);
+                accept[s] = NONE;
+                for (int d = 0; d < steps.size(); d++) {
+                    if (states.get(s).get(offset[d + 1] - 1)) {
+                        accept[s] = types.get(d);
+                        break;
+                    }
+                }
+            }
+            return new LexerTable(charClass, classCount, next, accept);
+        }
+    }
+
+    private static boolean equalsIgnoreCase(char a, char b) {
+        if (a == b) {
+            return true;
+        }
+        char upperA = Character.toUpperCase(a);
+        char upperB = Character.toUpperCase(b);
+        return upperA == upperB || Character.toLowerCase(upperA) == Character.toLowerCase(upperB);
+    }
+}
@@ -0,0 +1,155 @@
+package Lexer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class LexerTableTest {
+    // The default definitions as regexes, in the order they are added.
+    private static final Pattern[] PATTERNS = {
+            Pattern.compile("(?i)if"), Pattern.compile("(?i)else"), Pattern.compile("(?i)while"),
+            Pattern.compile("(?i)for"), Pattern.compile("(?i)return"),
+            Pattern.compile("[a-zA-Z][a-zA-Z0-9_]*"), Pattern.compile("[0-9]+"),
+            Pattern.compile("\\("), Pattern.compile("\\)"), Pattern.compile("\\+"), Pattern.compile("-"),
+            Pattern.compile("\\*"), Pattern.compile("/"), Pattern.compile("="), Pattern.compile("\\s+")};
+    private static final int[] TYPES = {
+            TokenType.KEYWORD.ordinal(), TokenType.KEYWORD.ordinal(), TokenType.KEYWORD.ordinal(),
+            TokenType.KEYWORD.ordinal(), TokenType.KEYWORD.ordinal(), TokenType.IDENTIFIER.ordinal(),
+            TokenType.NUMBER.ordinal(), TokenType.LEFT_PAREN.ordinal(), TokenType.RIGHT_PAREN.ordinal(),
+            TokenType.PLUS.ordinal(), TokenType.MINUS.ordinal(), TokenType.MULTIPLY.ordinal(),
+            TokenType.DIVIDE.ordinal(), TokenType.EQUAL.ordinal(), LexerTable.SKIP};
+
+    static List<String> tokens(String input) throws Exception {
+        List<String> tokens = new ArrayList<>();
+        for (Token token : new Lexer(input).tokenize()) {
+            tokens.add(token.getType() + " " + token.getValue() + " @" + token.getOffset());
+        }
+        return tokens;
+    }
+
+    // Longest regex match at start, the earliest definition winning ties; {type, end}.
+    private static int[] referenceMatch(String input, int start) {
+        int type = LexerTable.NONE;
+        int end = start;
+        for (int d = 0; d < PATTERNS.length; d++) {
+            Matcher matcher = PATTERNS[d].matcher(input).region(start, input.length());
+            if (matcher.lookingAt() && matcher.end() > end) {
+                type = TYPES[d];
+                end = matcher.end();
+            }
+        }
+        return new int[]{type, end};
+    }
+
+    @Test
+    public void testKeywordsAndIdentifiers() throws Exception {
+        assertEquals(List.of("KEYWORD if @0"), tokens("if"));
+        assertEquals(List.of("IDENTIFIER iff @0"), tokens("iff"));
+        assertEquals(List.of("KEYWORD While @0"), tokens("While"));
+        assertEquals(List.of("IDENTIFIER if2 @0"), tokens("if2"));
+        assertEquals(List.of("IDENTIFIER if_ @0"), tokens("if_"));
+        assertEquals(List.of("IDENTIFIER returns @0"), tokens("returns"));
+        assertEquals(List.of("IDENTIFIER i @0"), tokens("i"));
+        assertEquals(List.of("KEYWORD if @0", "LEFT_PAREN ( @2", "IDENTIFIER x @3", "RIGHT_PAREN ) @4"), tokens("if(x)"));
+        assertEquals(List.of("KEYWORD for @0", "IDENTIFIER ever @4"), tokens("for ever"));
+    }
+
+    @Test
+    public void testLongestMatch() throws Exception {
+        assertEquals(List.of("NUMBER 123 @0", "IDENTIFIER abc @3"), tokens("123abc"));
+        assertEquals(List.of("IDENTIFIER abc123 @0"), tokens("abc123"));
+        assertEquals(List.of("NUMBER 12 @0", "MINUS - @2", "NUMBER 3 @3"), tokens("12-3"));
+        assertEquals(List.of("IDENTIFIER x @0", "EQUAL = @1", "EQUAL = @2", "NUMBER 0 @3"), tokens("x==0"));
+    }
+
+    @Test
+    public void testWhitespace() throws Exception {
+        assertEquals(List.of("IDENTIFIER a @2", "PLUS + @6", "NUMBER 1 @11"), tokens("  a \t\n+\r\n  1  "));
+        assertEquals(List.of(), tokens(" \t \n "));
+        int[] ends = new int[2];
+        assertEquals(LexerTable.SKIP, LexerTable.DEFAULT.match(" \t x", 0, ends));
+        assertEquals(3, ends[0]);
+    }
+
+    @Test
+    public void testMatchEnds() {
+        int[] ends = new int[2];
+        // Running into the end of input counts as looking one char further.
+        assertEquals(TokenType.KEYWORD.ordinal(), LexerTable.DEFAULT.match("if", 0, ends));
+        assertEquals(2, ends[0]);
+        assertEquals(3, ends[1]);
+        assertEquals(TokenType.IDENTIFIER.ordinal(), LexerTable.DEFAULT.match("ab+", 0, ends));
+        assertEquals(2, ends[0]);
+        assertEquals(3, ends[1]);
+        assertEquals(LexerTable.NONE, LexerTable.DEFAULT.match("x#", 1, ends));
+        assertEquals(1, ends[0]);
+        assertEquals(2, ends[1]);
+    }
+
+    @Test
+    public void testAgreesWithRegexes() {
+        Random random = new Random(1);
+        String alphabet = "ifIFelsworuntxy_019 \t\n()+-*/=#";
+        int[] ends = new int[2];
+        for (int round = 0; round < 2000; round++) {
+            StringBuilder input = new StringBuilder();
+            for (int i = random.nextInt(12); i >= 0; i--) {
+                input.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            String text = input.toString();
+            for (int start = 0; start < text.length(); start++) {
+                int[] expected = referenceMatch(text, start);
+                assertEquals(text + " @" + start, expected[0], LexerTable.DEFAULT.match(text, start, ends));
+                assertEquals(text + " @" + start, expected[1], ends[0]);
+            }
+        }
+    }
+
+    @Test
+    public void testErrorToken() throws Exception {
+        List<Diagnostic> diagnostics = new ArrayList<>();
+        List<Token> tokens = new Lexer("1 @@ x#", diagnostics).tokenize();
+        List<String> found = new ArrayList<>();
+        for (Token token : tokens) {
+            found.add(token.getType() + " " + token.getValue() + " @" + token.getOffset());
+        }
+        assertEquals(List.of("NUMBER 1 @0", "ERROR @@ @2", "IDENTIFIER x @5", "ERROR # @6"), found);
+        assertEquals(2, diagnostics.size());
+        assertEquals("Unexpected characters: @@", diagnostics.get(0).getMessage());
+        assertEquals("Unexpected character: #", diagnostics.get(1).getMessage());
+        try {
+            tokens("1 @ 2");
+            fail("Expected an exception for @");
+        } catch (Exception e) {
+            assertEquals("Unexpected character: @", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCustomTable() throws Exception {
+        // On equal length the definition added first wins, whichever is more general.
+        LexerTable table = new LexerTable.Builder()
+                .run(TokenType.IDENTIFIER, Character::isLetter, Character::isLetter)
+                .literal(TokenType.KEYWORD, "let")
+                .literal(TokenType.EQUAL, "=")
+                .skip(c -> c == ' ')
+                .build();
+        List<String> found = new ArrayList<>();
+        for (Token token : new Lexer("let x = lets", table).tokenize()) {
+            found.add(token.getType() + " " + token.getValue());
+        }
+        assertEquals(List.of("IDENTIFIER let", "IDENTIFIER x", "EQUAL =", "IDENTIFIER lets"), found);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyDefinition() {
+        new LexerTable.Builder().literal(TokenType.PLUS, "");
+    }
+}
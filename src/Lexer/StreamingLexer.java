@@ -0,0 +1,122 @@
+package Lexer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+// Lexer over a Reader or channel that holds only a fixed window of the input. The window starts at
+// the token being matched; when the DFA runs off its end the unread tail is moved to the front and
+// refilled, so a token may straddle any number of reads. The window only grows for a single token
+// longer than itself: a run of skipped chars is dropped whenever the window runs out, as soon as
+// the table says nothing but SKIP can follow, so long blank runs do not grow it.
+public class StreamingLexer implements TokenSource {
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final Reader reader;
+    private final LexerTable table;
+    private char[] buffer;
+    private int begin;
+    private int limit;
+    private long offset;
+    private boolean exhausted;
+
+    public StreamingLexer(Reader reader) {
+        this(reader, DEFAULT_BUFFER_SIZE, LexerTable.DEFAULT);
+    }
+
+    public StreamingLexer(ReadableByteChannel channel) {
+        this(Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), DEFAULT_BUFFER_SIZE));
+    }
+
+    public StreamingLexer(Reader reader, int bufferSize, LexerTable table) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive");
+        }
+        this.reader = reader;
+        this.table = table;
+        this.buffer = new char[bufferSize];
+    }
+
+    @Override
+    public Token nextToken() throws Exception {
+        while (true) {
+            if (begin == limit && !fill()) {
+                return new Token(TokenType.EOF, "", offset);
+            }
+            int state = table.start();
+            int type = LexerTable.NONE;
+            int length = 0;
+            // k is relative to begin, which fill() may move.
+            for (int k = 0; ; k++) {
+                if (begin + k == limit && !fill()) {
+                    break;
+                }
+                state = table.next(state, buffer[begin + k]);
+                if (state == LexerTable.DEAD) {
+                    break;
+                }
+                if (table.accept(state) != LexerTable.NONE) {
+                    type = table.accept(state);
+                    length = k + 1;
+                    if (type == LexerTable.SKIP && begin + length == limit && table.onlySkips(state)) {
+                        begin += length;
+                        offset += length;
+                        length = 0;
+                        k = -1;
+                    }
+                }
+            }
+
+            if (type == LexerTable.NONE) {
+                throw new Exception("Unexpected character: " + buffer[begin]);
+            }
+            int start = begin;
+            long tokenOffset = offset;
+            begin += length;
+            offset += length;
+            if (type != LexerTable.SKIP) {
+                return new Token(TYPES[type], new String(buffer, start, length), tokenOffset);
+            }
+        }
+    }
+
+    // Offset in chars of the next unread token.
+    public long offset() {
+        return offset;
+    }
+
+    // Chars the window can currently hold.
+    int capacity() {
+        return buffer.length;
+    }
+
+    // Reads more input behind limit, first moving [begin, limit) to the front of the window.
+    private boolean fill() throws IOException {
+        if (exhausted) {
+            return false;
+        }
+        if (begin > 0) {
+            System.arraycopy(buffer, begin, buffer, 0, limit - begin);
+            limit -= begin;
+            begin = 0;
+        }
+        if (limit == buffer.length) {
+            char[] larger = new char[buffer.length * 2];
+            System.arraycopy(buffer, 0, larger, 0, limit);
+            buffer = larger;
+        }
+        int n;
+        do {
+            n = reader.read(buffer, limit, buffer.length - limit);
+        } while (n == 0);
+        if (n < 0) {
+            exhausted = true;
+            return false;
+        }
+        limit += n;
+        return true;
+    }
+}
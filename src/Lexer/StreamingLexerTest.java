@@ -0,0 +1,125 @@
+package Lexer;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StreamingLexerTest {
+    private static final String[] PIECES = {"if", "iff", "x", "y_1", "42", "7", "+", "-", "*", "/", "(", ")", "=",
+            " ", "\t", "\r\n", "    "};
+
+    // A Reader that returns at most one char per read, so every token straddles reads.
+    private static Reader trickle(String text) {
+        return new StringReader(text) {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                return super.read(buffer, offset, Math.min(length, 1));
+            }
+        };
+    }
+
+    private static List<String> describe(TokenSource source) throws Exception {
+        List<String> tokens = new ArrayList<>();
+        while (true) {
+            Token token = source.nextToken();
+            tokens.add(token.getType() + " " + token.getValue() + " @" + token.getOffset());
+            if (token.getType() == TokenType.EOF) {
+                return tokens;
+            }
+        }
+    }
+
+    private static void assertSameAsLexer(String text) throws Exception {
+        List<String> expected = describe(new Lexer(text));
+        for (int size = 1; size <= 3; size++) {
+            assertEquals(text + " / " + size, expected,
+                    describe(new StreamingLexer(new StringReader(text), size, LexerTable.DEFAULT)));
+            assertEquals(text + " / " + size, expected, describe(new StreamingLexer(trickle(text), size, LexerTable.DEFAULT)));
+        }
+    }
+
+    @Test
+    public void testSmallBuffers() throws Exception {
+        assertSameAsLexer("");
+        assertSameAsLexer("   ");
+        assertSameAsLexer("if iff returns (x1 + 23) * y_2 / 4 - z");
+        assertSameAsLexer("  12345678 abcdefghij  ");
+        Random random = new Random(1);
+        for (int round = 0; round < 300; round++) {
+            StringBuilder text = new StringBuilder();
+            for (int i = random.nextInt(20); i > 0; i--) {
+                text.append(PIECES[random.nextInt(PIECES.length)]);
+            }
+            assertSameAsLexer(text.toString());
+        }
+    }
+
+    @Test
+    public void testEofRepeats() throws Exception {
+        StreamingLexer lexer = new StreamingLexer(new StringReader("x "), 1, LexerTable.DEFAULT);
+        assertEquals(TokenType.IDENTIFIER, lexer.nextToken().getType());
+        assertEquals(TokenType.EOF, lexer.nextToken().getType());
+        Token eof = lexer.nextToken();
+        assertEquals(TokenType.EOF, eof.getType());
+        assertEquals(2, eof.getOffset());
+    }
+
+    @Test
+    public void testBlankRunsDoNotGrowBuffer() throws Exception {
+        StringBuilder text = new StringBuilder("a");
+        for (int i = 0; i < 100_000; i++) {
+            text.append(i % 7 == 0 ? '\n' : ' ');
+        }
+        text.append("bc");
+        for (int size = 1; size <= 3; size++) {
+            StreamingLexer lexer = new StreamingLexer(new StringReader(text.toString()), size, LexerTable.DEFAULT);
+            assertEquals("IDENTIFIER a @0", describe(lexer).get(0));
+            assertTrue(lexer.capacity() <= 4);
+        }
+        assertSameAsLexer(text.toString());
+    }
+
+    // A definition that starts with a blank must still win over the blank run it extends.
+    @Test
+    public void testSkipPrefixOfToken() throws Exception {
+        LexerTable table = new LexerTable.Builder()
+                .literal(TokenType.PLUS, "   +")
+                .literal(TokenType.MINUS, "-")
+                .skip(c -> c == ' ')
+                .build();
+        String text = "-   + -  -   +";
+        List<String> expected = describe(new Lexer(text, table));
+        assertEquals(List.of("MINUS - @0", "PLUS    + @1", "MINUS - @6", "MINUS - @9", "PLUS    + @10", "EOF  @14"),
+                expected);
+        for (int size = 1; size <= 3; size++) {
+            assertEquals(expected, describe(new StreamingLexer(trickle(text), size, table)));
+        }
+    }
+
+    @Test
+    public void testUnexpectedCharacter() throws Exception {
+        StreamingLexer lexer = new StreamingLexer(new StringReader("1 + #"), 2, LexerTable.DEFAULT);
+        assertEquals(TokenType.NUMBER, lexer.nextToken().getType());
+        assertEquals(TokenType.PLUS, lexer.nextToken().getType());
+        try {
+            lexer.nextToken();
+            fail("Expected an exception for #");
+        } catch (Exception e) {
+            assertEquals("Unexpected character: #", e.getMessage());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyBuffer() {
+        new StreamingLexer(new StringReader(""), 0, LexerTable.DEFAULT);
+    }
+}
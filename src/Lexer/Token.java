@@ -3,10 +3,17 @@ package Lexer;
 public class Token {
     private final TokenType type;
     private final String value;
+    private final long offset;
 
     public Token(TokenType type, String value) {
+        this(type, value, -1);
+    }
+
+    // offset is the position of the first char in the input, or -1 when unknown.
+    public Token(TokenType type, String value, long offset) {
         this.type = type;
         this.value = value;
+        this.offset = offset;
     }
 
     public TokenType getType() {
@@ -17,6 +24,10 @@ public class Token {
         return value;
     }
 
+    public long getOffset() {
+        return offset;
+    }
+
     @Override
     public String toString() {
         return type + " " + value;
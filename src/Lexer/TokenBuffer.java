@@ -0,0 +1,88 @@
+package Lexer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Tokens as parallel arrays of type ordinals, start offsets and lengths into the scanned source;
+// token text is only copied when a caller asks for it.
+public final class TokenBuffer {
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final CharSequence source;
+    private byte[] types;
+    private int[] starts;
+    private int[] lengths;
+    private int size;
+
+    public TokenBuffer(CharSequence source) {
+        this(source, 16);
+    }
+
+    public TokenBuffer(CharSequence source, int capacity) {
+        this.source = source;
+        this.types = new byte[Math.max(1, capacity)];
+        this.starts = new int[types.length];
+        this.lengths = new int[types.length];
+    }
+
+    public void add(int type, int start, int length) {
+        if (size == types.length) {
+            int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+        }
+        types[size] = (byte) type;
+        starts[size] = start;
+        lengths[size] = length;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public CharSequence source() {
+        return source;
+    }
+
+    public TokenType type(int index) {
+        return TYPES[typeOrdinal(index)];
+    }
+
+    public int typeOrdinal(int index) {
+        return types[checkIndex(index)];
+    }
+
+    public int start(int index) {
+        return starts[checkIndex(index)];
+    }
+
+    public int length(int index) {
+        return lengths[checkIndex(index)];
+    }
+
+    public CharSequence text(int index) {
+        return source.subSequence(start(index), start(index) + length(index));
+    }
+
+    public Token token(int index) {
+        return new Token(type(index), text(index).toString(), start(index));
+    }
+
+    public List<Token> toTokens() {
+        List<Token> tokens = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            tokens.add(token(i));
+        }
+        return tokens;
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Token " + index + " of " + size);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,18 @@
+package Lexer;
+
+import java.util.Iterator;
+import java.util.List;
+
+// Pull interface between lexers and the parser. Once the input is exhausted nextToken() returns
+// an EOF token, and keeps returning one.
+public interface TokenSource {
+    Token nextToken() throws Exception;
+
+    // The EOF token is placed right after the last token when its offset is known.
+    static TokenSource of(List<Token> tokens) {
+        Iterator<Token> iterator = tokens.iterator();
+        Token last = tokens.isEmpty() ? null : tokens.get(tokens.size() - 1);
+        long end = last == null ? 0 : last.getOffset() < 0 ? -1 : last.getOffset() + last.getValue().length();
+        return () -> iterator.hasNext() ? iterator.next() : new Token(TokenType.EOF, "", end);
+    }
+}
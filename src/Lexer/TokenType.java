@@ -10,7 +10,8 @@ public enum TokenType {
     MULTIPLY,
     DIVIDE,
     EQUAL,
-    EOF
+    EOF,
+    ERROR
 }
 
 
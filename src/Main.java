@@ -1,6 +1,7 @@
 import Parser.*;
 import Lexer.*;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class Main {
@@ -138,13 +139,15 @@ public class Main {
         String input = "10 / 5 # 2";
         System.out.println("Input: " + input);
         try {
-            Lexer lexer = new Lexer(input);
-            List<Token> tokens = lexer.tokenize();
+            List<Diagnostic> diagnostics = new ArrayList<>();
+            Parser.parse(input, diagnostics);
 
-            Parser parser = new Parser(tokens);
-            parser.parse();
-
-            System.out.println("Expression is syntactically correct.");
+            if (diagnostics.isEmpty()) {
+                System.out.println("Expression is syntactically correct.");
+            }
+            for (Diagnostic diagnostic : diagnostics) {
+                System.out.println("Error at " + diagnostic.getOffset() + ": " + diagnostic.getMessage());
+            }
         } catch (Exception e) {
             System.out.println("Error: " + e.getMessage());
         }
@@ -0,0 +1,193 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// A CompiledDFA stored in a binary file and matched in place: load maps the file and accepts reads
+// the alphabet map, the transition table and the accepting bits straight from the mapping, so
+// nothing is deserialized and processes loading the same file share its pages. The buffer is only
+// read with absolute gets, so one instance may be used by several threads.
+//
+// Layout, little-endian, every section 8-byte aligned:
+//   header    magic "FLDA", version, state count, class count, start state, char count, 2 reserved
+//   chars     char count ints, the class of each char or DEAD
+//   table     state count * class count ints, the target of each (state, class) or DEAD
+//   accepting ceil(state count / 64) longs, bit s set when state s accepts
+// Multi-char symbols are not stored, since accepts reads one char per symbol. State names are not
+// stored either. Loading checks every char class and table entry once, which reads the whole file,
+// so that a damaged file is rejected with an IOException instead of sending accepts to the wrong
+// state.
+public final class MappedDFA implements Matcher {
+    public static final int DEAD = CompiledDFA.DEAD;
+    public static final int MAGIC = 'F' | 'L' << 8 | 'D' << 16 | 'A' << 24;
+    public static final int VERSION = 1;
+    private static final int HEADER = 32;
+
+    private final ByteBuffer buffer;
+    private final int stateCount;
+    private final int classCount;
+    private final int start;
+    private final int charCount;
+    private final int tableOffset;
+    private final int acceptingOffset;
+
+    private MappedDFA(ByteBuffer buffer, String source) throws IOException {
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.limit() < HEADER || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a DFA file: " + source);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported DFA file version " + buffer.getInt(4) + " in " + source);
+        }
+        this.stateCount = buffer.getInt(8);
+        this.classCount = buffer.getInt(12);
+        this.start = buffer.getInt(16);
+        this.charCount = buffer.getInt(20);
+        if (stateCount <= 0 || classCount < 0 || charCount < 0 || start < 0 || start >= stateCount) {
+            throw new IOException("Corrupt DFA header in " + source);
+        }
+        long tableOffset = HEADER + align(4L * charCount);
+        long acceptingOffset = tableOffset + align(4L * stateCount * classCount);
+        long size = acceptingOffset + 8L * NFA.wordsFor(stateCount);
+        if (size != buffer.limit()) {
+            throw new IOException("DFA file " + source + " has " + buffer.limit() + " bytes, header implies " + size);
+        }
+        this.tableOffset = (int) tableOffset;
+        this.acceptingOffset = (int) acceptingOffset;
+        for (int c = 0; c < charCount; c++) {
+            int k = buffer.getInt(HEADER + 4 * c);
+            if (k != DEAD && (k < 0 || k >= classCount)) {
+                throw new IOException("Corrupt DFA file " + source + ": char " + c + " has class " + k);
+            }
+        }
+        for (int i = 0, n = stateCount * classCount; i < n; i++) {
+            int target = buffer.getInt(this.tableOffset + 4 * i);
+            if (target != DEAD && (target < 0 || target >= stateCount)) {
+                throw new IOException("Corrupt DFA file " + source + ": state " + i / classCount
+                        + " goes to " + target + " on class " + i % classCount);
+            }
+        }
+    }
+
+    public static MappedDFA load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("DFA file too large to map: " + path);
+            }
+            return new MappedDFA(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), path.toString());
+        }
+    }
+
+    // Wraps a buffer holding the file format, e.g. one mapped by the caller.
+    public static MappedDFA wrap(ByteBuffer buffer) throws IOException {
+        return new MappedDFA(buffer.slice(), "buffer");
+    }
+
+    // Writes a temporary file next to path and renames it over path, so a crash leaves either the
+    // old file or the new one, and instances already mapping the old file keep reading it intact
+    // instead of seeing it truncated under them.
+    public static void write(CompiledDFA dfa, Path path) throws IOException {
+        ByteBuffer bytes = encode(dfa);
+        Path directory = path.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public static ByteBuffer encode(CompiledDFA dfa) {
+        int n = dfa.stateCount();
+        int classes = dfa.classCount();
+        String[] symbols = dfa.symbols();
+        int chars = 0;
+        for (String symbol : symbols) {
+            if (symbol.length() == 1) {
+                chars = Math.max(chars, symbol.charAt(0) + 1);
+            }
+        }
+        long tableOffset = HEADER + align(4L * chars);
+        long acceptingOffset = tableOffset + align(4L * n * classes);
+        long size = acceptingOffset + 8L * NFA.wordsFor(n);
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("DFA with " + n + " states and " + classes + " classes is too large to encode");
+        }
+
+        ByteBuffer bytes = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        bytes.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, n).putInt(12, classes)
+                .putInt(16, dfa.startState()).putInt(20, chars);
+        for (int c = 0; c < chars; c++) {
+            bytes.putInt(HEADER + 4 * c, DEAD);
+        }
+        for (int i = 0; i < symbols.length; i++) {
+            if (symbols[i].length() == 1) {
+                bytes.putInt(HEADER + 4 * symbols[i].charAt(0), dfa.symbolClass(i));
+            }
+        }
+        for (int s = 0; s < n; s++) {
+            for (int c = 0; c < classes; c++) {
+                bytes.putInt((int) tableOffset + 4 * (s * classes + c), dfa.next(s, c));
+            }
+            if (dfa.isAccepting(s)) {
+                int at = (int) acceptingOffset + 8 * (s >>> 6);
+                bytes.putLong(at, bytes.getLong(at) | 1L << s);
+            }
+        }
+        return bytes;
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    @Override
+    public boolean accepts(CharSequence input) {
+        ByteBuffer buffer = this.buffer;
+        int charCount = this.charCount;
+        int classCount = this.classCount;
+        int tableOffset = this.tableOffset;
+        int state = start;
+        for (int i = 0, n = input.length(); i < n; i++) {
+            char c = input.charAt(i);
+            if (c >= charCount) {
+                return false;
+            }
+            int k = buffer.getInt(HEADER + 4 * c);
+            if (k == DEAD) {
+                return false;
+            }
+            state = buffer.getInt(tableOffset + 4 * (state * classCount + k));
+            if (state == DEAD) {
+                return false;
+            }
+        }
+        return isAccepting(state);
+    }
+
+    public boolean isAccepting(int state) {
+        return state != DEAD && (buffer.getLong(acceptingOffset + 8 * (state >>> 6)) & 1L << state) != 0;
+    }
+
+    public int stateCount() {
+        return stateCount;
+    }
+
+    public int classCount() {
+        return classCount;
+    }
+
+    public int startState() {
+        return start;
+    }
+}
@@ -0,0 +1,133 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MappedDFATest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Random random = new Random(1);
+        List<String> words = DeterminizerTest.words(random, 300);
+        for (FiniteAutomaton automaton : DeterminizerTest.automata(random, 200)) {
+            CompiledDFA dfa = Determinizer.determinize(automaton.toNFA());
+            MappedDFA mapped = MappedDFA.wrap(MappedDFA.encode(dfa));
+            assertEquals(dfa.stateCount(), mapped.stateCount());
+            assertEquals(dfa.classCount(), mapped.classCount());
+            assertEquals(dfa.startState(), mapped.startState());
+            for (String word : words) {
+                assertEquals(word, dfa.accepts(word), mapped.accepts(word));
+            }
+        }
+    }
+
+    @Test
+    public void testWriteReplacesMappedFile() throws IOException {
+        Random random = new Random(2);
+        List<String> words = DeterminizerTest.words(random, 300);
+        Path path = folder.getRoot().toPath().resolve("main.dfa");
+        CompiledDFA first = Determinizer.determinize(DeterminizerTest.mainAutomaton().toNFA());
+        CompiledDFA second = Determinizer.determinize(DeterminizerTest.mainFaAutomaton().toNFA());
+        MappedDFA.write(first, path);
+        MappedDFA old = MappedDFA.load(path);
+        MappedDFA.write(second, path);
+        MappedDFA loaded = MappedDFA.load(path);
+        for (String word : words) {
+            assertEquals(word, first.accepts(word), old.accepts(word));
+            assertEquals(word, second.accepts(word), loaded.accepts(word));
+        }
+        // The temporary file was renamed, not left behind.
+        assertArrayEquals(new String[]{"main.dfa"}, folder.getRoot().list());
+    }
+
+    @Test
+    public void testWriteIntoMissingDirectoryFails() {
+        Path path = folder.getRoot().toPath().resolve("missing").resolve("main.dfa");
+        try {
+            MappedDFA.write(Determinizer.determinize(DeterminizerTest.mainAutomaton().toNFA()), path);
+            fail();
+        } catch (IOException expected) {
+            assertFalse(new File(folder.getRoot(), "missing").exists());
+        }
+    }
+
+    // The main automaton's encoding with the int at offset replaced, or cut to size bytes.
+    private static ByteBuffer corrupt(int offset, int value, int size) {
+        ByteBuffer bytes = MappedDFA.encode(Determinizer.determinize(DeterminizerTest.mainAutomaton().toNFA()));
+        if (offset >= 0) {
+            bytes.putInt(offset, value);
+        }
+        ByteBuffer copy = ByteBuffer.allocate(Math.min(size, bytes.limit())).order(ByteOrder.LITTLE_ENDIAN);
+        copy.put(bytes.duplicate().limit(copy.capacity())).flip();
+        return copy;
+    }
+
+    private static void assertRejected(ByteBuffer bytes, String message) {
+        try {
+            MappedDFA.wrap(bytes);
+            fail(message);
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith(message));
+        }
+    }
+
+    @Test
+    public void testCorruptHeaders() {
+        int all = Integer.MAX_VALUE;
+        assertRejected(corrupt(-1, 0, 16), "Not a DFA file");
+        assertRejected(corrupt(0, MappedDFA.MAGIC + 1, all), "Not a DFA file");
+        assertRejected(corrupt(4, MappedDFA.VERSION + 1, all), "Unsupported DFA file version " + (MappedDFA.VERSION + 1));
+        assertRejected(corrupt(8, 0, all), "Corrupt DFA header");
+        assertRejected(corrupt(12, -1, all), "Corrupt DFA header");
+        assertRejected(corrupt(16, 1000, all), "Corrupt DFA header");
+        assertRejected(corrupt(20, -5, all), "Corrupt DFA header");
+        assertRejected(corrupt(20, 1 << 20, all), "DFA file buffer has");
+        assertRejected(corrupt(-1, 0, 40), "DFA file buffer has");
+    }
+
+    // A char class or a transition out of range is rejected on load.
+    @Test
+    public void testCorruptTables() {
+        int all = Integer.MAX_VALUE;
+        ByteBuffer bytes = corrupt(-1, 0, all);
+        int charCount = bytes.getInt(20);
+        int classCount = bytes.getInt(12);
+        int stateCount = bytes.getInt(8);
+        int tableOffset = 32 + (4 * charCount + 7) / 8 * 8;
+        int a = 32 + 4 * 'a';
+        assertRejected(corrupt(a, classCount, all), "Corrupt DFA file buffer: char 97 has class " + classCount);
+        assertRejected(corrupt(a, -2, all), "Corrupt DFA file buffer: char 97 has class -2");
+        assertRejected(corrupt(tableOffset, stateCount, all),
+                "Corrupt DFA file buffer: state 0 goes to " + stateCount + " on class 0");
+        int last = tableOffset + 4 * (stateCount * classCount - 1);
+        assertRejected(corrupt(last, -7, all),
+                "Corrupt DFA file buffer: state " + (stateCount - 1) + " goes to -7 on class " + (classCount - 1));
+    }
+
+    @Test
+    public void testCorruptFile() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("short.dfa");
+        Files.write(path, new byte[]{'F', 'L', 'D'});
+        try {
+            MappedDFA.load(path);
+            fail();
+        } catch (IOException e) {
+            assertEquals("Not a DFA file: " + path, e.getMessage());
+        }
+    }
+}
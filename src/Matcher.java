@@ -0,0 +1,19 @@
+// Whole-input membership test shared by the matching engines.
+public interface Matcher {
+    int DEFAULT_CACHE_STATES = 4096;
+
+    boolean accepts(CharSequence input);
+
+    // Deterministic automata get the table-driven CompiledDFA (determinizing them only renames
+    // states), other automata of up to BitParallelNFA.MAX_STATES states the bit-parallel
+    // simulation, and the rest a LazyDFA.
+    static Matcher of(NFA nfa) {
+        if (nfa.isDeterministic()) {
+            return Determinizer.determinize(nfa);
+        }
+        if (nfa.stateCount() <= BitParallelNFA.MAX_STATES) {
+            return new BitParallelNFA(nfa);
+        }
+        return new LazyDFA(nfa, DEFAULT_CACHE_STATES);
+    }
+}
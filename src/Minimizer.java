@@ -0,0 +1,197 @@
+import java.util.Arrays;
+
+public final class Minimizer {
+    private Minimizer() {
+    }
+
+    // Hopcroft partition refinement on the completed automaton (a sink replaces DEAD), followed
+    // by a breadth-first renumbering from the start state over the sorted alphabet. Two DFAs for
+    // the same language therefore come out with identical tables, names and symbol classes.
+    public static CompiledDFA minimize(CompiledDFA dfa) {
+        int k = dfa.classCount();
+        int sink = dfa.stateCount();
+        int n = sink + 1;
+
+        int[] delta = new int[n * k];
+        for (int s = 0; s < sink; s++) {
+            for (int c = 0; c < k; c++) {
+                int t = dfa.next(s, c);
+                delta[s * k + c] = t == CompiledDFA.DEAD ? sink : t;
+            }
+        }
+        Arrays.fill(delta, sink * k, n * k, sink);
+
+        // Inverse transitions in CSR form: predecessors of t on class c are
+        // invSource[invStart[c * n + t] .. invStart[c * n + t + 1]).
+        int[] invStart = new int[k * n + 1];
+        for (int s = 0; s < n; s++) {
+            for (int c = 0; c < k; c++) {
+                invStart[c * n + delta[s * k + c] + 1]++;
+            }
+        }
+        for (int i = 0; i < k * n; i++) {
+            invStart[i + 1] += invStart[i];
+        }
+        int[] invSource = new int[n * k];
+        int[] fill = Arrays.copyOf(invStart, k * n);
+        for (int s = 0; s < n; s++) {
+            for (int c = 0; c < k; c++) {
+                invSource[fill[c * n + delta[s * k + c]]++] = s;
+            }
+        }
+
+        // Blocks are contiguous ranges of elems; marked states are swapped to the front of their block.
+        int[] elems = new int[n];
+        int[] position = new int[n];
+        int[] blockOf = new int[n];
+        int[] first = new int[n];
+        int[] end = new int[n];
+        int[] marked = new int[n];
+        int blocks = 0;
+
+        int acceptingCount = 0;
+        for (int s = 0; s < n; s++) {
+            if (s < sink && dfa.isAccepting(s)) {
+                acceptingCount++;
+            }
+        }
+        int a = 0;
+        int r = acceptingCount;
+        for (int s = 0; s < n; s++) {
+            int at = s < sink && dfa.isAccepting(s) ? a++ : r++;
+            elems[at] = s;
+            position[s] = at;
+        }
+        if (acceptingCount > 0) {
+            first[blocks] = 0;
+            end[blocks] = acceptingCount;
+            blocks++;
+        }
+        first[blocks] = acceptingCount;
+        end[blocks] = n;
+        blocks++;
+        for (int b = 0; b < blocks; b++) {
+            for (int i = first[b]; i < end[b]; i++) {
+                blockOf[elems[i]] = b;
+            }
+        }
+
+        boolean[] pending = new boolean[n * k];
+        int[] work = new int[n * k];
+        int workSize = 0;
+        if (blocks == 2) {
+            int smaller = end[0] - first[0] <= end[1] - first[1] ? 0 : 1;
+            for (int c = 0; c < k; c++) {
+                pending[smaller * k + c] = true;
+                work[workSize++] = smaller * k + c;
+            }
+        }
+
+        int[] splitter = new int[n];
+        int[] touched = new int[n];
+        while (workSize > 0) {
+            int item = work[--workSize];
+            pending[item] = false;
+            int b = item / k;
+            int c = item % k;
+
+            int splitterSize = end[b] - first[b];
+            System.arraycopy(elems, first[b], splitter, 0, splitterSize);
+            int touchedCount = 0;
+            for (int i = 0; i < splitterSize; i++) {
+                int t = splitter[i];
+                for (int j = invStart[c * n + t], stop = invStart[c * n + t + 1]; j < stop; j++) {
+                    int p = invSource[j];
+                    int pb = blockOf[p];
+                    int mark = first[pb] + marked[pb];
+                    if (position[p] < mark) {
+                        continue;
+                    }
+                    if (marked[pb] == 0) {
+                        touched[touchedCount++] = pb;
+                    }
+                    int other = elems[mark];
+                    elems[mark] = p;
+                    elems[position[p]] = other;
+                    position[other] = position[p];
+                    position[p] = mark;
+                    marked[pb]++;
+                }
+            }
+
+            for (int i = 0; i < touchedCount; i++) {
+                int pb = touched[i];
+                int m = marked[pb];
+                marked[pb] = 0;
+                if (m == end[pb] - first[pb]) {
+                    continue;
+                }
+                int nb = blocks++;
+                first[nb] = first[pb];
+                end[nb] = first[pb] + m;
+                first[pb] = end[nb];
+                for (int j = first[nb]; j < end[nb]; j++) {
+                    blockOf[elems[j]] = nb;
+                }
+                boolean newIsSmaller = end[nb] - first[nb] <= end[pb] - first[pb];
+                for (int d = 0; d < k; d++) {
+                    int add;
+                    if (pending[pb * k + d]) {
+                        add = nb;
+                    } else {
+                        add = newIsSmaller ? nb : pb;
+                    }
+                    pending[add * k + d] = true;
+                    work[workSize++] = add * k + d;
+                }
+            }
+        }
+
+        return canonicalize(dfa, delta, blockOf, blocks, sink, k);
+    }
+
+    private static CompiledDFA canonicalize(CompiledDFA dfa, int[] delta, int[] blockOf, int blocks, int sink, int k) {
+        // A block is dead if it cannot reach an accepting block; the sink's block always is.
+        int deadBlock = blockOf[sink];
+        int[] representative = new int[blocks];
+        Arrays.fill(representative, -1);
+        for (int s = 0; s <= sink; s++) {
+            if (representative[blockOf[s]] < 0) {
+                representative[blockOf[s]] = s;
+            }
+        }
+
+        String[] symbols = dfa.symbols();
+        int[] order = new int[blocks];
+        int[] number = new int[blocks];
+        Arrays.fill(number, -1);
+        int count = 0;
+        int startBlock = blockOf[dfa.startState()];
+        number[startBlock] = count;
+        order[count++] = startBlock;
+        for (int i = 0; i < count; i++) {
+            int s = representative[order[i]];
+            for (int a = 0; a < symbols.length; a++) {
+                int tb = blockOf[delta[s * k + dfa.symbolClass(a)]];
+                if (tb != deadBlock && number[tb] < 0) {
+                    number[tb] = count;
+                    order[count++] = tb;
+                }
+            }
+        }
+
+        String[] names = new String[count];
+        int[] table = new int[count * symbols.length];
+        boolean[] accepting = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            int s = representative[order[i]];
+            names[i] = "q" + i;
+            accepting[i] = s != sink && dfa.isAccepting(s);
+            for (int a = 0; a < symbols.length; a++) {
+                int tb = blockOf[delta[s * k + dfa.symbolClass(a)]];
+                table[i * symbols.length + a] = tb == deadBlock ? CompiledDFA.DEAD : number[tb];
+            }
+        }
+        return CompiledDFA.fromTable(names, symbols, 0, table, accepting);
+    }
+}
@@ -0,0 +1,62 @@
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MinimizerTest {
+
+    @Test
+    public void testAgreesWithFiniteAutomaton() {
+        Random random = new Random(11);
+        List<String> words = DeterminizerTest.words(random, 300);
+        for (FiniteAutomaton automaton : DeterminizerTest.automata(random, 200)) {
+            CompiledDFA dfa = Determinizer.determinize(automaton.toNFA());
+            CompiledDFA minimal = Minimizer.minimize(dfa);
+            assertTrue(minimal.stateCount() <= dfa.stateCount());
+            for (String word : words) {
+                assertEquals(word, automaton.accepts(word), minimal.accepts(word));
+            }
+        }
+    }
+
+    @Test
+    public void testMainAutomata() {
+        // q4 is unreachable and the other four states are pairwise distinguishable.
+        assertEquals(4, Minimizer.minimize(Determinizer.determinize(DeterminizerTest.mainAutomaton().toNFA())).stateCount());
+        DFA minimal = DeterminizerTest.mainFa().toDFA().minimize();
+        assertEquals(4, minimal.compile().stateCount());
+        FiniteAutomaton reference = DeterminizerTest.mainFaAutomaton();
+        for (String word : DeterminizerTest.words(new Random(12), 300)) {
+            assertEquals(word, reference.accepts(word), minimal.accepts(word));
+        }
+    }
+
+    @Test
+    public void testCanonical() {
+        Random random = new Random(13);
+        for (FiniteAutomaton automaton : DeterminizerTest.automata(random, 100)) {
+            CompiledDFA minimal = Minimizer.minimize(Determinizer.determinize(automaton.toNFA()));
+            assertEquals(minimal, Minimizer.minimize(minimal));
+        }
+    }
+
+    @Test
+    public void testEquivalentAutomataMinimizeToTheSameTable() {
+        // a(b|c)* written with a redundant copy of the looping state.
+        Map<String, Map<String, String>> small = new HashMap<>();
+        small.put("x", new HashMap<>(Map.of("a", "y")));
+        small.put("y", new HashMap<>(Map.of("b", "y", "c", "y")));
+        Map<String, Map<String, String>> large = new HashMap<>();
+        large.put("p", new HashMap<>(Map.of("a", "r")));
+        large.put("r", new HashMap<>(Map.of("b", "s", "c", "r")));
+        large.put("s", new HashMap<>(Map.of("b", "r", "c", "s")));
+        CompiledDFA first = Minimizer.minimize(Determinizer.determinize(
+                new FiniteAutomaton(Set.of("x", "y"), Set.of("y"), small, "x").toNFA()));
+        CompiledDFA second = Minimizer.minimize(Determinizer.determinize(
+                new FiniteAutomaton(Set.of("p", "r", "s"), Set.of("r", "s"), large, "p").toNFA()));
+        assertEquals(2, second.stateCount());
+        assertEquals(first, second);
+    }
+}
@@ -0,0 +1,283 @@
+import java.util.*;
+
+// Several automata combined into one DFA by subset construction over their disjoint union, so
+// one pass over the input answers all of them. Each DFA state carries the set of patterns (indices
+// into the list it was built from) whose NFA has an accepting state in the subset. The scanning
+// table additionally re-enters every start state after each char, as Aho-Corasick does, so its
+// pattern sets name the patterns with a match ending at the current position.
+//
+// The union of many automata can have exponentially many subsets, so both tables are
+// SubsetCaches labelled with those pattern sets, as LazyDFA's is with acceptance: states are built
+// on demand, at most maxStates per table, and when a cache thrashes the rest of that input is
+// matched by stepping the union bitset directly. Not thread-safe: the caches are shared by all
+// calls.
+public final class MultiPatternDFA {
+    public static final int DEAD = CompiledDFA.DEAD;
+    public static final int DEFAULT_MAX_STATES = 4096;
+
+    // Receives each (pattern, end) pair found by scan; end is the offset just past the match.
+    public interface Listener {
+        void match(int pattern, int end);
+    }
+
+    private final NFA[] nfas;
+    private final int patternCount;
+    private final int patternWords;
+    private final String[] symbols;
+    private final int[] charSymbol;
+    // The NFA of pattern p owns words [offsets[p], offsets[p + 1]) of a union subset.
+    private final int[] offsets;
+    private final int[][] localSymbol;
+    private final int words;
+    private final long[] start;
+    private final long[][] current;
+    private final long[][] step;
+    // State 0 of each is the start state.
+    private final SubsetCache anchored;
+    private final SubsetCache unanchored;
+    private long fallbacks;
+
+    public MultiPatternDFA(List<NFA> nfas) {
+        this(nfas, DEFAULT_MAX_STATES);
+    }
+
+    public MultiPatternDFA(List<NFA> nfas, int maxStates) {
+        this.nfas = nfas.toArray(new NFA[0]);
+        this.patternCount = this.nfas.length;
+        this.patternWords = NFA.wordsFor(patternCount);
+        SortedSet<String> all = new TreeSet<>();
+        for (NFA nfa : this.nfas) {
+            all.addAll(Arrays.asList(nfa.symbols()));
+        }
+        this.symbols = all.toArray(new String[0]);
+        this.charSymbol = NFA.charSymbols(symbols);
+
+        int n = patternCount;
+        this.offsets = new int[n + 1];
+        this.localSymbol = new int[n][symbols.length];
+        this.current = new long[n][];
+        this.step = new long[n][];
+        for (int p = 0; p < n; p++) {
+            NFA nfa = this.nfas[p];
+            offsets[p + 1] = offsets[p] + nfa.words();
+            for (int a = 0; a < symbols.length; a++) {
+                localSymbol[p][a] = nfa.symbolIndex(symbols[a]);
+            }
+            current[p] = new long[nfa.words()];
+            step[p] = new long[nfa.words()];
+        }
+        this.words = Math.max(1, offsets[n]);
+        this.start = new long[words];
+        for (int p = 0; p < n; p++) {
+            this.nfas[p].startSet(current[p]);
+            System.arraycopy(current[p], 0, start, offsets[p], current[p].length);
+        }
+        this.anchored = cache(false, maxStates);
+        this.unanchored = cache(true, maxStates);
+    }
+
+    private SubsetCache cache(boolean reenterStart, int maxStates) {
+        return new SubsetCache(new SubsetCache.Automaton() {
+            @Override
+            public void step(long[] set, int symbol, long[] dest) {
+                MultiPatternDFA.this.step(set, symbol, reenterStart, dest);
+            }
+
+            @Override
+            public void label(long[] set, long[] dest, int at) {
+                patternsOf(set, dest, at);
+            }
+        }, start, symbols.length, patternWords, maxStates);
+    }
+
+    public static MultiPatternDFA of(FA... automata) {
+        List<NFA> nfas = new ArrayList<>();
+        for (FA fa : automata) {
+            nfas.add(fa.toNFA());
+        }
+        return new MultiPatternDFA(nfas);
+    }
+
+    public static MultiPatternDFA of(FiniteAutomaton... automata) {
+        List<NFA> nfas = new ArrayList<>();
+        for (FiniteAutomaton automaton : automata) {
+            nfas.add(automaton.toNFA());
+        }
+        return new MultiPatternDFA(nfas);
+    }
+
+    // Steps every NFA in the union subset set on global symbol a into dest.
+    private void step(long[] set, int a, boolean reenterStart, long[] dest) {
+        for (int p = 0; p < patternCount; p++) {
+            if (localSymbol[p][a] < 0) {
+                Arrays.fill(step[p], 0L);
+            } else {
+                System.arraycopy(set, offsets[p], current[p], 0, current[p].length);
+                nfas[p].step(current[p], localSymbol[p][a], step[p]);
+            }
+            System.arraycopy(step[p], 0, dest, offsets[p], step[p].length);
+        }
+        if (reenterStart) {
+            for (int w = 0; w < words; w++) {
+                dest[w] |= start[w];
+            }
+        }
+    }
+
+    // Writes the patterns accepting in set to dest[at, at + patternWords).
+    private void patternsOf(long[] set, long[] dest, int at) {
+        Arrays.fill(dest, at, at + patternWords, 0L);
+        for (int p = 0; p < patternCount; p++) {
+            System.arraycopy(set, offsets[p], current[p], 0, current[p].length);
+            if (nfas[p].containsAccepting(current[p])) {
+                dest[at + (p >>> 6)] |= 1L << p;
+            }
+        }
+    }
+
+    public int patternCount() {
+        return patternCount;
+    }
+
+    public int maxStates() {
+        return anchored.maxStates();
+    }
+
+    // States currently cached for matches and for scan.
+    public int stateCount() {
+        return anchored.size();
+    }
+
+    public int scanStateCount() {
+        return unanchored.size();
+    }
+
+    public long flushes() {
+        return anchored.flushes() + unanchored.flushes();
+    }
+
+    // Inputs finished by bitset simulation because a cache was thrashing.
+    public long fallbacks() {
+        return fallbacks;
+    }
+
+    // The patterns that accept the whole input.
+    public BitSet matches(CharSequence input) {
+        SubsetCache table = anchored;
+        int[] next = table.next;
+        int k = symbols.length;
+        int state = 0;
+        table.begin();
+        for (int i = 0, n = input.length(); i < n; i++) {
+            char c = input.charAt(i);
+            if (c >= charSymbol.length || charSymbol[c] == DEAD) {
+                return new BitSet();
+            }
+            int symbol = charSymbol[c];
+            int target = next[state * k + symbol];
+            if (target == SubsetCache.UNKNOWN) {
+                target = table.build(state, symbol, i);
+                if (target == SubsetCache.THRASHING) {
+                    fallbacks++;
+                    return simulate(input, i + 1, table.target());
+                }
+            }
+            if (target == DEAD) {
+                return new BitSet();
+            }
+            state = target;
+        }
+        return BitSet.valueOf(Arrays.copyOfRange(table.labels, state * patternWords, (state + 1) * patternWords));
+    }
+
+    // Bitset simulation of matches from position from on, starting from the union subset set.
+    private BitSet simulate(CharSequence input, int from, long[] set) {
+        long[] next = new long[words];
+        for (int i = from, n = input.length(); i < n; i++) {
+            char c = input.charAt(i);
+            if (c >= charSymbol.length || charSymbol[c] == DEAD) {
+                return new BitSet();
+            }
+            step(set, charSymbol[c], false, next);
+            if (NFA.isEmpty(next)) {
+                return new BitSet();
+            }
+            long[] swap = set;
+            set = next;
+            next = swap;
+        }
+        long[] patterns = new long[patternWords];
+        patternsOf(set, patterns, 0);
+        return BitSet.valueOf(patterns);
+    }
+
+    // Reports every (pattern, end) such that the pattern accepts some substring ending at end,
+    // in order of end and then pattern, and returns how many there were. Patterns accepting the
+    // empty word match at every offset including 0. A char outside the alphabet can only be
+    // skipped over, so scanning restarts after it.
+    public long scan(CharSequence text, Listener listener) {
+        SubsetCache table = unanchored;
+        int[] next = table.next;
+        boolean[] matching = table.labelled;
+        int k = symbols.length;
+        int state = 0;
+        table.begin();
+        long found = report(table.labels, 0, 0, listener);
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (c >= charSymbol.length || charSymbol[c] == DEAD) {
+                state = 0;
+            } else {
+                int symbol = charSymbol[c];
+                int target = next[state * k + symbol];
+                if (target == SubsetCache.UNKNOWN) {
+                    target = table.build(state, symbol, i);
+                    if (target == SubsetCache.THRASHING) {
+                        fallbacks++;
+                        return found + scanSimulated(text, i, table.target(), listener);
+                    }
+                }
+                state = target;
+            }
+            if (matching[state]) {
+                found += report(table.labels, state * patternWords, i + 1, listener);
+            }
+        }
+        return found;
+    }
+
+    // Bitset simulation of scan from the union subset set reached by reading char at on.
+    private long scanSimulated(CharSequence text, int at, long[] set, Listener listener) {
+        long[] next = new long[words];
+        long[] patterns = new long[patternWords];
+        patternsOf(set, patterns, 0);
+        long found = report(patterns, 0, at + 1, listener);
+        for (int i = at + 1, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (c >= charSymbol.length || charSymbol[c] == DEAD) {
+                System.arraycopy(start, 0, set, 0, words);
+            } else {
+                step(set, charSymbol[c], true, next);
+                long[] swap = set;
+                set = next;
+                next = swap;
+            }
+            patternsOf(set, patterns, 0);
+            found += report(patterns, 0, i + 1, listener);
+        }
+        return found;
+    }
+
+    private int report(long[] patterns, int at, int end, Listener listener) {
+        int found = 0;
+        for (int w = 0; w < patternWords; w++) {
+            long bits = patterns[at + w];
+            while (bits != 0) {
+                listener.match((w << 6) + Long.numberOfTrailingZeros(bits), end);
+                bits &= bits - 1;
+                found++;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,119 @@
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MultiPatternDFATest {
+
+    // The (pattern, end) pairs scan should report: every substring each automaton accepts.
+    private static List<List<Integer>> expectedMatches(List<FiniteAutomaton> automata, String text) {
+        List<List<Integer>> expected = new ArrayList<>();
+        for (int end = 0; end <= text.length(); end++) {
+            for (int p = 0; p < automata.size(); p++) {
+                for (int begin = 0; begin <= end; begin++) {
+                    if (automata.get(p).accepts(text.substring(begin, end))) {
+                        expected.add(List.of(p, end));
+                        break;
+                    }
+                }
+            }
+        }
+        return expected;
+    }
+
+    private static List<List<Integer>> scan(MultiPatternDFA dfa, String text) {
+        List<List<Integer>> found = new ArrayList<>();
+        long count = dfa.scan(text, (pattern, end) -> found.add(List.of(pattern, end)));
+        assertEquals(found.size(), count);
+        return found;
+    }
+
+    private static MultiPatternDFA of(List<FiniteAutomaton> automata, int maxStates) {
+        List<NFA> nfas = new ArrayList<>();
+        for (FiniteAutomaton automaton : automata) {
+            nfas.add(automaton.toNFA());
+        }
+        return new MultiPatternDFA(nfas, maxStates);
+    }
+
+    private static String text(Random random, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            text.append(random.nextInt(40) == 0 ? 'd' : (char) ('a' + random.nextInt(3)));
+        }
+        return text.toString();
+    }
+
+    private static void check(List<FiniteAutomaton> automata, MultiPatternDFA dfa, List<String> words, List<String> texts) {
+        for (String word : words) {
+            BitSet expected = new BitSet();
+            for (int p = 0; p < automata.size(); p++) {
+                expected.set(p, automata.get(p).accepts(word));
+            }
+            assertEquals(word, expected, dfa.matches(word));
+        }
+        for (String text : texts) {
+            assertEquals(text, expectedMatches(automata, text), scan(dfa, text));
+        }
+    }
+
+    @Test
+    public void testAgreesWithEachAutomaton() {
+        Random random = new Random(1);
+        List<String> words = DeterminizerTest.words(random, 200);
+        for (int round = 0; round < 20; round++) {
+            List<FiniteAutomaton> automata = DeterminizerTest.automata(random, random.nextInt(6));
+            List<String> texts = List.of("", "abacc", text(random, 40), text(random, 80));
+            check(automata, of(automata, MultiPatternDFA.DEFAULT_MAX_STATES), words, texts);
+        }
+    }
+
+    @Test
+    public void testSmallCacheFlushesAndFallsBack() {
+        Random random = new Random(2);
+        List<String> words = DeterminizerTest.words(random, 100);
+        long flushes = 0;
+        long fallbacks = 0;
+        for (int round = 0; round < 20; round++) {
+            List<FiniteAutomaton> automata = DeterminizerTest.automata(random, 4 + random.nextInt(4));
+            MultiPatternDFA dfa = of(automata, 3 + random.nextInt(3));
+            check(automata, dfa, words, List.of(text(random, 60), text(random, 120)));
+            assertTrue(dfa.stateCount() <= dfa.maxStates());
+            assertTrue(dfa.scanStateCount() <= dfa.maxStates());
+            flushes += dfa.flushes();
+            fallbacks += dfa.fallbacks();
+        }
+        assertTrue(flushes > 0);
+        assertTrue(fallbacks > 0);
+    }
+
+    @Test
+    public void testNondeterministicPatterns() {
+        Random random = new Random(3);
+        List<String> words = DeterminizerTest.words(random, 100);
+        for (int round = 0; round < 50; round++) {
+            List<DeterminizerTest.RandomNfa> patterns = new ArrayList<>();
+            List<NFA> nfas = new ArrayList<>();
+            for (int p = 1 + random.nextInt(5); p > 0; p--) {
+                DeterminizerTest.RandomNfa nfa = new DeterminizerTest.RandomNfa(random, 1 + random.nextInt(8));
+                patterns.add(nfa);
+                nfas.add(nfa.build());
+            }
+            MultiPatternDFA dfa = new MultiPatternDFA(nfas, round % 2 == 0 ? 3 : MultiPatternDFA.DEFAULT_MAX_STATES);
+            for (String word : words) {
+                BitSet expected = new BitSet();
+                for (int p = 0; p < patterns.size(); p++) {
+                    expected.set(p, patterns.get(p).accepts(word));
+                }
+                assertEquals(word, expected, dfa.matches(word));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCacheTooSmall() {
+        new MultiPatternDFA(List.of(DeterminizerTest.mainAutomaton().toNFA()), 2);
+    }
+}
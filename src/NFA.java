@@ -0,0 +1,276 @@
+import java.util.*;
+
+public final class NFA {
+    public static final String EPSILON = "ε";
+
+    private final String[] states;
+    private final String[] symbols;
+    private final int start;
+    private final int words;
+    private final long[] accepting;
+    private final long[] startSet;
+    private final long[] successors;
+
+    private NFA(String[] states, String[] symbols, int start, long[] accepting, long[] startSet, long[] successors) {
+        this.states = states;
+        this.symbols = symbols;
+        this.start = start;
+        this.words = wordsFor(states.length);
+        this.accepting = accepting;
+        this.startSet = startSet;
+        this.successors = successors;
+    }
+
+    // An epsilon-free automaton given in the successor layout orSuccessors reads; symbols must be
+    // sorted.
+    static NFA fromTable(String[] states, String[] symbols, int start, long[] accepting, long[] successors) {
+        long[] startSet = new long[wordsFor(states.length)];
+        startSet[start >>> 6] |= 1L << start;
+        return new NFA(states, symbols, start, accepting, startSet, successors);
+    }
+
+    static int wordsFor(int stateCount) {
+        return Math.max(1, (stateCount + 63) >>> 6);
+    }
+
+    static boolean isEmpty(long[] set) {
+        for (long word : set) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int stateCount() {
+        return states.length;
+    }
+
+    public int symbolCount() {
+        return symbols.length;
+    }
+
+    public int words() {
+        return words;
+    }
+
+    public String stateName(int state) {
+        return states[state];
+    }
+
+    public String symbol(int symbol) {
+        return symbols[symbol];
+    }
+
+    public String[] symbols() {
+        return symbols.clone();
+    }
+
+    public int startState() {
+        return start;
+    }
+
+    public int symbolIndex(String symbol) {
+        int i = Arrays.binarySearch(symbols, symbol);
+        return i >= 0 ? i : -1;
+    }
+
+    // Symbol index of each char, CompiledDFA.DEAD for chars that are not a symbol. Symbols of more
+    // than one char cannot occur in a CharSequence and get no entry.
+    public int[] charSymbols() {
+        return charSymbols(symbols);
+    }
+
+    static int[] charSymbols(String[] symbols) {
+        int max = -1;
+        for (String symbol : symbols) {
+            if (symbol.length() == 1) {
+                max = Math.max(max, symbol.charAt(0));
+            }
+        }
+        int[] charSymbol = new int[max + 1];
+        Arrays.fill(charSymbol, CompiledDFA.DEAD);
+        for (int a = 0; a < symbols.length; a++) {
+            if (symbols[a].length() == 1) {
+                charSymbol[symbols[a].charAt(0)] = a;
+            }
+        }
+        return charSymbol;
+    }
+
+    // True when the start set and every successor set hold at most one state, so that subset
+    // construction would only rename states.
+    public boolean isDeterministic() {
+        if (cardinality(startSet, 0) > 1) {
+            return false;
+        }
+        for (int i = 0; i < successors.length; i += words) {
+            if (cardinality(successors, i) > 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int cardinality(long[] sets, int base) {
+        int count = 0;
+        for (int w = 0; w < words; w++) {
+            count += Long.bitCount(sets[base + w]);
+        }
+        return count;
+    }
+
+    public boolean isAccepting(int state) {
+        return (accepting[state >>> 6] & (1L << state)) != 0;
+    }
+
+    // Epsilon closure of the start state.
+    public void startSet(long[] dest) {
+        System.arraycopy(startSet, 0, dest, 0, words);
+    }
+
+    // Successors are stored already closed under epsilon, so a subset step is a plain OR.
+    public void orSuccessors(int state, int symbol, long[] dest) {
+        int base = (state * symbols.length + symbol) * words;
+        for (int w = 0; w < words; w++) {
+            dest[w] |= successors[base + w];
+        }
+    }
+
+    public void step(long[] current, int symbol, long[] dest) {
+        Arrays.fill(dest, 0, words, 0L);
+        for (int w = 0; w < words; w++) {
+            long bits = current[w];
+            while (bits != 0) {
+                int state = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                orSuccessors(state, symbol, dest);
+            }
+        }
+    }
+
+    public boolean containsAccepting(long[] set) {
+        for (int w = 0; w < words; w++) {
+            if ((set[w] & accepting[w]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static final class Builder {
+        private final Map<String, Integer> stateIndex = new LinkedHashMap<>();
+        private final Set<String> symbols = new TreeSet<>();
+        private final List<String[]> transitions = new ArrayList<>();
+        private final Set<String> accepting = new HashSet<>();
+        private String start;
+
+        public Builder addState(String state) {
+            stateIndex.putIfAbsent(state, stateIndex.size());
+            return this;
+        }
+
+        public Builder addSymbol(String symbol) {
+            if (!isEpsilon(symbol)) {
+                symbols.add(symbol);
+            }
+            return this;
+        }
+
+        public Builder addTransition(String from, String symbol, String to) {
+            addState(from);
+            addState(to);
+            addSymbol(symbol);
+            transitions.add(new String[]{from, symbol, to});
+            return this;
+        }
+
+        public Builder setStart(String state) {
+            addState(state);
+            start = state;
+            return this;
+        }
+
+        public Builder addAccepting(String state) {
+            addState(state);
+            accepting.add(state);
+            return this;
+        }
+
+        public NFA build() {
+            if (start == null) {
+                throw new IllegalStateException("NFA has no start state");
+            }
+            String[] stateNames = stateIndex.keySet().toArray(new String[0]);
+            String[] symbolNames = symbols.toArray(new String[0]);
+            int n = stateNames.length;
+            int k = symbolNames.length;
+            int words = wordsFor(n);
+
+            List<List<Integer>> epsilon = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                epsilon.add(new ArrayList<>());
+            }
+            long[] direct = new long[n * k * words];
+            for (String[] t : transitions) {
+                int from = stateIndex.get(t[0]);
+                int to = stateIndex.get(t[2]);
+                if (isEpsilon(t[1])) {
+                    epsilon.get(from).add(to);
+                } else {
+                    int symbol = Arrays.binarySearch(symbolNames, t[1]);
+                    direct[(from * k + symbol) * words + (to >>> 6)] |= 1L << to;
+                }
+            }
+
+            long[] closure = new long[n * words];
+            int[] stack = new int[n];
+            for (int q = 0; q < n; q++) {
+                int base = q * words;
+                int top = 0;
+                closure[base + (q >>> 6)] |= 1L << q;
+                stack[top++] = q;
+                while (top > 0) {
+                    int p = stack[--top];
+                    for (int r : epsilon.get(p)) {
+                        long bit = 1L << r;
+                        if ((closure[base + (r >>> 6)] & bit) == 0) {
+                            closure[base + (r >>> 6)] |= bit;
+                            stack[top++] = r;
+                        }
+                    }
+                }
+            }
+
+            long[] successors = new long[n * k * words];
+            for (int q = 0; q < n; q++) {
+                for (int a = 0; a < k; a++) {
+                    int base = (q * k + a) * words;
+                    for (int w = 0; w < words; w++) {
+                        long bits = direct[base + w];
+                        while (bits != 0) {
+                            int r = (w << 6) + Long.numberOfTrailingZeros(bits);
+                            bits &= bits - 1;
+                            for (int v = 0; v < words; v++) {
+                                successors[base + v] |= closure[r * words + v];
+                            }
+                        }
+                    }
+                }
+            }
+
+            long[] acceptingSet = new long[words];
+            for (String state : accepting) {
+                int q = stateIndex.get(state);
+                acceptingSet[q >>> 6] |= 1L << q;
+            }
+            int startIndex = stateIndex.get(start);
+            long[] startSet = Arrays.copyOfRange(closure, startIndex * words, startIndex * words + words);
+            return new NFA(stateNames, symbolNames, startIndex, acceptingSet, startSet, successors);
+        }
+
+        private static boolean isEpsilon(String symbol) {
+            return symbol.isEmpty() || symbol.equals(EPSILON);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package Parser;
+
+import java.util.*;
+
+// Expression tree stored as parallel arrays. Nodes are appended in postorder, so both children of
+// a node have smaller indices, the root is the last node, and a single forward pass evaluates it.
+public final class Ast {
+    public static final byte NUMBER = 0;
+    public static final byte ADD = 1;
+    public static final byte SUBTRACT = 2;
+    public static final byte MULTIPLY = 3;
+    public static final byte DIVIDE = 4;
+    public static final byte VARIABLE = 5;
+    // Placeholder for a missing or malformed operand (no children) or operator (two children)
+    // left by error recovery; it evaluates to NaN.
+    public static final byte ERROR = 6;
+
+    private static final char[] SYMBOLS = {' ', '+', '-', '*', '/', ' ', '?'};
+
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> nameIds = new HashMap<>();
+
+    private byte[] kinds = new byte[16];
+    private int[] lefts = new int[16];
+    private int[] rights = new int[16];
+    private double[] values = new double[16];
+    private long[] offsets = new long[16];
+    private int size;
+
+    int number(double value, long offset) {
+        return add(NUMBER, -1, -1, value, offset);
+    }
+
+    int variable(String name, long offset) {
+        Integer id = nameIds.get(name);
+        if (id == null) {
+            id = names.size();
+            names.add(name);
+            nameIds.put(name, id);
+        }
+        return add(VARIABLE, -1, -1, id, offset);
+    }
+
+    int error(long offset) {
+        return add(ERROR, -1, -1, Double.NaN, offset);
+    }
+
+    int binary(byte kind, int left, int right, long offset) {
+        return add(kind, left, right, 0, offset);
+    }
+
+    private int add(byte kind, int left, int right, double value, long offset) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            lefts = Arrays.copyOf(lefts, capacity);
+            rights = Arrays.copyOf(rights, capacity);
+            values = Arrays.copyOf(values, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+        }
+        kinds[size] = kind;
+        lefts[size] = left;
+        rights[size] = right;
+        values[size] = value;
+        offsets[size] = offset;
+        return size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int root() {
+        return size - 1;
+    }
+
+    public byte kind(int node) {
+        return kinds[node];
+    }
+
+    public int left(int node) {
+        return lefts[node];
+    }
+
+    public int right(int node) {
+        return rights[node];
+    }
+
+    public double value(int node) {
+        return values[node];
+    }
+
+    // Identifier of a VARIABLE node.
+    public String name(int node) {
+        return names.get((int) values[node]);
+    }
+
+    // Distinct identifiers in order of first appearance.
+    public List<String> names() {
+        return Collections.unmodifiableList(names);
+    }
+
+    // Offset of the literal or operator token in the input.
+    public long offset(int node) {
+        return offsets[node];
+    }
+
+    public double evaluate() {
+        return evaluate(Collections.emptyMap());
+    }
+
+    public double evaluate(Map<String, Double> bindings) {
+        double[] results = new double[size];
+        for (int i = 0; i < size; i++) {
+            switch (kinds[i]) {
+                case NUMBER:
+                    results[i] = values[i];
+                    break;
+                case VARIABLE:
+                    Double value = bindings.get(name(i));
+                    if (value == null) {
+                        throw new IllegalArgumentException("Unbound identifier " + name(i));
+                    }
+                    results[i] = value;
+                    break;
+                case ERROR:
+                    results[i] = Double.NaN;
+                    break;
+                case ADD:
+                    results[i] = results[lefts[i]] + results[rights[i]];
+                    break;
+                case SUBTRACT:
+                    results[i] = results[lefts[i]] - results[rights[i]];
+                    break;
+                case MULTIPLY:
+                    results[i] = results[lefts[i]] * results[rights[i]];
+                    break;
+                default:
+                    results[i] = results[lefts[i]] / results[rights[i]];
+                    break;
+            }
+        }
+        return results[size - 1];
+    }
+
+    // Fully parenthesized infix, built bottom-up like evaluate().
+    @Override
+    public String toString() {
+        if (size == 0) {
+            return "";
+        }
+        String[] text = new String[size];
+        for (int i = 0; i < size; i++) {
+            if (kinds[i] == NUMBER) {
+                double v = values[i];
+                text[i] = v == Math.rint(v) && Math.abs(v) < 1e15 ? Long.toString((long) v) : Double.toString(v);
+            } else if (kinds[i] == VARIABLE) {
+                text[i] = name(i);
+            } else if (lefts[i] < 0) {
+                text[i] = "?";
+            } else {
+                text[i] = "(" + text[lefts[i]] + " " + SYMBOLS[kinds[i]] + " " + text[rights[i]] + ")";
+                text[lefts[i]] = null;
+                text[rights[i]] = null;
+            }
+        }
+        return text[size - 1];
+    }
+}
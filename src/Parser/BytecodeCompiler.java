@@ -0,0 +1,118 @@
+package Parser;
+
+import java.util.*;
+
+// Lowers an Ast to a Program. Subtrees without identifiers are folded to one constant using the
+// same double arithmetic the interpreter would apply, and identifiers become environment slots in
+// order of first appearance. Since Ast nodes are in postorder, the nodes that remain after folding
+// are emitted in index order as they are.
+public final class BytecodeCompiler {
+    private BytecodeCompiler() {
+    }
+
+    public static Program compile(Ast ast) {
+        int size = ast.size();
+        if (size == 0) {
+            throw new IllegalArgumentException("Empty expression");
+        }
+        for (int i = 0; i < size; i++) {
+            if (ast.kind(i) == Ast.ERROR) {
+                throw new IllegalArgumentException("Cannot compile an expression with syntax errors");
+            }
+        }
+        boolean[] constant = new boolean[size];
+        double[] folded = new double[size];
+        for (int i = 0; i < size; i++) {
+            byte kind = ast.kind(i);
+            if (kind == Ast.NUMBER) {
+                constant[i] = true;
+                folded[i] = ast.value(i);
+            } else if (kind != Ast.VARIABLE && constant[ast.left(i)] && constant[ast.right(i)]) {
+                constant[i] = true;
+                folded[i] = apply(kind, folded[ast.left(i)], folded[ast.right(i)]);
+            }
+        }
+
+        // A node is emitted when no ancestor has been folded; parents always have larger indices.
+        boolean[] emitted = new boolean[size];
+        emitted[size - 1] = true;
+        for (int i = size - 1; i >= 0; i--) {
+            if (emitted[i] && !constant[i] && ast.kind(i) != Ast.VARIABLE) {
+                emitted[ast.left(i)] = true;
+                emitted[ast.right(i)] = true;
+            }
+        }
+
+        int[] code = new int[2 * size];
+        int length = 0;
+        List<Double> constants = new ArrayList<>();
+        Map<Long, Integer> constantIds = new HashMap<>();
+        List<String> slots = new ArrayList<>();
+        Map<String, Integer> slotIds = new HashMap<>();
+        int depth = 0;
+        int maxStack = 0;
+        for (int i = 0; i < size; i++) {
+            if (!emitted[i]) {
+                continue;
+            }
+            if (constant[i]) {
+                long bits = Double.doubleToRawLongBits(folded[i]);
+                Integer id = constantIds.get(bits);
+                if (id == null) {
+                    id = constants.size();
+                    constants.add(folded[i]);
+                    constantIds.put(bits, id);
+                }
+                code[length++] = Program.CONST;
+                code[length++] = id;
+                depth++;
+            } else if (ast.kind(i) == Ast.VARIABLE) {
+                Integer slot = slotIds.get(ast.name(i));
+                if (slot == null) {
+                    slot = slots.size();
+                    slots.add(ast.name(i));
+                    slotIds.put(ast.name(i), slot);
+                }
+                code[length++] = Program.LOAD;
+                code[length++] = slot;
+                depth++;
+            } else {
+                code[length++] = opcode(ast.kind(i));
+                depth--;
+            }
+            maxStack = Math.max(maxStack, depth);
+        }
+
+        double[] constantValues = new double[constants.size()];
+        for (int i = 0; i < constantValues.length; i++) {
+            constantValues[i] = constants.get(i);
+        }
+        return new Program(Arrays.copyOf(code, length), constantValues, slots.toArray(new String[0]), maxStack);
+    }
+
+    private static double apply(byte kind, double left, double right) {
+        switch (kind) {
+            case Ast.ADD:
+                return left + right;
+            case Ast.SUBTRACT:
+                return left - right;
+            case Ast.MULTIPLY:
+                return left * right;
+            default:
+                return left / right;
+        }
+    }
+
+    private static int opcode(byte kind) {
+        switch (kind) {
+            case Ast.ADD:
+                return Program.ADD;
+            case Ast.SUBTRACT:
+                return Program.SUBTRACT;
+            case Ast.MULTIPLY:
+                return Program.MULTIPLY;
+            default:
+                return Program.DIVIDE;
+        }
+    }
+}
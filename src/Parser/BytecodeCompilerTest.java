@@ -0,0 +1,125 @@
+package Parser;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class BytecodeCompilerTest {
+    private static final String[] NAMES = {"a", "b", "c"};
+
+    private static String randomExpression(Random random, int depth) {
+        if (depth == 0 || random.nextInt(3) == 0) {
+            return random.nextBoolean() ? NAMES[random.nextInt(NAMES.length)] : String.valueOf(random.nextInt(4));
+        }
+        String operator = String.valueOf("+-*/".charAt(random.nextInt(4)));
+        return "(" + randomExpression(random, depth - 1) + operator + randomExpression(random, depth - 1) + ")";
+    }
+
+    // Evaluates both ways and compares bit patterns, so NaN and signed zeros must agree too.
+    private static void assertSameAsAst(Ast ast, Program program, double[] values) {
+        Map<String, Double> bindings = new HashMap<>();
+        double[] env = new double[program.slotCount()];
+        for (int i = 0; i < NAMES.length; i++) {
+            bindings.put(NAMES[i], values[i]);
+            int slot = program.slot(NAMES[i]);
+            if (slot >= 0) {
+                env[slot] = values[i];
+            }
+        }
+        assertEquals(ast.toString(), Double.doubleToLongBits(ast.evaluate(bindings)),
+                Double.doubleToLongBits(program.evaluate(env)));
+    }
+
+    @Test
+    public void testAgreesWithAst() throws Exception {
+        Random random = new Random(1);
+        double[][] values = {{0, 0, 0}, {1, 2, 3}, {-1.5, 0.25, 7}, {0, -0.0, 1e308}};
+        for (int round = 0; round < 500; round++) {
+            Ast ast = ParserTest.parse(randomExpression(random, 1 + random.nextInt(6)));
+            Program program = BytecodeCompiler.compile(ast);
+            for (double[] v : values) {
+                assertSameAsAst(ast, program, v);
+            }
+            double[] stack = new double[program.maxStack()];
+            double[][] envs = new double[values.length][];
+            for (int i = 0; i < values.length; i++) {
+                envs[i] = new double[program.slotCount()];
+                for (int slot = 0; slot < program.slotCount(); slot++) {
+                    envs[i][slot] = values[i][program.slotName(slot).charAt(0) - 'a'];
+                }
+                assertEquals(Double.doubleToLongBits(program.evaluate(envs[i])),
+                        Double.doubleToLongBits(program.evaluate(envs[i], stack)));
+            }
+            double[] all = program.evaluateAll(envs);
+            for (int i = 0; i < envs.length; i++) {
+                assertEquals(Double.doubleToLongBits(program.evaluate(envs[i])), Double.doubleToLongBits(all[i]));
+            }
+        }
+    }
+
+    @Test
+    public void testConstantFolding() throws Exception {
+        Program program = BytecodeCompiler.compile(ParserTest.parse("2 * 3 + x * (10 - 4 / 2)"));
+        assertArrayEquals(new int[]{Program.CONST, 0, Program.LOAD, 0, Program.CONST, 1, Program.MULTIPLY, Program.ADD},
+                program.code());
+        assertEquals(6 + 5 * 8.0, program.evaluate(5), 0.0);
+        assertEquals(3, program.maxStack());
+
+        Program constant = BytecodeCompiler.compile(ParserTest.parse("(1 + 2) * (3 - 4) / 6"));
+        assertArrayEquals(new int[]{Program.CONST, 0}, constant.code());
+        assertEquals(0, constant.slotCount());
+        assertEquals(-0.5, constant.evaluate(), 0.0);
+
+        // Equal folded constants share one pool entry.
+        assertEquals(BytecodeCompiler.compile(ParserTest.parse("x * 2 + 2")),
+                BytecodeCompiler.compile(ParserTest.parse("x * (1 + 1) + 4 / 2")));
+    }
+
+    @Test
+    public void testFoldedDivisionByZero() throws Exception {
+        Ast ast = ParserTest.parse("a + 1 / (2 - 2)");
+        Program program = BytecodeCompiler.compile(ast);
+        assertArrayEquals(new int[]{Program.LOAD, 0, Program.CONST, 0, Program.ADD}, program.code());
+        assertEquals(Double.POSITIVE_INFINITY, program.evaluate(1), 0.0);
+        assertSameAsAst(ast, program, new double[]{0, 0, 0});
+
+        ast = ParserTest.parse("(3 - 3) / (2 - 2) * a");
+        program = BytecodeCompiler.compile(ast);
+        assertEquals(Double.NaN, program.evaluate(1), 0.0);
+        assertSameAsAst(ast, program, new double[]{0, 0, 0});
+
+        assertEquals(Double.NEGATIVE_INFINITY, BytecodeCompiler.compile(ParserTest.parse("(0 - 1) / 0")).evaluate(), 0.0);
+    }
+
+    @Test
+    public void testSlots() throws Exception {
+        Program program = BytecodeCompiler.compile(ParserTest.parse("y * x - y / z"));
+        assertEquals(3, program.slotCount());
+        assertEquals("y", program.slotName(0));
+        assertEquals("x", program.slotName(1));
+        assertEquals("z", program.slotName(2));
+        assertEquals(1, program.slot("x"));
+        assertEquals(-1, program.slot("w"));
+        assertArrayEquals(new int[]{Program.LOAD, 0, Program.LOAD, 1, Program.MULTIPLY, Program.LOAD, 0, Program.LOAD, 2,
+                Program.DIVIDE, Program.SUBTRACT}, program.code());
+        assertEquals(6 * 2 - 6 / 4.0, program.evaluate(6, 2, 4), 0.0);
+        assertEquals(List.of("y", "x", "z"), ParserTest.parse("y * x - y / z").names());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingSlots() throws Exception {
+        BytecodeCompiler.compile(ParserTest.parse("x + y")).evaluate(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSyntaxErrors() throws Exception {
+        BytecodeCompiler.compile(Parser.parse("1 + + 2", new ArrayList<>()));
+    }
+}
@@ -0,0 +1,668 @@
+package Parser;
+
+import Lexer.Diagnostic;
+import Lexer.Lexer;
+import Lexer.LexerTable;
+import Lexer.TokenBuffer;
+import Lexer.TokenType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// An expression being edited. Every edit re-lexes only from the first lexeme whose lookahead
+// reached the edit up to the point where a fresh lexeme starts exactly where an old one (shifted by
+// the edit) did. Parsing makes the same moves as a recovering Parser, one token at a time on
+// persistent stacks, and saves its state every few tokens. An edit restarts the parser from the
+// last state saved before the damage and stops it at the first saved state after the damage that
+// has the same shape as the new one: from there the old parse would make the same moves, so its
+// nodes, states and diagnostics are kept. Nodes are referenced by id and never move, so an old node
+// still on the stack at that point takes over the contents of the new one in its place, and every
+// node built on top of it stays valid. The parser thus runs over the damaged region and the stack
+// depth rather than the rest of the document; what stays linear is shifting the text and the
+// offsets of later lexemes and nodes. ast() flattens the node store on demand, and the results
+// always equal a recovering Parser.parse(text(), diagnostics) of the whole text.
+public class Document {
+    private static final TokenType[] TYPES = TokenType.values();
+    private static final int PAREN = -1;
+    private static final byte NOT_BINARY = -2;
+    // What the next token must be; SKIPPING is Parser's panic mode, after which an operator is due.
+    private static final byte OPERAND = 0, OPERATOR = 1, SKIPPING = 2;
+    // Tokens between saved states, which bounds how far an edit re-runs before the damage and past
+    // the point where the parse could have stopped.
+    private static final int SAVE_INTERVAL = 16;
+    private static final State INITIAL = new State(null, null, OPERAND);
+
+    private final LexerTable table;
+    private final StringBuilder text;
+    private final int[] match = new int[2];
+
+    // Every lexeme including skipped blanks, so lexing can restart at any of them. looks[i] is one
+    // past the last char the DFA examined for lexeme i (see LexerTable.match). states[i] is the
+    // parser state before token i when one was saved there, found[i] the diagnostics token i caused.
+    private byte[] types = new byte[16];
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int[] looks = new int[16];
+    private State[] states = new State[16];
+    private Diagnostic[][] found = new Diagnostic[16][];
+    private int count;
+
+    // Lexemes produced by the edit in progress before they are spliced in.
+    private byte[] freshTypes = new byte[16];
+    private int[] freshStarts = new int[16];
+    private int[] freshEnds = new int[16];
+    private int[] freshLooks = new int[16];
+    private int freshCount;
+
+    // Nodes by id, in the layout of Ast but in no particular order. An operator gets its node when it
+    // is pushed and its children when it is reduced. A node adopt() merged into an old one forwards
+    // to it, so states saved with either id see the same node.
+    private byte[] kinds = new byte[16];
+    private int[] lefts = new int[16];
+    private int[] rights = new int[16];
+    private double[] values = new double[16];
+    private long[] offsets = new long[16];
+    private int[] forward = new int[16];
+    private int nodeCount;
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> nameIds = new HashMap<>();
+
+    // The state before EOF, the diagnostics EOF caused and the root left on the stack.
+    private State endState;
+    private Diagnostic[] endFound;
+    private int root;
+    private Ast ast;
+
+    // The running parser.
+    private Cell operands;
+    private Cell operators;
+    private byte mode;
+    private final List<Diagnostic> pending = new ArrayList<>();
+    private Set<Integer> restartNodes;
+
+    private int relexed;
+    private int reparsed;
+
+    public Document(CharSequence text) {
+        this(text, LexerTable.DEFAULT);
+    }
+
+    public Document(CharSequence text, LexerTable table) {
+        this.table = table;
+        this.text = new StringBuilder(text);
+        lex(0, 0, Integer.MAX_VALUE, 0);
+        splice(0, 0, 0);
+        parse(0, INITIAL, count);
+    }
+
+    // Replaces deleted chars at offset with inserted.
+    public void edit(int offset, int deleted, CharSequence inserted) {
+        if (offset < 0 || deleted < 0 || offset + deleted > text.length()) {
+            throw new IndexOutOfBoundsException("Edit " + offset + "+" + deleted + " outside " + text.length());
+        }
+        int first = lexemeAt(offset);
+        while (first > 0 && looks[first - 1] > offset) {
+            first--;
+        }
+        int restartAt = first;
+        State restart = first < count ? states[first] : endState;
+        while (restart == null && restartAt > 0) {
+            restart = states[--restartAt];
+        }
+        if (restart == null) {
+            restart = INITIAL;
+        }
+        int delta = inserted.length() - deleted;
+        text.replace(offset, offset + deleted, inserted.toString());
+        int resync = lex(first < count ? starts[first] : 0, first, offset + deleted, delta);
+        splice(first, resync, delta);
+        shiftNodes(offset + deleted, delta);
+        // Every parse leaves the nodes of the one before it behind; once they dominate, start over.
+        if (nodeCount > 4 * count + 64) {
+            nodeCount = 0;
+            names.clear();
+            nameIds.clear();
+            parse(0, INITIAL, count);
+        } else {
+            parse(restartAt, restart, first + freshCount);
+        }
+    }
+
+    public int length() {
+        return text.length();
+    }
+
+    // A copy of the current text.
+    public String text() {
+        return text.toString();
+    }
+
+    // Built on the first call after an edit.
+    public Ast ast() {
+        if (ast == null) {
+            ast = flatten();
+        }
+        return ast;
+    }
+
+    // Sorted by offset, like Parser.parse(CharSequence, List).
+    public List<Diagnostic> diagnostics() {
+        List<Diagnostic> sorted = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (found[i] != null) {
+                for (Diagnostic d : found[i]) {
+                    sorted.add(at(d, starts[i]));
+                }
+            }
+        }
+        if (endFound != null) {
+            for (Diagnostic d : endFound) {
+                sorted.add(at(d, text.length()));
+            }
+        }
+        return sorted;
+    }
+
+    public TokenBuffer tokens() {
+        String snapshot = text.toString();
+        TokenBuffer tokens = new TokenBuffer(snapshot, count + 1);
+        for (int i = 0; i < count; i++) {
+            if (types[i] != LexerTable.SKIP) {
+                tokens.add(types[i], starts[i], ends[i] - starts[i]);
+            }
+        }
+        return tokens;
+    }
+
+    // Lexemes produced and tokens parsed by the last edit (or the constructor).
+    public int relexed() {
+        return relexed;
+    }
+
+    public int reparsed() {
+        return reparsed;
+    }
+
+    // Index of the last lexeme starting at or before offset, 0 when there is none.
+    private int lexemeAt(int offset) {
+        int low = 0;
+        int high = count - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (starts[mid] <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    // Lexes the new text from pos into the fresh arrays until a lexeme would start where old lexeme
+    // j (j >= from, starting at or after oldEnd) started before the edit. Returns that j, or count
+    // when lexing ran to the end of the text.
+    private int lex(int pos, int from, int oldEnd, int delta) {
+        freshCount = 0;
+        int j = from;
+        int length = text.length();
+        while (pos < length) {
+            while (j < count && (starts[j] < oldEnd || starts[j] + delta < pos)) {
+                j++;
+            }
+            if (j < count && starts[j] + delta == pos) {
+                relexed = freshCount;
+                return j;
+            }
+            pos = lexeme(pos);
+        }
+        relexed = freshCount;
+        return count;
+    }
+
+    // Appends the lexeme at pos to the fresh arrays and returns its end. Unmatchable runs become one
+    // ERROR lexeme, as in a recovering Lexer.
+    private int lexeme(int pos) {
+        int type = table.match(text, pos, match);
+        int end = match[0];
+        int look = match[1];
+        if (type == LexerTable.NONE) {
+            type = TokenType.ERROR.ordinal();
+            end = pos + 1;
+            while (end < text.length() && table.match(text, end, match) == LexerTable.NONE) {
+                look = Math.max(look, match[1]);
+                end++;
+            }
+            look = Math.max(look, end < text.length() ? match[1] : end + 1);
+        }
+        if (freshCount == freshTypes.length) {
+            int capacity = freshCount * 2;
+            freshTypes = Arrays.copyOf(freshTypes, capacity);
+            freshStarts = Arrays.copyOf(freshStarts, capacity);
+            freshEnds = Arrays.copyOf(freshEnds, capacity);
+            freshLooks = Arrays.copyOf(freshLooks, capacity);
+        }
+        freshTypes[freshCount] = (byte) type;
+        freshStarts[freshCount] = pos;
+        freshEnds[freshCount] = end;
+        freshLooks[freshCount++] = look;
+        return end;
+    }
+
+    // Replaces lexemes [from, to) with the fresh ones, which have no state or diagnostics yet, and
+    // shifts the rest by delta.
+    private void splice(int from, int to, int delta) {
+        int newCount = count - (to - from) + freshCount;
+        if (newCount > types.length) {
+            int capacity = Math.max(newCount, types.length * 2);
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            looks = Arrays.copyOf(looks, capacity);
+            states = Arrays.copyOf(states, capacity);
+            found = Arrays.copyOf(found, capacity);
+        }
+        int tail = count - to;
+        int target = from + freshCount;
+        if (target != to) {
+            System.arraycopy(types, to, types, target, tail);
+            System.arraycopy(starts, to, starts, target, tail);
+            System.arraycopy(ends, to, ends, target, tail);
+            System.arraycopy(looks, to, looks, target, tail);
+            System.arraycopy(states, to, states, target, tail);
+            System.arraycopy(found, to, found, target, tail);
+        }
+        if (delta != 0) {
+            for (int i = target; i < newCount; i++) {
+                starts[i] += delta;
+                ends[i] += delta;
+                looks[i] += delta;
+            }
+        }
+        System.arraycopy(freshTypes, 0, types, from, freshCount);
+        System.arraycopy(freshStarts, 0, starts, from, freshCount);
+        System.arraycopy(freshEnds, 0, ends, from, freshCount);
+        System.arraycopy(freshLooks, 0, looks, from, freshCount);
+        Arrays.fill(states, from, target, null);
+        Arrays.fill(found, from, target, null);
+        for (int i = newCount; i < count; i++) {
+            states[i] = null;
+            found[i] = null;
+        }
+        count = newCount;
+    }
+
+    // Nodes of tokens in the re-lexed window are rebuilt, so only those past it need moving.
+    private void shiftNodes(int oldEnd, int delta) {
+        if (delta != 0) {
+            for (int node = 0; node < nodeCount; node++) {
+                if (offsets[node] >= oldEnd) {
+                    offsets[node] += delta;
+                }
+            }
+        }
+    }
+
+    // Runs the parser from state before lexeme from. At a saved state of lexeme keptFrom or later,
+    // which the previous parse left, it stops if adopt() can take the old parse over from there.
+    private void parse(int from, State state, int keptFrom) {
+        ast = null;
+        operands = state.operands;
+        operators = state.operators;
+        mode = state.mode;
+        restartNodes = null;
+        reparsed = 0;
+        int unsaved = SAVE_INTERVAL;
+        for (int i = from; i < count; i++) {
+            if (types[i] == LexerTable.SKIP) {
+                continue;
+            }
+            if (states[i] != null && i >= keptFrom && adopt(states[i], state)) {
+                return;
+            }
+            if (states[i] != null || unsaved >= SAVE_INTERVAL) {
+                states[i] = new State(operands, operators, mode);
+                unsaved = 0;
+            }
+            unsaved++;
+            reparsed++;
+            step(TYPES[types[i]], starts[i], ends[i]);
+            found[i] = collect();
+        }
+        endState = new State(operands, operators, mode);
+        step(TokenType.EOF, text.length(), text.length());
+        endFound = collect();
+        root = resolve(operands.node);
+    }
+
+    // The old parse saved old before this token; it carries on for the new text too when its stacks
+    // have the same depths, the same mode, parens in the same places and operators of the same
+    // precedence. Each old entry then takes over the contents of the new one (an operator only its
+    // kind and offset, as its children come later) and the new one forwards to it, unless the
+    // restart state still holds the old entry: the new parse may have used it as a child since.
+    private boolean adopt(State old, State restart) {
+        if (old.mode != mode || depth(old.operands) != depth(operands) || depth(old.operators) != depth(operators)) {
+            return false;
+        }
+        for (Cell a = old.operators, b = operators; a != b; a = a.next, b = b.next) {
+            if (a.node == PAREN || b.node == PAREN) {
+                if (a.node != b.node) {
+                    return false;
+                }
+                continue;
+            }
+            int from = resolve(a.node);
+            int to = resolve(b.node);
+            if (precedence(kinds[from]) != precedence(kinds[to]) || from != to && holds(restart, from)) {
+                return false;
+            }
+        }
+        for (Cell a = old.operands, b = operands; a != b; a = a.next, b = b.next) {
+            int from = resolve(a.node);
+            if (from != resolve(b.node) && holds(restart, from)) {
+                return false;
+            }
+        }
+        for (Cell a = old.operators, b = operators; a != b; a = a.next, b = b.next) {
+            if (a.node != PAREN) {
+                int from = resolve(a.node);
+                int to = resolve(b.node);
+                if (from != to) {
+                    kinds[from] = kinds[to];
+                    offsets[from] = offsets[to];
+                    forward[to] = from;
+                }
+            }
+        }
+        for (Cell a = old.operands, b = operands; a != b; a = a.next, b = b.next) {
+            int from = resolve(a.node);
+            int to = resolve(b.node);
+            if (from != to) {
+                kinds[from] = kinds[to];
+                lefts[from] = lefts[to];
+                rights[from] = rights[to];
+                values[from] = values[to];
+                offsets[from] = offsets[to];
+                forward[to] = from;
+            }
+        }
+        return true;
+    }
+
+    private boolean holds(State state, int node) {
+        if (restartNodes == null) {
+            restartNodes = new HashSet<>();
+            for (Cell c = state.operands; c != null; c = c.next) {
+                restartNodes.add(resolve(c.node));
+            }
+            for (Cell c = state.operators; c != null; c = c.next) {
+                if (c.node != PAREN) {
+                    restartNodes.add(resolve(c.node));
+                }
+            }
+        }
+        return restartNodes.contains(node);
+    }
+
+    private int resolve(int node) {
+        int target = node;
+        while (forward[target] != target) {
+            target = forward[target];
+        }
+        while (forward[node] != target) {
+            int next = forward[node];
+            forward[node] = target;
+            node = next;
+        }
+        return target;
+    }
+
+    // One token through the moves Parser.run makes in recovering mode; EOF finishes the parse.
+    private void step(TokenType type, int start, int end) {
+        if (type == TokenType.ERROR) {
+            pending.add(Lexer.unexpected(text, start, end));
+        }
+        while (true) {
+            if (mode == SKIPPING) {
+                if (type != TokenType.EOF && type != TokenType.RIGHT_PAREN && binaryKind(type) == NOT_BINARY) {
+                    return;
+                }
+                mode = OPERATOR;
+            }
+            if (mode == OPERAND) {
+                if (type == TokenType.NUMBER) {
+                    operands = push(operands, node(Ast.NUMBER, Double.parseDouble(text.substring(start, end)), start));
+                    mode = OPERATOR;
+                } else if (type == TokenType.IDENTIFIER) {
+                    operands = push(operands, node(Ast.VARIABLE, nameId(text.substring(start, end)), start));
+                    mode = OPERATOR;
+                } else if (type == TokenType.LEFT_PAREN) {
+                    operators = push(operators, PAREN);
+                } else if (type == TokenType.ERROR) {
+                    operands = push(operands, node(Ast.ERROR, Double.NaN, start));
+                    mode = OPERATOR;
+                } else {
+                    report(type, start, end);
+                    operands = push(operands, node(Ast.ERROR, Double.NaN, start));
+                    mode = SKIPPING;
+                    // As in Parser, an unmatched ')' is dropped rather than reported twice.
+                    if (type == TokenType.RIGHT_PAREN && !hasOpenParen()) {
+                        return;
+                    }
+                    continue;
+                }
+                return;
+            }
+            byte kind = type == TokenType.ERROR ? Ast.ERROR : binaryKind(type);
+            if (kind != NOT_BINARY) {
+                while (operators != null && precedence(top()) >= precedence(kind)) {
+                    reduce();
+                }
+                operators = push(operators, node(kind, 0, start));
+                mode = OPERAND;
+            } else if (type == TokenType.RIGHT_PAREN && closeParen()) {
+                mode = OPERATOR;
+            } else if (type == TokenType.EOF) {
+                finish(start);
+            } else {
+                report(type, start, end);
+                mode = SKIPPING;
+            }
+            return;
+        }
+    }
+
+    private void finish(int at) {
+        boolean unclosed = false;
+        while (operators != null) {
+            if (operators.node == PAREN) {
+                if (!unclosed) {
+                    pending.add(new Diagnostic(at, 0, "Missing closing parenthesis."));
+                    unclosed = true;
+                }
+                operators = operators.next;
+                continue;
+            }
+            reduce();
+        }
+    }
+
+    private void report(TokenType type, int start, int end) {
+        String value = type == TokenType.EOF ? "" : text.substring(start, end);
+        pending.add(new Diagnostic(start, value.length(), "Unexpected token: " + value));
+    }
+
+    private Diagnostic[] collect() {
+        if (pending.isEmpty()) {
+            return null;
+        }
+        Diagnostic[] diagnostics = pending.toArray(new Diagnostic[0]);
+        pending.clear();
+        return diagnostics;
+    }
+
+    // Reduces back to the innermost '(' and drops it; false when there is none to close.
+    private boolean closeParen() {
+        if (!hasOpenParen()) {
+            return false;
+        }
+        while (operators.node != PAREN) {
+            reduce();
+        }
+        operators = operators.next;
+        return true;
+    }
+
+    private boolean hasOpenParen() {
+        for (Cell open = operators; open != null; open = open.next) {
+            if (open.node == PAREN) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void reduce() {
+        int operator = resolve(operators.node);
+        rights[operator] = resolve(operands.node);
+        lefts[operator] = resolve(operands.next.node);
+        operands = push(operands.next.next, operator);
+        operators = operators.next;
+    }
+
+    private int top() {
+        return operators.node == PAREN ? PAREN : kinds[resolve(operators.node)];
+    }
+
+    private static byte binaryKind(TokenType type) {
+        switch (type) {
+            case PLUS:
+                return Ast.ADD;
+            case MINUS:
+                return Ast.SUBTRACT;
+            case MULTIPLY:
+                return Ast.MULTIPLY;
+            case DIVIDE:
+                return Ast.DIVIDE;
+            default:
+                return NOT_BINARY;
+        }
+    }
+
+    // As in Parser: an ERROR operator binds like + and -.
+    private static int precedence(int operator) {
+        return operator == Ast.MULTIPLY || operator == Ast.DIVIDE ? 2 : operator == PAREN ? 0 : 1;
+    }
+
+    private int nameId(String name) {
+        Integer id = nameIds.get(name);
+        if (id == null) {
+            id = names.size();
+            names.add(name);
+            nameIds.put(name, id);
+        }
+        return id;
+    }
+
+    private int node(byte kind, double value, long offset) {
+        if (nodeCount == kinds.length) {
+            int capacity = nodeCount * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            lefts = Arrays.copyOf(lefts, capacity);
+            rights = Arrays.copyOf(rights, capacity);
+            values = Arrays.copyOf(values, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            forward = Arrays.copyOf(forward, capacity);
+        }
+        kinds[nodeCount] = kind;
+        lefts[nodeCount] = -1;
+        rights[nodeCount] = -1;
+        values[nodeCount] = value;
+        offsets[nodeCount] = offset;
+        forward[nodeCount] = nodeCount;
+        return nodeCount++;
+    }
+
+    // Copies the tree under root into an Ast in postorder, the order Parser builds it in, so the
+    // two come out identical. A negative stack entry ~node means both children of node are done.
+    private Ast flatten() {
+        Ast ast = new Ast();
+        int[] stack = new int[16];
+        int[] built = new int[16];
+        int top = 0;
+        int done = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            int entry = stack[--top];
+            int result;
+            if (entry < 0) {
+                int node = ~entry;
+                int right = built[--done];
+                int left = built[--done];
+                result = ast.binary(kinds[node], left, right, offsets[node]);
+            } else if (lefts[entry] >= 0) {
+                if (top + 3 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                stack[top++] = ~entry;
+                stack[top++] = resolve(rights[entry]);
+                stack[top++] = resolve(lefts[entry]);
+                continue;
+            } else if (kinds[entry] == Ast.NUMBER) {
+                result = ast.number(values[entry], offsets[entry]);
+            } else if (kinds[entry] == Ast.VARIABLE) {
+                result = ast.variable(names.get((int) values[entry]), offsets[entry]);
+            } else {
+                result = ast.error(offsets[entry]);
+            }
+            if (done == built.length) {
+                built = Arrays.copyOf(built, done * 2);
+            }
+            built[done++] = result;
+        }
+        return ast;
+    }
+
+    private static Diagnostic at(Diagnostic d, long offset) {
+        return d.getOffset() == offset ? d : new Diagnostic(offset, d.getLength(), d.getMessage());
+    }
+
+    private static Cell push(Cell next, int node) {
+        return new Cell(node, next);
+    }
+
+    private static int depth(Cell cell) {
+        return cell == null ? 0 : cell.depth;
+    }
+
+    // An entry of a persistent parser stack: a node id, or PAREN on the operator stack. Saved states
+    // share the cells below whatever changed since.
+    private static final class Cell {
+        final int node;
+        final Cell next;
+        final int depth;
+
+        Cell(int node, Cell next) {
+            this.node = node;
+            this.next = next;
+            this.depth = depth(next) + 1;
+        }
+    }
+
+    // The parser before some token: both stacks and what the token must be.
+    private static final class State {
+        final Cell operands;
+        final Cell operators;
+        final byte mode;
+
+        State(Cell operands, Cell operators, byte mode) {
+            this.operands = operands;
+            this.operators = operators;
+            this.mode = mode;
+        }
+    }
+}
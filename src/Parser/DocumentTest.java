@@ -0,0 +1,116 @@
+package Parser;
+
+import Lexer.Diagnostic;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DocumentTest {
+    private static final String[] PIECES = {"x", "y1", "42", "3.5", "+", "-", "*", "/", "(", ")", " ", "  ", "$", "#"};
+
+    private static String randomText(Random random, int pieces) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < pieces; i++) {
+            text.append(PIECES[random.nextInt(PIECES.length)]);
+        }
+        return text.toString();
+    }
+
+    // A mostly well-formed expression, so that edits land in deep and long parses.
+    private static String randomExpression(Random random, int terms) {
+        StringBuilder text = new StringBuilder();
+        int open = 0;
+        for (int i = 0; i < terms; i++) {
+            if (i > 0) {
+                text.append(" +-*/".charAt(1 + random.nextInt(4)));
+            }
+            while (random.nextInt(4) == 0) {
+                text.append('(');
+                open++;
+            }
+            text.append(random.nextBoolean() ? "v" + random.nextInt(5) : String.valueOf(random.nextInt(100)));
+            while (open > 0 && random.nextInt(3) == 0) {
+                text.append(')');
+                open--;
+            }
+        }
+        return text.toString();
+    }
+
+    private static void assertSameAsFullParse(Document document) throws Exception {
+        List<Diagnostic> expected = new ArrayList<>();
+        Ast full = Parser.parse(document.text(), expected);
+        Ast ast = document.ast();
+        String where = document.text();
+        assertEquals(where, full.size(), ast.size());
+        for (int i = 0; i < full.size(); i++) {
+            assertEquals(where, full.kind(i), ast.kind(i));
+            assertEquals(where, full.left(i), ast.left(i));
+            assertEquals(where, full.right(i), ast.right(i));
+            assertEquals(where, full.offset(i), ast.offset(i));
+            assertEquals(where, Double.doubleToLongBits(full.value(i)), Double.doubleToLongBits(ast.value(i)));
+        }
+        assertEquals(where, full.names(), ast.names());
+        List<Diagnostic> actual = document.diagnostics();
+        assertEquals(where, expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(where, expected.get(i).getOffset(), actual.get(i).getOffset());
+            assertEquals(where, expected.get(i).getLength(), actual.get(i).getLength());
+            assertEquals(where, expected.get(i).getMessage(), actual.get(i).getMessage());
+        }
+    }
+
+    private static void randomEdits(Random random, Document document, int edits) throws Exception {
+        for (int e = 0; e < edits; e++) {
+            int offset = random.nextInt(document.length() + 1);
+            int deleted = random.nextInt(Math.min(4, document.length() - offset) + 1);
+            document.edit(offset, deleted, randomText(random, random.nextInt(3)));
+            assertSameAsFullParse(document);
+        }
+    }
+
+    @Test
+    public void testRandomEdits() throws Exception {
+        Random random = new Random(1);
+        for (int round = 0; round < 300; round++) {
+            Document document = new Document(randomText(random, random.nextInt(30)));
+            assertSameAsFullParse(document);
+            randomEdits(random, document, 40);
+        }
+    }
+
+    @Test
+    public void testRandomEditsOfLongExpressions() throws Exception {
+        Random random = new Random(2);
+        for (int round = 0; round < 20; round++) {
+            Document document = new Document(randomExpression(random, 200));
+            assertSameAsFullParse(document);
+            randomEdits(random, document, 200);
+        }
+    }
+
+    // Edits near the start, inside a long group and near the end of a long expression each re-parse
+    // a few tokens only, as long as they leave the parens and the precedence of pending operators
+    // alone.
+    @Test
+    public void testReusesTheRestOfTheParse() throws Exception {
+        StringBuilder text = new StringBuilder("a * (b");
+        for (int i = 0; i < 20000; i++) {
+            text.append(i % 3 == 0 ? " + " : " * ").append("x").append(i);
+        }
+        text.append(") - c");
+        Document document = new Document(text);
+        int[][] edits = {{0, 1, 'q'}, {5, 1, 'z'}, {9, 1, '-'}, {9, 1, '$'}, {text.length() / 2, 0, '7'},
+                {text.length() / 2, 0, '*'}, {text.length() - 1, 1, 'd'}, {2, 1, '/'}, {7, 1, '-'}};
+        for (int[] edit : edits) {
+            document.edit(edit[0], edit[1], String.valueOf((char) edit[2]));
+            assertSameAsFullParse(document);
+            assertTrue(document.text().substring(0, 12) + ": " + document.reparsed(), document.reparsed() < 100);
+        }
+    }
+}
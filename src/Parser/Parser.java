@@ -1,68 +1,229 @@
 package Parser;
 
+import Lexer.Diagnostic;
+import Lexer.Lexer;
 import Lexer.Token;
+import Lexer.TokenSource;
 import Lexer.TokenType;
 
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 
+// Operator-precedence parser: operands and pending operators live on two explicit stacks, so
+// nesting depth is bounded by heap rather than by the call stack. It accepts the same language as
+// expression := term (('+' | '-') term)*, term := factor (('*' | '/') factor)*,
+// factor := NUMBER | IDENTIFIER | '(' expression ')', and builds an Ast while doing so.
 public class Parser {
-    private final List<Token> tokens;
-    private int position;
+    private static final int PAREN = -1;
+    private static final byte NOT_BINARY = -2;
+
+    private final TokenSource tokens;
     private Token currentToken;
+    private List<Diagnostic> diagnostics;
+
+    private int[] operands = new int[16];
+    private int operandCount;
+    private int[] operators = new int[16];
+    private long[] operatorOffsets = new long[16];
+    private int operatorCount;
 
     public Parser(List<Token> tokens) {
+        this(TokenSource.of(tokens));
+    }
+
+    // Tokens are pulled one at a time, so a StreamingLexer is never read ahead of the parser.
+    public Parser(TokenSource tokens) {
         this.tokens = tokens;
-        this.position = 0;
-        this.currentToken = tokens.get(0);
     }
 
-    public void parse() throws Exception {
-        expression();
+    public Ast parse() throws Exception {
+        return parse(null);
+    }
+
+    // Lexes and parses input in recovering mode; the diagnostics come back sorted by offset.
+    public static Ast parse(CharSequence input, List<Diagnostic> diagnostics) throws Exception {
+        List<Diagnostic> found = new ArrayList<>();
+        Ast ast = new Parser(new Lexer(input, found)).parse(found);
+        found.sort(Comparator.comparingLong(Diagnostic::getOffset));
+        diagnostics.addAll(found);
+        return ast;
+    }
+
+    // With a diagnostics list nothing is thrown for syntax errors: each is recorded, a missing
+    // operand or operator is replaced by an Ast.ERROR node, and tokens are skipped up to the next
+    // ')', operator or EOF. ERROR tokens from a recovering lexer stand in for whatever was
+    // expected without a second diagnostic.
+    public Ast parse(List<Diagnostic> diagnostics) throws Exception {
+        this.diagnostics = diagnostics;
+        Ast ast = new Ast();
+        operandCount = 0;
+        operatorCount = 0;
+        currentToken = tokens.nextToken();
+        boolean expectOperand = true;
 
+        while (true) {
+            TokenType type = currentToken.getType();
+            if (expectOperand) {
+                if (type == TokenType.NUMBER) {
+                    pushOperand(ast.number(Double.parseDouble(currentToken.getValue()), currentToken.getOffset()));
+                    expectOperand = false;
+                } else if (type == TokenType.IDENTIFIER) {
+                    pushOperand(ast.variable(currentToken.getValue(), currentToken.getOffset()));
+                    expectOperand = false;
+                } else if (type == TokenType.LEFT_PAREN) {
+                    pushOperator(PAREN, currentToken.getOffset());
+                } else if (type == TokenType.ERROR) {
+                    pushOperand(ast.error(currentToken.getOffset()));
+                    expectOperand = false;
+                } else {
+                    report("Unexpected token: " + currentToken.getValue());
+                    pushOperand(ast.error(currentToken.getOffset()));
+                    expectOperand = false;
+                    // An unmatched ')' is dropped here, or the operator branch would report it again.
+                    if (type == TokenType.RIGHT_PAREN && !hasOpenParen()) {
+                        advance();
+                    }
+                    skipToSync();
+                    continue;
+                }
+            } else {
+                byte kind = binaryKind(type);
+                if (kind != NOT_BINARY) {
+                    while (operatorCount > 0 && precedence(operators[operatorCount - 1]) >= precedence(kind)) {
+                        reduce(ast);
+                    }
+                    pushOperator(kind, currentToken.getOffset());
+                    expectOperand = true;
+                } else if (type == TokenType.RIGHT_PAREN && closeParen(ast)) {
+                    expectOperand = false;
+                } else if (type == TokenType.ERROR && diagnostics != null) {
+                    while (operatorCount > 0 && precedence(operators[operatorCount - 1]) >= precedence(Ast.ERROR)) {
+                        reduce(ast);
+                    }
+                    pushOperator(Ast.ERROR, currentToken.getOffset());
+                    expectOperand = true;
+                } else if (type == TokenType.EOF || diagnostics == null) {
+                    break;
+                } else {
+                    report("Unexpected token: " + currentToken.getValue());
+                    if (type == TokenType.RIGHT_PAREN) {
+                        advance();
+                    }
+                    skipToSync();
+                    continue;
+                }
+            }
+            advance();
+        }
+
+        boolean unclosed = false;
+        while (operatorCount > 0) {
+            if (operators[operatorCount - 1] == PAREN) {
+                if (!unclosed) {
+                    report("Missing closing parenthesis.");
+                    unclosed = true;
+                }
+                operatorCount--;
+                continue;
+            }
+            reduce(ast);
+        }
         if (currentToken.getType() != TokenType.EOF) {
-            throw new Exception("Unexpected token: " + currentToken.getValue());
+            throw error("Unexpected token: " + currentToken.getValue());
         }
+        return ast;
     }
 
-    private void advance() {
-        position++;
-        if (position < tokens.size()) {
-            currentToken = tokens.get(position);
-        } else {
-            currentToken = new Token(TokenType.EOF, "");
+    private void report(String message) throws ParseException {
+        if (diagnostics == null) {
+            throw error(message);
         }
+        diagnostics.add(new Diagnostic(currentToken.getOffset(), currentToken.getValue().length(), message));
     }
 
-    private void expression() throws Exception {
-        term();
-        while (currentToken.getType() == TokenType.PLUS || currentToken.getType() == TokenType.MINUS) {
-            Token operator = currentToken;
+    // Panic mode: drop tokens until one that an expression can continue from.
+    private void skipToSync() throws Exception {
+        while (true) {
+            TokenType type = currentToken.getType();
+            if (type == TokenType.EOF || type == TokenType.RIGHT_PAREN || binaryKind(type) != NOT_BINARY) {
+                return;
+            }
             advance();
-            term();
         }
     }
 
-    private void term() throws Exception {
-        factor();
-        while (currentToken.getType() == TokenType.MULTIPLY || currentToken.getType() == TokenType.DIVIDE) {
-            Token operator = currentToken;
-            advance();
-            factor();
+    private void advance() throws Exception {
+        currentToken = tokens.nextToken();
+    }
+
+    // Reduces back to the innermost '(' and drops it; false when there is none to close.
+    private boolean closeParen(Ast ast) {
+        if (!hasOpenParen()) {
+            return false;
+        }
+        while (operators[operatorCount - 1] != PAREN) {
+            reduce(ast);
         }
+        operatorCount--;
+        return true;
     }
 
-    private void factor() throws Exception {
-        if (currentToken.getType() == TokenType.NUMBER) {
-            advance();
-        } else if (currentToken.getType() == TokenType.LEFT_PAREN) {
-            advance();
-            expression();
-            if (currentToken.getType() != TokenType.RIGHT_PAREN) {
-                throw new Exception("Missing closing parenthesis.");
+    private boolean hasOpenParen() {
+        for (int i = operatorCount - 1; i >= 0; i--) {
+            if (operators[i] == PAREN) {
+                return true;
             }
-            advance();
-        } else {
-            throw new Exception("Unexpected token: " + currentToken.getValue());
         }
+        return false;
+    }
+
+    private void reduce(Ast ast) {
+        int right = operands[--operandCount];
+        int left = operands[--operandCount];
+        operatorCount--;
+        pushOperand(ast.binary((byte) operators[operatorCount], left, right, operatorOffsets[operatorCount]));
+    }
+
+    private static byte binaryKind(TokenType type) {
+        switch (type) {
+            case PLUS:
+                return Ast.ADD;
+            case MINUS:
+                return Ast.SUBTRACT;
+            case MULTIPLY:
+                return Ast.MULTIPLY;
+            case DIVIDE:
+                return Ast.DIVIDE;
+            default:
+                return NOT_BINARY;
+        }
+    }
+
+    // An ERROR operator binds like + and -.
+    private static int precedence(int operator) {
+        return operator == Ast.MULTIPLY || operator == Ast.DIVIDE ? 2 : operator == PAREN ? 0 : 1;
+    }
+
+    private void pushOperand(int node) {
+        if (operandCount == operands.length) {
+            operands = Arrays.copyOf(operands, operandCount * 2);
+        }
+        operands[operandCount++] = node;
+    }
+
+    private void pushOperator(int operator, long offset) {
+        if (operatorCount == operators.length) {
+            operators = Arrays.copyOf(operators, operatorCount * 2);
+            operatorOffsets = Arrays.copyOf(operatorOffsets, operatorCount * 2);
+        }
+        operators[operatorCount] = operator;
+        operatorOffsets[operatorCount++] = offset;
+    }
+
+    private ParseException error(String message) {
+        return new ParseException(message, (int) Math.min(currentToken.getOffset(), Integer.MAX_VALUE));
     }
 }
@@ -0,0 +1,115 @@
+package Parser;
+
+import Lexer.Lexer;
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ParserTest {
+
+    static Ast parse(String input) throws Exception {
+        return new Parser(new Lexer(input).tokenize()).parse();
+    }
+
+    private static void assertRejected(String input, String message, int offset) throws Exception {
+        try {
+            parse(input);
+            fail("Expected a ParseException for " + input);
+        } catch (ParseException e) {
+            assertEquals(input, message, e.getMessage());
+            assertEquals(input, offset, e.getErrorOffset());
+        }
+    }
+
+    @Test
+    public void testPrecedence() throws Exception {
+        assertEquals("(1 + (2 * 3))", parse("1 + 2 * 3").toString());
+        assertEquals("((1 * 2) + 3)", parse("1 * 2 + 3").toString());
+        assertEquals("((1 + 2) * 3)", parse("(1 + 2) * 3").toString());
+        assertEquals("((1 - (6 / 3)) + (2 * 4))", parse("1 - 6 / 3 + 2 * 4").toString());
+        assertEquals(7.0, parse("1 + 2 * 3").evaluate(), 0.0);
+        assertEquals(9.0, parse("(1 + 2) * 3").evaluate(), 0.0);
+    }
+
+    @Test
+    public void testLeftAssociativity() throws Exception {
+        assertEquals("((8 - 3) - 2)", parse("8 - 3 - 2").toString());
+        assertEquals("((8 / 4) / 2)", parse("8 / 4 / 2").toString());
+        assertEquals("(8 - (3 - 2))", parse("8 - (3 - 2)").toString());
+        assertEquals(3.0, parse("8 - 3 - 2").evaluate(), 0.0);
+        assertEquals(1.0, parse("8 / 4 / 2").evaluate(), 0.0);
+    }
+
+    @Test
+    public void testNodes() throws Exception {
+        Ast ast = parse("x * (y + 25) - x");
+        assertEquals("((x * (y + 25)) - x)", ast.toString());
+        assertEquals(List.of("x", "y"), ast.names());
+        int root = ast.root();
+        assertEquals(Ast.SUBTRACT, ast.kind(root));
+        assertEquals(13, ast.offset(root));
+        int product = ast.left(root);
+        assertEquals(Ast.MULTIPLY, ast.kind(product));
+        assertEquals(Ast.VARIABLE, ast.kind(ast.left(product)));
+        assertEquals("x", ast.name(ast.left(product)));
+        assertEquals(Ast.VARIABLE, ast.kind(ast.right(root)));
+        // Children come before their parent.
+        for (int i = 0; i < ast.size(); i++) {
+            if (ast.kind(i) != Ast.NUMBER && ast.kind(i) != Ast.VARIABLE) {
+                assertTrue(ast.left(i) < i && ast.right(i) < i);
+            }
+        }
+        assertEquals(46.0, ast.evaluate(Map.of("x", 2.0, "y", -1.0)), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnboundIdentifier() throws Exception {
+        parse("x + 1").evaluate();
+    }
+
+    @Test
+    public void testDeepNesting() throws Exception {
+        int depth = 100_000;
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            input.append('(');
+        }
+        input.append("1 + 2");
+        for (int i = 0; i < depth; i++) {
+            input.append(')');
+        }
+        Ast ast = parse(input.toString());
+        assertEquals(3, ast.size());
+        assertEquals(3.0, ast.evaluate(), 0.0);
+
+        // A right-leaning chain: each operand opens another parenthesis.
+        input.setLength(0);
+        for (int i = 0; i < depth; i++) {
+            input.append("1-(");
+        }
+        input.append('1');
+        for (int i = 0; i < depth; i++) {
+            input.append(')');
+        }
+        ast = parse(input.toString());
+        assertEquals(2 * depth + 1, ast.size());
+        assertEquals(1.0, ast.evaluate(), 0.0);
+        assertEquals(2 * depth + 1, ast.toString().replaceAll("[^-1]", "").length());
+    }
+
+    @Test
+    public void testRejected() throws Exception {
+        assertRejected("()", "Unexpected token: )", 1);
+        assertRejected("1 2", "Unexpected token: 2", 2);
+        assertRejected("(1", "Missing closing parenthesis.", 2);
+        assertRejected("1 +", "Unexpected token: ", 3);
+        assertRejected("1)", "Unexpected token: )", 1);
+        assertRejected("", "Unexpected token: ", 0);
+    }
+}
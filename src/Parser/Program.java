@@ -0,0 +1,136 @@
+package Parser;
+
+import java.util.Arrays;
+
+// Stack-machine code for one expression. Opcodes and their operands share one int[]: CONST and
+// LOAD are followed by a constant index or an environment slot, the arithmetic ops stand alone.
+// Slot i of an environment holds the identifier slotName(i).
+public final class Program {
+    public static final int CONST = 0;
+    public static final int LOAD = 1;
+    public static final int ADD = 2;
+    public static final int SUBTRACT = 3;
+    public static final int MULTIPLY = 4;
+    public static final int DIVIDE = 5;
+
+    private static final String[] MNEMONICS = {"const", "load", "add", "sub", "mul", "div"};
+
+    private final int[] code;
+    private final double[] constants;
+    private final String[] slots;
+    private final int maxStack;
+
+    Program(int[] code, double[] constants, String[] slots, int maxStack) {
+        this.code = code;
+        this.constants = constants;
+        this.slots = slots;
+        this.maxStack = maxStack;
+    }
+
+    public int slotCount() {
+        return slots.length;
+    }
+
+    public String slotName(int slot) {
+        return slots[slot];
+    }
+
+    public int slot(String name) {
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int maxStack() {
+        return maxStack;
+    }
+
+    public int[] code() {
+        return code.clone();
+    }
+
+    public double evaluate(double... env) {
+        return evaluate(env, new double[maxStack]);
+    }
+
+    // stack must hold at least maxStack() values; passing one in keeps repeated calls allocation-free.
+    public double evaluate(double[] env, double[] stack) {
+        if (env.length < slots.length) {
+            throw new IllegalArgumentException("Expected " + slots.length + " slots, got " + env.length);
+        }
+        int[] code = this.code;
+        double[] constants = this.constants;
+        int sp = 0;
+        int pc = 0;
+        while (pc < code.length) {
+            switch (code[pc++]) {
+                case CONST:
+                    stack[sp++] = constants[code[pc++]];
+                    break;
+                case LOAD:
+                    stack[sp++] = env[code[pc++]];
+                    break;
+                case ADD:
+                    sp--;
+                    stack[sp - 1] += stack[sp];
+                    break;
+                case SUBTRACT:
+                    sp--;
+                    stack[sp - 1] -= stack[sp];
+                    break;
+                case MULTIPLY:
+                    sp--;
+                    stack[sp - 1] *= stack[sp];
+                    break;
+                default:
+                    sp--;
+                    stack[sp - 1] /= stack[sp];
+                    break;
+            }
+        }
+        return stack[0];
+    }
+
+    // One result per environment, sharing a single stack.
+    public double[] evaluateAll(double[][] envs) {
+        double[] results = new double[envs.length];
+        double[] stack = new double[maxStack];
+        for (int i = 0; i < envs.length; i++) {
+            results[i] = evaluate(envs[i], stack);
+        }
+        return results;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int pc = 0; pc < code.length; ) {
+            int op = code[pc++];
+            sb.append(MNEMONICS[op]);
+            if (op == CONST) {
+                sb.append(' ').append(constants[code[pc++]]);
+            } else if (op == LOAD) {
+                sb.append(' ').append(slots[code[pc++]]);
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Program)) {
+            return false;
+        }
+        Program other = (Program) o;
+        return Arrays.equals(code, other.code) && Arrays.equals(constants, other.constants) && Arrays.equals(slots, other.slots);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(code) + Arrays.hashCode(constants);
+    }
+}
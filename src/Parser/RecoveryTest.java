@@ -0,0 +1,95 @@
+package Parser;
+
+import Lexer.Diagnostic;
+import Lexer.Lexer;
+import Lexer.Token;
+import Lexer.TokenType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RecoveryTest {
+
+    // Parses input in recovering mode and checks the recovered tree and each diagnostic, written
+    // as "offset:length:message".
+    private static Ast assertRecovers(String input, String tree, String... diagnostics) throws Exception {
+        List<Diagnostic> found = new ArrayList<>();
+        Ast ast = Parser.parse(input, found);
+        assertEquals(input, tree, ast.toString());
+        List<String> actual = new ArrayList<>();
+        for (Diagnostic diagnostic : found) {
+            actual.add(diagnostic.getOffset() + ":" + diagnostic.getLength() + ":" + diagnostic.getMessage());
+        }
+        assertEquals(input, List.of(diagnostics), actual);
+        return ast;
+    }
+
+    @Test
+    public void testUnexpectedCharacter() throws Exception {
+        Ast ast = assertRecovers("10 / 5 # 2", "((10 / 5) ? 2)", "7:1:Unexpected character: #");
+        assertEquals(Ast.ERROR, ast.kind(ast.root()));
+        assertEquals(7, ast.offset(ast.root()));
+        assertTrue(Double.isNaN(ast.evaluate()));
+        assertRecovers("a $$ b", "(a ? b)", "2:2:Unexpected characters: $$");
+        assertRecovers("1 + $", "(1 + ?)", "4:1:Unexpected character: $");
+    }
+
+    @Test
+    public void testMissingOperand() throws Exception {
+        Ast ast = assertRecovers("1 + + 2", "((1 + ?) + 2)", "4:1:Unexpected token: +");
+        int error = ast.right(ast.left(ast.root()));
+        assertEquals(Ast.ERROR, ast.kind(error));
+        assertEquals(-1, ast.left(error));
+        assertEquals(4, ast.offset(error));
+        assertRecovers("(1 + ) * 2", "((1 + ?) * 2)", "5:1:Unexpected token: )");
+        assertRecovers("1 *", "(1 * ?)", "3:0:Unexpected token: ");
+        assertRecovers("", "?", "0:0:Unexpected token: ");
+    }
+
+    @Test
+    public void testParentheses() throws Exception {
+        assertRecovers("(1", "1", "2:0:Missing closing parenthesis.");
+        assertRecovers("((1 + 2) * (3", "((1 + 2) * 3)", "13:0:Missing closing parenthesis.");
+        assertRecovers("1)", "1", "1:1:Unexpected token: )");
+        // An unmatched ')' where an operand is due is reported once.
+        assertRecovers(")", "?", "0:1:Unexpected token: )");
+        assertRecovers(") + 1", "(? + 1)", "0:1:Unexpected token: )");
+    }
+
+    @Test
+    public void testSeveralErrors() throws Exception {
+        assertRecovers("1 + + 2 # 3 (4", "(((1 + ?) + 2) ? 3)",
+                "4:1:Unexpected token: +", "8:1:Unexpected character: #", "12:1:Unexpected token: (");
+        assertRecovers("1 2 3 + 4", "(1 + 4)", "2:1:Unexpected token: 2");
+        assertRecovers("(# * ) / (1", "((? * ?) / 1)",
+                "1:1:Unexpected character: #", "5:1:Unexpected token: )", "11:0:Missing closing parenthesis.");
+    }
+
+    @Test
+    public void testValidInput() throws Exception {
+        assertRecovers("x * (y - 3)", "(x * (y - 3))");
+    }
+
+    @Test
+    public void testRecoveringLexer() throws Exception {
+        List<Diagnostic> diagnostics = new ArrayList<>();
+        List<Token> tokens = new Lexer("a $$ 1 # b", diagnostics).tokenize();
+        List<TokenType> types = new ArrayList<>();
+        for (Token token : tokens) {
+            types.add(token.getType());
+        }
+        assertEquals(List.of(TokenType.IDENTIFIER, TokenType.ERROR, TokenType.NUMBER, TokenType.ERROR,
+                TokenType.IDENTIFIER), types);
+        assertEquals("$$", tokens.get(1).getValue());
+        assertEquals(2, tokens.get(1).getOffset());
+        assertEquals(2, diagnostics.size());
+        assertEquals(2, diagnostics.get(0).getOffset());
+        assertEquals(2, diagnostics.get(0).getLength());
+        assertEquals("Unexpected characters: $$", diagnostics.get(0).getMessage());
+        assertEquals("7: Unexpected character: #", diagnostics.get(1).toString());
+    }
+}
@@ -0,0 +1,518 @@
+import java.util.*;
+
+// Regular expressions compiled to an epsilon-free NFA by the Glushkov construction: a start state
+// plus one state per occurrence of a char or class in the pattern (a position), with every
+// transition into a position labelled by that position's chars. The pattern is read once, left to
+// right and without recursion, into postfix order; a bounded repetition is expanded there by
+// copying its operand with fresh positions. An operand without positions can only match the empty
+// word, so its repetition is EMPTY, and the postfix is capped at MAX_CODES codes, so nested
+// repetitions cannot grow it without bound between positions.
+//
+// Syntax: concatenation, |, (...), *, +, ?, {n}, {n,}, {n,m}, [abc], [a-z], [^...], ., and the
+// escapes \d \w \s \t \n \r; any other escaped char stands for itself. '.' and negated classes
+// range over printable ASCII, from ' ' to '~'.
+public final class Regex {
+    public static final int MAX_REPEAT = 1000;
+    public static final int MAX_POSITIONS = 4096;
+    public static final int MAX_CODES = 16 * MAX_POSITIONS;
+
+    // Postfix codes: positions are >= 0, operators negative.
+    private static final int EMPTY = -1;
+    private static final int CONCAT = -2;
+    private static final int ALTERNATE = -3;
+    private static final int STAR = -4;
+    private static final int PLUS = -5;
+    private static final int OPTIONAL = -6;
+    // '(' on the operator stack.
+    private static final int GROUP = -7;
+    private static final int UNBOUNDED = -1;
+
+    private static final BitSet PRINTABLE = range(' ', '~');
+    private static final BitSet DIGITS = range('0', '9');
+    private static final BitSet WORD = word();
+    private static final BitSet SPACE = chars(" \t\n\r\f");
+
+    private final String pattern;
+    private int index;
+
+    private int[] postfix = new int[16];
+    private int size;
+    // Class of each position; copies made by a repetition share their class.
+    private int[] positionClass = new int[16];
+    private int positions;
+    private final List<BitSet> classes = new ArrayList<>();
+    private final Map<BitSet, Integer> classIds = new HashMap<>();
+
+    private int[] operators = new int[16];
+    private int[] operatorIndex = new int[16];
+    private int operatorCount;
+    // Where the postfix of each complete operand starts.
+    private int[] starts = new int[16];
+    private int operandCount;
+
+    private Regex(String pattern) {
+        this.pattern = pattern;
+    }
+
+    public static NFA compile(String pattern) {
+        Regex regex = new Regex(pattern);
+        regex.parse();
+        return regex.glushkov();
+    }
+
+    public static Matcher matcher(String pattern) {
+        return Matcher.of(compile(pattern));
+    }
+
+    private void parse() {
+        // Whether the text read so far ends with a complete operand.
+        boolean operand = false;
+        while (index < pattern.length()) {
+            char c = pattern.charAt(index);
+            switch (c) {
+                case '|':
+                    if (!operand) {
+                        emitOperand(EMPTY);
+                    }
+                    reduce(1);
+                    pushOperator(ALTERNATE);
+                    operand = false;
+                    index++;
+                    break;
+                case '(':
+                    if (operand) {
+                        reduce(2);
+                        pushOperator(CONCAT);
+                    }
+                    pushOperator(GROUP);
+                    operand = false;
+                    index++;
+                    break;
+                case ')':
+                    if (!operand) {
+                        emitOperand(EMPTY);
+                    }
+                    reduce(1);
+                    if (operatorCount == 0) {
+                        throw error("Unmatched ')'", index);
+                    }
+                    operatorCount--;
+                    operand = true;
+                    index++;
+                    break;
+                case '*':
+                case '+':
+                case '?':
+                    if (!operand) {
+                        throw error("Dangling '" + c + "'", index);
+                    }
+                    emit(c == '*' ? STAR : c == '+' ? PLUS : OPTIONAL);
+                    index++;
+                    break;
+                case '{':
+                    if (!operand) {
+                        throw error("Dangling '{'", index);
+                    }
+                    repetition();
+                    break;
+                default:
+                    if (operand) {
+                        reduce(2);
+                        pushOperator(CONCAT);
+                    }
+                    emitOperand(newPosition(atom()));
+                    operand = true;
+                    break;
+            }
+        }
+        if (!operand) {
+            emitOperand(EMPTY);
+        }
+        reduce(1);
+        if (operatorCount > 0) {
+            throw error("Unclosed group", operatorIndex[operatorCount - 1]);
+        }
+    }
+
+    // Emits pending operators of at least the given precedence (CONCAT 2, ALTERNATE 1), stopping
+    // at the innermost open group.
+    private void reduce(int precedence) {
+        while (operatorCount > 0 && operators[operatorCount - 1] != GROUP
+                && (operators[operatorCount - 1] == CONCAT ? 2 : 1) >= precedence) {
+            operandCount--;
+            emit(operators[--operatorCount]);
+        }
+    }
+
+    // Parses {n}, {n,} or {n,m} and replaces the last operand e by its expansion: n copies of e
+    // followed by e* when unbounded, or by m - n nested optional copies (e(e(e)?)?)? otherwise.
+    private void repetition() {
+        int open = index++;
+        int min = number(open);
+        int max = min;
+        if (index < pattern.length() && pattern.charAt(index) == ',') {
+            index++;
+            max = index < pattern.length() && pattern.charAt(index) == '}' ? UNBOUNDED : number(open);
+        }
+        if (index >= pattern.length() || pattern.charAt(index) != '}') {
+            throw error("Malformed repetition", open);
+        }
+        index++;
+        if (max != UNBOUNDED && max < min) {
+            throw error("Repetition maximum below minimum", open);
+        }
+
+        int start = starts[operandCount - 1];
+        int[] operand = Arrays.copyOfRange(postfix, start, size);
+        size = start;
+        boolean positionFree = true;
+        for (int code : operand) {
+            positionFree &= code < 0;
+        }
+        if (positionFree) {
+            emit(EMPTY);
+            return;
+        }
+        int copies = 0;
+        for (int i = 0; i < min; i++) {
+            boolean last = i == min - 1;
+            copy(operand, copies++ > 0);
+            if (last && max == UNBOUNDED) {
+                emit(PLUS);
+            }
+            if (i > 0) {
+                emit(CONCAT);
+            }
+        }
+        if (max == UNBOUNDED && min == 0) {
+            copy(operand, false);
+            emit(STAR);
+        } else if (max != UNBOUNDED && max > min) {
+            int optional = max - min;
+            for (int i = 0; i < optional; i++) {
+                copy(operand, copies++ > 0);
+            }
+            emit(OPTIONAL);
+            for (int i = 1; i < optional; i++) {
+                emit(CONCAT);
+                emit(OPTIONAL);
+            }
+            if (min > 0) {
+                emit(CONCAT);
+            }
+        } else if (max == 0) {
+            emit(EMPTY);
+        }
+    }
+
+    private int number(int open) {
+        int begin = index;
+        int value = 0;
+        while (index < pattern.length() && Character.isDigit(pattern.charAt(index))) {
+            value = value * 10 + (pattern.charAt(index++) - '0');
+            if (value > MAX_REPEAT) {
+                throw error("Repetition above " + MAX_REPEAT, open);
+            }
+        }
+        if (index == begin) {
+            throw error("Malformed repetition", open);
+        }
+        return value;
+    }
+
+    private void copy(int[] operand, boolean fresh) {
+        for (int code : operand) {
+            emit(fresh && code >= 0 ? newPosition(positionClass[code]) : code);
+        }
+    }
+
+    // Reads one char, escape, '.' or bracketed class and returns its class id.
+    private int atom() {
+        char c = pattern.charAt(index++);
+        if (c == '.') {
+            return classId(PRINTABLE);
+        }
+        if (c == '[') {
+            return classId(bracket(index - 1));
+        }
+        BitSet set = new BitSet();
+        if (c == '\\') {
+            set.or(escape());
+        } else {
+            set.set(c);
+        }
+        return classId(set);
+    }
+
+    private BitSet escape() {
+        if (index >= pattern.length()) {
+            throw error("Trailing '\\'", index - 1);
+        }
+        char c = pattern.charAt(index++);
+        switch (c) {
+            case 'd':
+                return DIGITS;
+            case 'w':
+                return WORD;
+            case 's':
+                return SPACE;
+            case 't':
+                return chars("\t");
+            case 'n':
+                return chars("\n");
+            case 'r':
+                return chars("\r");
+            default:
+                return chars(String.valueOf(c));
+        }
+    }
+
+    // The class after '[' at open; a ']' right after '[' or '[^' and a '-' at either end stand for
+    // themselves.
+    private BitSet bracket(int open) {
+        BitSet set = new BitSet();
+        boolean negate = index < pattern.length() && pattern.charAt(index) == '^';
+        if (negate) {
+            index++;
+        }
+        boolean first = true;
+        while (true) {
+            if (index >= pattern.length()) {
+                throw error("Unclosed character class", open);
+            }
+            char c = pattern.charAt(index++);
+            if (c == ']' && !first) {
+                break;
+            }
+            first = false;
+            if (c == '\\') {
+                BitSet escaped = escape();
+                if (escaped.cardinality() > 1) {
+                    set.or(escaped);
+                    continue;
+                }
+                c = (char) escaped.nextSetBit(0);
+            }
+            if (index + 1 < pattern.length() && pattern.charAt(index) == '-' && pattern.charAt(index + 1) != ']') {
+                index++;
+                char to = pattern.charAt(index++);
+                if (to == '\\') {
+                    BitSet escaped = escape();
+                    if (escaped.cardinality() > 1) {
+                        throw error("Bad range end", index - 2);
+                    }
+                    to = (char) escaped.nextSetBit(0);
+                }
+                if (to < c) {
+                    throw error("Bad range " + c + "-" + to, index - 3);
+                }
+                set.set(c, to + 1);
+            } else {
+                set.set(c);
+            }
+        }
+        if (negate) {
+            BitSet complement = (BitSet) PRINTABLE.clone();
+            complement.andNot(set);
+            return complement;
+        }
+        return set;
+    }
+
+    private int classId(BitSet set) {
+        Integer id = classIds.get(set);
+        if (id == null) {
+            id = classes.size();
+            classes.add(set);
+            classIds.put(set, id);
+        }
+        return id;
+    }
+
+    private int newPosition(int classId) {
+        if (positions == MAX_POSITIONS) {
+            throw error("Pattern expands to more than " + MAX_POSITIONS + " positions", 0);
+        }
+        if (positions == positionClass.length) {
+            positionClass = Arrays.copyOf(positionClass, positions * 2);
+        }
+        positionClass[positions] = classId;
+        return positions++;
+    }
+
+    private void emitOperand(int code) {
+        if (operandCount == starts.length) {
+            starts = Arrays.copyOf(starts, operandCount * 2);
+        }
+        starts[operandCount++] = size;
+        emit(code);
+    }
+
+    private void emit(int code) {
+        if (size == MAX_CODES) {
+            throw error("Pattern expands to more than " + MAX_CODES + " postfix codes", 0);
+        }
+        if (size == postfix.length) {
+            postfix = Arrays.copyOf(postfix, size * 2);
+        }
+        postfix[size++] = code;
+    }
+
+    private void pushOperator(int operator) {
+        if (operatorCount == operators.length) {
+            operators = Arrays.copyOf(operators, operatorCount * 2);
+            operatorIndex = Arrays.copyOf(operatorIndex, operatorCount * 2);
+        }
+        operatorIndex[operatorCount] = index;
+        operators[operatorCount++] = operator;
+    }
+
+    // Evaluates the postfix with a stack of (nullable, first, last) and fills in the follow sets
+    // as concatenations and loops are met. State 0 is the start state, position p is state p + 1.
+    private NFA glushkov() {
+        int n = positions + 1;
+        int words = NFA.wordsFor(n);
+        long[] follow = new long[n * words];
+
+        boolean[] nullable = new boolean[16];
+        long[][] firsts = new long[16][];
+        long[][] lasts = new long[16][];
+        int top = 0;
+        for (int i = 0; i < size; i++) {
+            int code = postfix[i];
+            if (top + 1 >= nullable.length) {
+                nullable = Arrays.copyOf(nullable, top * 2 + 2);
+                firsts = Arrays.copyOf(firsts, top * 2 + 2);
+                lasts = Arrays.copyOf(lasts, top * 2 + 2);
+            }
+            if (code >= 0 || code == EMPTY) {
+                long[] first = new long[words];
+                long[] last = new long[words];
+                if (code >= 0) {
+                    first[(code + 1) >>> 6] |= 1L << (code + 1);
+                    last[(code + 1) >>> 6] |= 1L << (code + 1);
+                }
+                nullable[top] = code == EMPTY;
+                firsts[top] = first;
+                lasts[top++] = last;
+                continue;
+            }
+            int a = top - 1;
+            if (code == STAR || code == PLUS) {
+                addFollow(follow, lasts[a], firsts[a], words);
+                nullable[a] |= code == STAR;
+            } else if (code == OPTIONAL) {
+                nullable[a] = true;
+            } else {
+                int b = a;
+                a = --top - 1;
+                if (code == CONCAT) {
+                    addFollow(follow, lasts[a], firsts[b], words);
+                    if (nullable[a]) {
+                        or(firsts[a], firsts[b]);
+                    }
+                    if (nullable[b]) {
+                        or(lasts[b], lasts[a]);
+                    }
+                    lasts[a] = lasts[b];
+                    nullable[a] &= nullable[b];
+                } else {
+                    or(firsts[a], firsts[b]);
+                    or(lasts[a], lasts[b]);
+                    nullable[a] |= nullable[b];
+                }
+            }
+        }
+        System.arraycopy(firsts[0], 0, follow, 0, words);
+        long[] accepting = lasts[0].clone();
+        if (nullable[0]) {
+            accepting[0] |= 1L;
+        }
+
+        BitSet used = new BitSet();
+        for (int p = 0; p < positions; p++) {
+            used.or(classes.get(positionClass[p]));
+        }
+        String[] symbols = new String[used.cardinality()];
+        int[] symbolOf = new int[Math.max(0, used.length())];
+        for (int c = used.nextSetBit(0), a = 0; c >= 0; c = used.nextSetBit(c + 1), a++) {
+            symbols[a] = String.valueOf((char) c);
+            symbolOf[c] = a;
+        }
+        int k = symbols.length;
+        int[][] classSymbols = new int[classes.size()][];
+        for (int id = 0; id < classes.size(); id++) {
+            BitSet set = classes.get(id);
+            classSymbols[id] = new int[set.cardinality()];
+            for (int c = set.nextSetBit(0), j = 0; c >= 0; c = set.nextSetBit(c + 1), j++) {
+                classSymbols[id][j] = symbolOf[c];
+            }
+        }
+
+        long[] successors = new long[n * k * words];
+        for (int p = 0; p < n; p++) {
+            for (int w = 0; w < words; w++) {
+                long bits = follow[p * words + w];
+                while (bits != 0) {
+                    int q = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    for (int a : classSymbols[positionClass[q - 1]]) {
+                        successors[(p * k + a) * words + w] |= 1L << q;
+                    }
+                }
+            }
+        }
+        String[] states = new String[n];
+        for (int q = 0; q < n; q++) {
+            states[q] = "q" + q;
+        }
+        return NFA.fromTable(states, symbols, 0, accepting, successors);
+    }
+
+    private static void addFollow(long[] follow, long[] last, long[] first, int words) {
+        for (int w = 0; w < words; w++) {
+            long bits = last[w];
+            while (bits != 0) {
+                int p = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                or(follow, p * words, first, words);
+            }
+        }
+    }
+
+    private static void or(long[] dest, long[] src) {
+        or(dest, 0, src, src.length);
+    }
+
+    private static void or(long[] dest, int offset, long[] src, int words) {
+        for (int w = 0; w < words; w++) {
+            dest[offset + w] |= src[w];
+        }
+    }
+
+    private IllegalArgumentException error(String message, int at) {
+        return new IllegalArgumentException(message + " at index " + at + " in " + pattern);
+    }
+
+    private static BitSet range(char from, char to) {
+        BitSet set = new BitSet();
+        set.set(from, to + 1);
+        return set;
+    }
+
+    private static BitSet word() {
+        BitSet set = range('a', 'z');
+        set.or(range('A', 'Z'));
+        set.or(DIGITS);
+        set.set('_');
+        return set;
+    }
+
+    private static BitSet chars(String chars) {
+        BitSet set = new BitSet();
+        for (int i = 0; i < chars.length(); i++) {
+            set.set(chars.charAt(i));
+        }
+        return set;
+    }
+}
@@ -0,0 +1,125 @@
+import org.junit.Test;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RegexTest {
+
+    // A random pattern over {a, b, c} in the syntax both Regex and java.util.regex read the same
+    // way. Quantifiers only follow atoms, since Java reads "a*+" and "a*?" differently.
+    private static String pattern(Random random, int depth) {
+        StringBuilder pattern = new StringBuilder();
+        for (int i = random.nextInt(3); i >= 0; i--) {
+            if (i < 2 && depth > 0 && random.nextInt(4) == 0) {
+                pattern.append('|');
+            }
+            pattern.append(atom(random, depth));
+            switch (random.nextInt(10)) {
+                case 0:
+                    pattern.append('*');
+                    break;
+                case 1:
+                    pattern.append('+');
+                    break;
+                case 2:
+                    pattern.append('?');
+                    break;
+                case 3: {
+                    int min = random.nextInt(3);
+                    int form = random.nextInt(3);
+                    pattern.append('{').append(min)
+                            .append(form == 0 ? "" : form == 1 ? "," : "," + (min + random.nextInt(3))).append('}');
+                    break;
+                }
+                default:
+                    break;
+            }
+        }
+        return pattern.toString();
+    }
+
+    private static String atom(Random random, int depth) {
+        switch (random.nextInt(depth > 0 ? 8 : 5)) {
+            case 0:
+                return ".";
+            case 1:
+                return random.nextBoolean() ? "[ab]" : "[^a]";
+            case 2:
+                return "[a-b]";
+            case 5:
+            case 6:
+            case 7:
+                return "(" + pattern(random, depth - 1) + ")";
+            default:
+                return String.valueOf((char) ('a' + random.nextInt(3)));
+        }
+    }
+
+    @Test
+    public void testAgreesWithJavaUtilRegex() {
+        Random random = new Random(1);
+        List<String> words = DeterminizerTest.words(random, 200);
+        for (int i = 0; i < 1000; i++) {
+            String pattern = pattern(random, 3);
+            Matcher matcher = Regex.matcher(pattern);
+            Pattern reference = Pattern.compile(pattern);
+            for (String word : words) {
+                assertEquals(pattern + " on " + word, reference.matcher(word).matches(), matcher.accepts(word));
+            }
+        }
+    }
+
+    @Test
+    public void testEscapesAndClasses() {
+        String[] patterns = {"\\d+", "\\w*\\s\\w*", "[\\d.]+", "[a\\-z]", "[]a]", "[^]a]", "a\\*b", "\\t\\n", "[-a]+", "x{2,}y{0}"};
+        String[] words = {"", "0", "123", "ab c", "a_1 ", "1.5", "-", "z", "]", "a", "a*b", "\t\n", "-a-", "xx", "xxxy", "b"};
+        for (String pattern : patterns) {
+            Matcher matcher = Regex.matcher(pattern);
+            Pattern reference = Pattern.compile(pattern);
+            for (String word : words) {
+                assertEquals(pattern + " on " + word, reference.matcher(word).matches(), matcher.accepts(word));
+            }
+        }
+    }
+
+    @Test
+    public void testPositionFreeRepetitionCollapses() {
+        Matcher matcher = Regex.matcher("(){1000}{1000}{1000}");
+        assertTrue(matcher.accepts(""));
+        assertFalse(matcher.accepts("a"));
+        Matcher nested = Regex.matcher("(a(()*){1000}{1000}){2}");
+        assertTrue(nested.accepts("aa"));
+        assertFalse(nested.accepts("a"));
+    }
+
+    @Test
+    public void testExpansionIsCapped() {
+        String[] patterns = {"(a" + "()".repeat(10_000) + "){1000}", "(a{1000}){1000}", "((a){100}){100}"};
+        for (String pattern : patterns) {
+            try {
+                Regex.compile(pattern);
+                fail(pattern.substring(0, 20));
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith("Pattern expands to more than"));
+            }
+        }
+    }
+
+    @Test
+    public void testSyntaxErrors() {
+        String[] patterns = {")", "(a", "*a", "a{", "a{2,1}", "a{1001}", "[a", "[b-a]", "a\\"};
+        for (String pattern : patterns) {
+            try {
+                Regex.compile(pattern);
+                fail(pattern);
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains(" in " + pattern));
+            }
+        }
+    }
+}
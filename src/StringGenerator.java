@@ -0,0 +1,243 @@
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Random derivations over a Grammar's encoded rules. Per nonterminal it precomputes cumulative
+// choice weights and the shortest terminal yield (with its derivation depth as a tie-break), so a
+// derivation that would overrun maxLength is steered onto its shortest completion. Length alone
+// does not bound a derivation, since alternatives deriving ε (S -> SSS | ε) or unit cycles never
+// use it up, so a derivation also gets EXPANSIONS_PER_SYMBOL * (maxLength + 1) expansions; past
+// that every nonterminal takes its shortest alternative, whose minimum depth is strictly smaller,
+// and the derivation ends. Derivation uses an explicit symbol stack and a reusable buffer.
+public class StringGenerator {
+    public static final int DEFAULT_MAX_LENGTH = 32;
+    public static final int EXPANSIONS_PER_SYMBOL = 16;
+    private static final int INFINITE = Integer.MAX_VALUE / 4;
+
+    private final SymbolTable symbols;
+    private final int[][][] rules;
+    private final int start;
+    private final int maxLength;
+    private final long maxExpansions;
+    private final double[][] cumulative;
+    private final int[] minLength;
+    private final int[][] ruleMinLength;
+    private final int[] shortest;
+
+    public StringGenerator(Grammar grammar) {
+        this(grammar, DEFAULT_MAX_LENGTH, Collections.emptyMap());
+    }
+
+    // weights maps a nonterminal to one weight per alternative, in the order of its productions.
+    public StringGenerator(Grammar grammar, int maxLength, Map<String, double[]> weights) {
+        this.symbols = grammar.getSymbols();
+        this.rules = grammar.getRules();
+        this.start = symbols.lookup(grammar.getStartSymbol());
+        this.maxLength = maxLength;
+        this.maxExpansions = (long) EXPANSIONS_PER_SYMBOL * (Math.max(0, maxLength) + 1);
+
+        int n = rules.length;
+        this.cumulative = new double[n][];
+        for (int a = 0; a < n; a++) {
+            double[] w = weights.get(symbols.name(a));
+            if (w != null && w.length != rules[a].length) {
+                throw new IllegalArgumentException("Expected " + rules[a].length + " weights for " + symbols.name(a));
+            }
+            cumulative[a] = new double[rules[a].length];
+            double total = 0;
+            for (int r = 0; r < rules[a].length; r++) {
+                total += w == null ? 1.0 : w[r];
+                cumulative[a][r] = total;
+            }
+        }
+
+        // Relax (length, depth) pairs to the least fixpoint; nonproductive symbols stay INFINITE.
+        this.minLength = new int[n];
+        int[] minDepth = new int[n];
+        this.ruleMinLength = new int[n][];
+        this.shortest = new int[n];
+        Arrays.fill(minLength, INFINITE);
+        Arrays.fill(minDepth, INFINITE);
+        Arrays.fill(shortest, -1);
+        for (int a = 0; a < n; a++) {
+            ruleMinLength[a] = new int[rules[a].length];
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int a = 0; a < n; a++) {
+                for (int r = 0; r < rules[a].length; r++) {
+                    int length = 0;
+                    int depth = 0;
+                    for (int symbol : rules[a][r]) {
+                        if (SymbolTable.isNonTerminal(symbol)) {
+                            length = Math.min(INFINITE, length + minLength[symbol]);
+                            depth = Math.max(depth, minDepth[symbol]);
+                        } else {
+                            length++;
+                        }
+                    }
+                    depth = Math.min(INFINITE, depth + 1);
+                    if (length < minLength[a] || (length == minLength[a] && depth < minDepth[a])) {
+                        minLength[a] = length;
+                        minDepth[a] = depth;
+                        shortest[a] = r;
+                        changed = true;
+                    }
+                }
+            }
+        }
+        for (int a = 0; a < n; a++) {
+            for (int r = 0; r < rules[a].length; r++) {
+                int length = 0;
+                for (int symbol : rules[a][r]) {
+                    length = Math.min(INFINITE, length + (SymbolTable.isNonTerminal(symbol) ? minLength[symbol] : 1));
+                }
+                ruleMinLength[a][r] = length;
+            }
+        }
+    }
+
+    public boolean isProductive() {
+        return start >= 0 && start < minLength.length && minLength[start] < INFINITE;
+    }
+
+    public Sampler sampler() {
+        return new Sampler(new SplittableRandom());
+    }
+
+    public Sampler sampler(long seed) {
+        return new Sampler(new SplittableRandom(seed));
+    }
+
+    // count strings; a parallel stream splits the SplittableRandom so that each worker owns one.
+    public Stream<String> stream(long count, long seed) {
+        return StreamSupport.stream(new SampleSpliterator(count, new SplittableRandom(seed)), false);
+    }
+
+    // Not thread-safe: one Sampler per thread.
+    public final class Sampler {
+        private final SplittableRandom random;
+        private final StringBuilder buffer = new StringBuilder();
+        private int[] stack = new int[64];
+
+        Sampler(SplittableRandom random) {
+            this.random = random;
+        }
+
+        public String next() {
+            generate(buffer);
+            return buffer.toString();
+        }
+
+        // Clears out and writes one derived string into it.
+        public void generate(StringBuilder out) {
+            if (!isProductive()) {
+                throw new IllegalStateException("Start symbol " + symbols.name(start) + " derives no terminal string");
+            }
+            out.setLength(0);
+            int top = 0;
+            stack[top++] = start;
+            int emitted = 0;
+            int pending = minLength[start];
+            long expansions = 0;
+            while (top > 0) {
+                int symbol = stack[--top];
+                if (!SymbolTable.isNonTerminal(symbol)) {
+                    out.append(symbols.name(symbol));
+                    emitted++;
+                    pending--;
+                    continue;
+                }
+                pending -= minLength[symbol];
+                int r = ++expansions > maxExpansions ? shortest[symbol] : choose(symbol, maxLength - emitted - pending);
+                int[] rhs = rules[symbol][r];
+                if (top + rhs.length > stack.length) {
+                    stack = Arrays.copyOf(stack, Math.max(stack.length * 2, top + rhs.length));
+                }
+                for (int i = rhs.length - 1; i >= 0; i--) {
+                    stack[top++] = rhs[i];
+                }
+                pending += ruleMinLength[symbol][r];
+            }
+        }
+
+        // Weighted choice among the productive alternatives that still fit in budget; when none
+        // fits, the alternative with the shortest and shallowest completion.
+        private int choose(int a, int budget) {
+            double[] weights = cumulative[a];
+            int[] lengths = ruleMinLength[a];
+            double total = 0;
+            double previous = 0;
+            for (int r = 0; r < weights.length; r++) {
+                if (lengths[r] <= budget) {
+                    total += weights[r] - previous;
+                }
+                previous = weights[r];
+            }
+            if (total <= 0) {
+                return shortest[a];
+            }
+            double x = random.nextDouble() * total;
+            previous = 0;
+            int last = shortest[a];
+            for (int r = 0; r < weights.length; r++) {
+                double w = weights[r] - previous;
+                previous = weights[r];
+                if (lengths[r] <= budget) {
+                    last = r;
+                    if (x < w) {
+                        return r;
+                    }
+                    x -= w;
+                }
+            }
+            return last;
+        }
+    }
+
+    private final class SampleSpliterator implements Spliterator<String> {
+        private long remaining;
+        private final SplittableRandom random;
+        private Sampler sampler;
+
+        SampleSpliterator(long remaining, SplittableRandom random) {
+            this.remaining = remaining;
+            this.random = random;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super String> action) {
+            if (remaining <= 0) {
+                return false;
+            }
+            if (sampler == null) {
+                sampler = new Sampler(random);
+            }
+            remaining--;
+            action.accept(sampler.next());
+            return true;
+        }
+
+        @Override
+        public Spliterator<String> trySplit() {
+            if (remaining < 2) {
+                return null;
+            }
+            long half = remaining >>> 1;
+            remaining -= half;
+            return new SampleSpliterator(half, random.split());
+        }
+
+        @Override
+        public long estimateSize() {
+            return remaining;
+        }
+
+        @Override
+        public int characteristics() {
+            return SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StringGeneratorTest {
+
+    private static Grammar grammar(Map<String, List<String>> productions, String... terminals) {
+        return new Grammar(new HashSet<>(productions.keySet()), new HashSet<>(Arrays.asList(terminals)), productions, "S");
+    }
+
+    private static void assertDerives(Grammar grammar, StringGenerator generator, int maxLength, int samples) {
+        Earley earley = new Earley(grammar);
+        StringGenerator.Sampler sampler = generator.sampler(1);
+        for (int i = 0; i < samples; i++) {
+            String s = sampler.next();
+            assertTrue(s, s.length() <= maxLength);
+            assertTrue(s, earley.accepts(s));
+        }
+    }
+
+    @Test
+    public void testEpsilonAlternativesTerminate() {
+        // Each S expands to 4/3 of an S on average, so without a bound on expansions a derivation
+        // grows forever with positive probability, while its length never exceeds the budget.
+        Grammar grammar = grammar(Map.of("S", List.of("SSS", "a", "ε")), "a");
+        for (int maxLength : new int[]{0, 1, 8, 32}) {
+            assertDerives(grammar, new StringGenerator(grammar, maxLength, Map.of()), maxLength, 2000);
+        }
+        // Weighted almost entirely towards the growing alternative.
+        Grammar growing = grammar(Map.of("S", List.of("SS", "ε")));
+        StringGenerator generator = new StringGenerator(growing, 16, Map.of("S", new double[]{1000, 1}));
+        for (int i = 0; i < 2000; i++) {
+            assertEquals("", generator.sampler(i).next());
+        }
+    }
+
+    @Test
+    public void testUnitCyclesTerminate() {
+        Grammar grammar = grammar(Map.of("S", List.of("A", "aS"), "A", List.of("S", "B"), "B", List.of("A", "b")), "a", "b");
+        StringGenerator generator = new StringGenerator(grammar, 8, Map.of("S", new double[]{100, 1}, "A", new double[]{100, 1},
+                "B", new double[]{100, 1}));
+        assertDerives(grammar, generator, 8, 2000);
+    }
+
+    @Test
+    public void testSeedReproducibility() {
+        Grammar grammar = GrammarEnumeratorTest.dyckGrammar();
+        StringGenerator generator = new StringGenerator(grammar);
+        List<String> first = new ArrayList<>();
+        List<String> second = new ArrayList<>();
+        StringGenerator.Sampler a = generator.sampler(7);
+        StringGenerator.Sampler b = generator.sampler(7);
+        for (int i = 0; i < 200; i++) {
+            first.add(a.next());
+            second.add(b.next());
+        }
+        assertEquals(first, second);
+        assertEquals(generator.stream(500, 3).collect(Collectors.toList()), generator.stream(500, 3).collect(Collectors.toList()));
+        assertEquals(500, generator.stream(500, 3).parallel().count());
+    }
+
+    @Test
+    public void testMainGrammarStaysWithinLength() {
+        Grammar grammar = CYKTest.mainGrammar().toGrammar();
+        assertDerives(grammar, new StringGenerator(grammar), StringGenerator.DEFAULT_MAX_LENGTH, 2000);
+    }
+
+    @Test
+    public void testUnproductiveStart() {
+        Grammar grammar = grammar(Map.of("S", List.of("aS")), "a");
+        StringGenerator generator = new StringGenerator(grammar);
+        assertFalse(generator.isProductive());
+        try {
+            generator.sampler(1).next();
+            fail();
+        } catch (IllegalStateException expected) {
+            assertTrue(expected.getMessage().contains("derives no terminal string"));
+        }
+    }
+}
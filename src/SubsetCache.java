@@ -0,0 +1,135 @@
+import java.util.Arrays;
+
+// Subset construction done on demand, for LazyDFA and MultiPatternDFA: a DFA state is built the
+// first time the input reaches it and kept in a cache of at most maxStates subsets. A full cache
+// is flushed as a whole except for the start state, which keeps id 0. Each state carries
+// labelWords longs of labels, computed once when it is added. When flushes come faster than one
+// per MIN_CHARS_PER_STATE chars per cached state, build returns THRASHING and the caller finishes
+// the input by stepping the subset from target() directly.
+final class SubsetCache {
+    static final int UNKNOWN = -2;
+    static final int THRASHING = -3;
+    private static final int MIN_CHARS_PER_STATE = 10;
+
+    interface Automaton {
+        void step(long[] set, int symbol, long[] dest);
+
+        // Writes the labels of set to dest[at, at + labelWords).
+        void label(long[] set, long[] dest, int at);
+    }
+
+    private final Automaton automaton;
+    private final long[] start;
+    private final int symbolCount;
+    private final int labelWords;
+    private final int maxStates;
+    private final SubsetTable subsets;
+    // symbolCount entries per state: the target id, CompiledDFA.DEAD, or UNKNOWN.
+    final int[] next;
+    final long[] labels;
+    // Whether any label of the state is set.
+    final boolean[] labelled;
+    private final long[] subset;
+    private final long[] target;
+    private long flushedAt;
+    private long flushes;
+    private long evictions;
+
+    SubsetCache(Automaton automaton, long[] start, int symbolCount, int labelWords, int maxStates) {
+        // A flush keeps the start state and the one being left, and then adds the target.
+        if (maxStates < 3) {
+            throw new IllegalArgumentException("Cache needs room for at least 3 states, got " + maxStates);
+        }
+        this.automaton = automaton;
+        this.start = start;
+        this.symbolCount = symbolCount;
+        this.labelWords = labelWords;
+        this.maxStates = maxStates;
+        this.subsets = new SubsetTable(start.length, maxStates);
+        this.next = new int[maxStates * Math.max(1, symbolCount)];
+        this.labels = new long[maxStates * labelWords];
+        this.labelled = new boolean[maxStates];
+        this.subset = new long[start.length];
+        this.target = new long[start.length];
+        flush();
+    }
+
+    // Starts matching a new input; only flushes within one input count as thrashing.
+    void begin() {
+        flushedAt = -1;
+    }
+
+    // Adds the successor of state on symbol, read at position of the input, and returns its id or
+    // CompiledDFA.DEAD. A full cache is flushed first, after which the target, like every cached
+    // state, is renumbered; a flush too soon after the previous one returns THRASHING instead.
+    int build(int state, int symbol, long position) {
+        subsets.get(state, subset);
+        automaton.step(subset, symbol, target);
+        if (NFA.isEmpty(target)) {
+            next[state * symbolCount + symbol] = CompiledDFA.DEAD;
+            return CompiledDFA.DEAD;
+        }
+        int id = subsets.find(target);
+        if (id < 0) {
+            if (subsets.size() == maxStates) {
+                evictions += maxStates;
+                flushes++;
+                flush();
+                if (flushedAt >= 0 && position - flushedAt < (long) MIN_CHARS_PER_STATE * maxStates) {
+                    return THRASHING;
+                }
+                flushedAt = position;
+                state = add(subset);
+            }
+            id = add(target);
+        }
+        next[state * symbolCount + symbol] = id;
+        return id;
+    }
+
+    // The subset of the last state build stepped to, which a fallback resumes from.
+    long[] target() {
+        return target.clone();
+    }
+
+    private void flush() {
+        subsets.clear();
+        Arrays.fill(next, UNKNOWN);
+        add(start);
+    }
+
+    private int add(long[] set) {
+        int size = subsets.size();
+        int id = subsets.add(set);
+        if (id == size) {
+            automaton.label(set, labels, id * labelWords);
+            labelled[id] = false;
+            for (int w = 0; w < labelWords; w++) {
+                labelled[id] |= labels[id * labelWords + w] != 0;
+            }
+        }
+        return id;
+    }
+
+    int size() {
+        return subsets.size();
+    }
+
+    int maxStates() {
+        return maxStates;
+    }
+
+    long flushes() {
+        return flushes;
+    }
+
+    // States dropped by flushes.
+    long evictions() {
+        return evictions;
+    }
+
+    void resetCounters() {
+        flushes = 0;
+        evictions = 0;
+    }
+}
@@ -0,0 +1,107 @@
+import java.util.Arrays;
+
+// Open-addressing map from fixed-width bitsets to dense ids. Keys are copied into one flat
+// long[] pool, so lookups of an existing subset allocate nothing.
+final class SubsetTable {
+    private final int words;
+    private long[] pool;
+    private int[] hashes;
+    private int[] slots;
+    private int size;
+
+    SubsetTable(int words, int expected) {
+        this.words = words;
+        int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+        this.pool = new long[Math.max(1, expected) * words];
+        this.hashes = new int[Math.max(1, expected)];
+        this.slots = new int[capacity];
+        Arrays.fill(slots, -1);
+    }
+
+    int size() {
+        return size;
+    }
+
+    int find(long[] key) {
+        int hash = hash(key);
+        int mask = slots.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            int id = slots[i];
+            if (id < 0) {
+                return -1;
+            }
+            if (hashes[id] == hash && equalsAt(id, key)) {
+                return id;
+            }
+        }
+    }
+
+    // Returns the id of key, adding it if absent; a new id equals the previous size().
+    int add(long[] key) {
+        int hash = hash(key);
+        int mask = slots.length - 1;
+        int i = hash & mask;
+        for (; ; i = (i + 1) & mask) {
+            int id = slots[i];
+            if (id < 0) {
+                break;
+            }
+            if (hashes[id] == hash && equalsAt(id, key)) {
+                return id;
+            }
+        }
+        int id = size++;
+        if (id == hashes.length) {
+            hashes = Arrays.copyOf(hashes, id * 2);
+            pool = Arrays.copyOf(pool, id * 2 * words);
+        }
+        hashes[id] = hash;
+        System.arraycopy(key, 0, pool, id * words, words);
+        slots[i] = id;
+        if (size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        return id;
+    }
+
+    void get(int id, long[] dest) {
+        System.arraycopy(pool, id * words, dest, 0, words);
+    }
+
+    void clear() {
+        Arrays.fill(slots, -1);
+        size = 0;
+    }
+
+    private boolean equalsAt(int id, long[] key) {
+        int base = id * words;
+        for (int w = 0; w < words; w++) {
+            if (pool[base + w] != key[w]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash(int capacity) {
+        slots = new int[capacity];
+        Arrays.fill(slots, -1);
+        int mask = capacity - 1;
+        for (int id = 0; id < size; id++) {
+            int i = hashes[id] & mask;
+            while (slots[i] >= 0) {
+                i = (i + 1) & mask;
+            }
+            slots[i] = id;
+        }
+    }
+
+    private int hash(long[] key) {
+        long h = 0x9E3779B97F4A7C15L;
+        for (int w = 0; w < words; w++) {
+            h = (h ^ key[w]) * 0xBF58476D1CE4E5B9L;
+            h ^= h >>> 31;
+        }
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,154 @@
+import java.util.*;
+
+// Interns grammar symbols to ints: nonterminals are 0 .. nonTerminalCount() - 1 and terminals are
+// ~index, so either side can grow without renumbering right-hand sides that are already encoded.
+public final class SymbolTable {
+    public static final String EPSILON = "ε";
+    public static final int NONE = Integer.MIN_VALUE;
+
+    private final List<String> nonTerminals = new ArrayList<>();
+    private final List<String> terminals = new ArrayList<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final TreeSet<Integer> lengths = new TreeSet<>(Comparator.reverseOrder());
+
+    public SymbolTable() {
+    }
+
+    public SymbolTable(SymbolTable other) {
+        nonTerminals.addAll(other.nonTerminals);
+        terminals.addAll(other.terminals);
+        ids.putAll(other.ids);
+        lengths.addAll(other.lengths);
+    }
+
+    public int nonTerminal(String name) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = nonTerminals.size();
+            nonTerminals.add(name);
+            register(name, id);
+        }
+        return id;
+    }
+
+    public int terminal(String name) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = ~terminals.size();
+            terminals.add(name);
+            register(name, id);
+        }
+        return id;
+    }
+
+    // A nonterminal named prefix + n for the first n >= counter[0] that is still unused.
+    public int fresh(String prefix, int[] counter) {
+        String name;
+        do {
+            name = prefix + counter[0]++;
+        } while (ids.containsKey(name));
+        return nonTerminal(name);
+    }
+
+    private void register(String name, int id) {
+        ids.put(name, id);
+        if (!name.isEmpty()) {
+            lengths.add(name.length());
+        }
+    }
+
+    public int lookup(String name) {
+        Integer id = ids.get(name);
+        return id == null ? NONE : id;
+    }
+
+    public static boolean isNonTerminal(int symbol) {
+        return symbol >= 0;
+    }
+
+    public String name(int symbol) {
+        return isNonTerminal(symbol) ? nonTerminals.get(symbol) : terminals.get(~symbol);
+    }
+
+    public int nonTerminalCount() {
+        return nonTerminals.size();
+    }
+
+    public int terminalCount() {
+        return terminals.size();
+    }
+
+    // "ε" and "" are the empty right-hand side. A production containing whitespace is split on
+    // it; otherwise symbols are read by longest match against the known names, and an unknown
+    // character becomes a new one-character terminal.
+    public int[] parse(String production) {
+        String trimmed = production.trim();
+        if (trimmed.isEmpty() || trimmed.equals(EPSILON)) {
+            return new int[0];
+        }
+        if (containsWhitespace(trimmed)) {
+            String[] parts = trimmed.split("\\s+");
+            int[] rhs = new int[parts.length];
+            int n = 0;
+            for (String part : parts) {
+                if (!part.equals(EPSILON)) {
+                    int id = lookup(part);
+                    rhs[n++] = id != NONE ? id : terminal(part);
+                }
+            }
+            return Arrays.copyOf(rhs, n);
+        }
+        int[] rhs = new int[trimmed.length()];
+        int n = 0;
+        int i = 0;
+        while (i < trimmed.length()) {
+            int match = NONE;
+            int matchLength = 1;
+            for (int length : lengths) {
+                if (i + length <= trimmed.length()) {
+                    Integer id = ids.get(trimmed.substring(i, i + length));
+                    if (id != null) {
+                        match = id;
+                        matchLength = length;
+                        break;
+                    }
+                }
+            }
+            if (match == NONE) {
+                match = terminal(trimmed.substring(i, i + 1));
+            }
+            rhs[n++] = match;
+            i += matchLength;
+        }
+        return Arrays.copyOf(rhs, n);
+    }
+
+    // Inverse of parse(): names are concatenated when they are all one character long and
+    // separated by spaces otherwise, so multi-character symbols survive a round trip.
+    public String render(int[] rhs) {
+        if (rhs.length == 0) {
+            return EPSILON;
+        }
+        boolean single = true;
+        for (int symbol : rhs) {
+            single &= name(symbol).length() == 1;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int symbol : rhs) {
+            if (!single && sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(name(symbol));
+        }
+        return sb.toString();
+    }
+
+    private static boolean containsWhitespace(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (Character.isWhitespace(s.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
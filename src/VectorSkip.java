@@ -0,0 +1,50 @@
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+// DFAScanner's exit-byte search with the incubating Vector API: one compare per exit byte over a
+// whole vector of input, then the first set lane. Only loaded when jdk.incubator.vector is in the
+// boot layer (run with --add-modules jdk.incubator.vector), so the scanner still works without it.
+final class VectorSkip {
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+    // Shorter runs are searched by DFAScanner's scalar loop.
+    static final int MIN_LENGTH = SPECIES.length();
+
+    private VectorSkip() {
+    }
+
+    // The first index from i on holding one of the 1 or 3 exit bytes, or to when there is none.
+    static int skip(byte[] data, int i, int to, byte[] exit) {
+        int lanes = SPECIES.length();
+        byte e0 = exit[0];
+        if (exit.length == 1) {
+            for (; i <= to - lanes; i += lanes) {
+                VectorMask<Byte> hit = ByteVector.fromArray(SPECIES, data, i).eq(e0);
+                if (hit.anyTrue()) {
+                    return i + hit.firstTrue();
+                }
+            }
+            while (i < to && data[i] != e0) {
+                i++;
+            }
+            return i;
+        }
+        byte e1 = exit[1];
+        byte e2 = exit[2];
+        for (; i <= to - lanes; i += lanes) {
+            ByteVector v = ByteVector.fromArray(SPECIES, data, i);
+            VectorMask<Byte> hit = v.eq(e0).or(v.eq(e1)).or(v.eq(e2));
+            if (hit.anyTrue()) {
+                return i + hit.firstTrue();
+            }
+        }
+        while (i < to) {
+            byte b = data[i];
+            if (b == e0 || b == e1 || b == e2) {
+                return i;
+            }
+            i++;
+        }
+        return to;
+    }
+}